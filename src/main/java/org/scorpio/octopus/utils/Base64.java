@@ -1,7 +1,18 @@
 package org.scorpio.octopus.utils;
 
 import java.io.*;
-import java.util.zip.*;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import org.scorpio.octopus.utils.compress.CompressionCodec;
+import org.scorpio.octopus.utils.compress.DeflateCodec;
+import org.scorpio.octopus.utils.compress.GzipCodec;
+import org.scorpio.octopus.utils.compress.Lz4Codec;
 
 /**
  * Base64加解密工具集。
@@ -11,22 +22,22 @@ import java.util.zip.*;
  * N. Freed and N. Borenstein. RFC 2045: Multipurpose Internet Mail Extensions
  * (MIME) Part One: Format of Internet Message Bodies. Reference 1996 Available
  * at: http://www.ietf.org/rfc/rfc2045.txt This class is used by XML Schema
- * binary format validation This implementation does not encode/decode streaming
- * data. You need the data that you will encode/decode already on a byte arrray.
+ * binary format validation. Streaming data can be encoded/decoded through
+ * {@link Base64OutputStream}, {@link Base64InputStream}, {@link Base64Reader}
+ * and {@link Base64Writer}.
  * <p>
+ * 所有静态方法均无共享可变状态，可被多线程并发调用而无需加锁。
+ * </p>
+ *
+ * <p>#ThreadSafe#</p>
  */
 public final class Base64 {
 	static private final int BASELENGTH = 255;
 	static private final int LOOKUPLENGTH = 64;
-	static private final int TWENTYFOURBITGROUP = 24;
-	static private final int EIGHTBIT = 8;
-	static private final int SIXTEENBIT = 16;
 	static private final int FOURBYTE = 4;
-	static private final int SIGN = -128;
 	static private final byte PAD = (byte) '=';
-	static private final boolean fDebug = false;
-	static private byte[] base64Alphabet = new byte[BASELENGTH];
-	static private byte[] lookUpBase64Alphabet = new byte[LOOKUPLENGTH];
+	static final byte[] base64Alphabet = new byte[BASELENGTH];
+	static final byte[] lookUpBase64Alphabet = new byte[LOOKUPLENGTH];
 
 	static {
 
@@ -72,7 +83,80 @@ public final class Base64 {
 	}
 
 	protected static boolean isData(byte octect) {
-		return (base64Alphabet[octect] != -1);
+		return octect >= 0 && base64Alphabet[octect] != -1;
+	}
+
+	/**
+	 * 将count个完整的3字节分组编码为Base64字符，供流式编码使用。
+	 * 
+	 * @return 写入dst的字节数
+	 */
+	static int encodeTriplets(byte[] src, int off, int count, byte[] dst, int dOff) {
+		for (int i = 0; i < count; i++) {
+			int bits = (src[off++] & 0xff) << 16 | (src[off++] & 0xff) << 8 | (src[off++] & 0xff);
+			dst[dOff++] = lookUpBase64Alphabet[bits >>> 18];
+			dst[dOff++] = lookUpBase64Alphabet[(bits >>> 12) & 0x3f];
+			dst[dOff++] = lookUpBase64Alphabet[(bits >>> 6) & 0x3f];
+			dst[dOff++] = lookUpBase64Alphabet[bits & 0x3f];
+		}
+		return count * 4;
+	}
+
+	/**
+	 * 将1~3个字节编码为一个4字符分组，不足3字节时以PAD补齐。
+	 */
+	static void encodeQuantum(byte[] src, int off, int len, byte[] dst, int dOff) {
+		int b1 = src[off] & 0xff;
+		int b2 = len > 1 ? src[off + 1] & 0xff : 0;
+		int b3 = len > 2 ? src[off + 2] & 0xff : 0;
+		dst[dOff] = lookUpBase64Alphabet[b1 >>> 2];
+		dst[dOff + 1] = lookUpBase64Alphabet[(b1 & 0x03) << 4 | b2 >>> 4];
+		dst[dOff + 2] = len > 1 ? lookUpBase64Alphabet[(b2 & 0x0f) << 2 | b3 >>> 6] : PAD;
+		dst[dOff + 3] = len > 2 ? lookUpBase64Alphabet[b3 & 0x3f] : PAD;
+	}
+
+	/**
+	 * 解码一个4字符分组，校验规则与{@link #decode(byte[])}相同。
+	 * 
+	 * @return 解码出的字节数(1~3)，分组非法时返回-1
+	 */
+	static int decodeQuantum(byte d1, byte d2, byte d3, byte d4, byte[] dst, int dOff) {
+		int b1 = valueOf(d1);
+		int b2 = valueOf(d2);
+		if (b1 < 0 || b2 < 0) {
+			return -1;
+		}
+		int b3 = valueOf(d3);
+		int b4 = valueOf(d4);
+		if (b3 >= 0 && b4 >= 0) {
+			dst[dOff] = (byte) (b1 << 2 | b2 >> 4);
+			dst[dOff + 1] = (byte) ((b2 & 0xf) << 4 | b3 >> 2);
+			dst[dOff + 2] = (byte) (b3 << 6 | b4);
+			return 3;
+		}
+		if (b3 >= 0 && isPad(d4)) {
+			if ((b3 & 0x3) != 0) {
+				return -1;
+			}
+			dst[dOff] = (byte) (b1 << 2 | b2 >> 4);
+			dst[dOff + 1] = (byte) ((b2 & 0xf) << 4 | b3 >> 2);
+			return 2;
+		}
+		if (isPad(d3) && isPad(d4)) {
+			if ((b2 & 0xf) != 0) {
+				return -1;
+			}
+			dst[dOff] = (byte) (b1 << 2 | b2 >> 4);
+			return 1;
+		}
+		return -1;
+	}
+
+	/**
+	 * 返回Base64字符对应的6位值，非Base64字符返回-1。
+	 */
+	static int valueOf(byte octect) {
+		return octect < 0 ? -1 : base64Alphabet[octect];
 	}
 
 	/**
@@ -83,10 +167,7 @@ public final class Base64 {
 	 * @return
 	 */
 	public static boolean isBase64(String isValidString) {
-		if (isValidString == null) {
-			return false;
-		}
-		return (isArrayByteBase64(isValidString.getBytes()));
+		return isBase64((CharSequence) isValidString);
 	}
 
 	/**
@@ -102,12 +183,15 @@ public final class Base64 {
 
 	/**
 	 * 删除空白符。 remove WhiteSpace from MIME containing encoded Base64 data. e.g. "
+	 * <p>
+	 * 解码方法已在解码过程中直接跳过空白符，无需先调用本方法。
+	 * </p>
 	 * 
 	 * @param data
 	 *            待处理的已编码数据
 	 * @return
 	 */
-	public static synchronized byte[] removeWhiteSpace(byte[] data) {
+	public static byte[] removeWhiteSpace(byte[] data) {
 		if (data == null) {
 			return null;
 		}
@@ -147,8 +231,8 @@ public final class Base64 {
 	 *            待验证的字节数组
 	 * @return
 	 */
-	public static synchronized boolean isArrayByteBase64(byte[] arrayOctect) {
-		return (getDecodedDataLength(arrayOctect) >= 0);
+	public static boolean isArrayByteBase64(byte[] arrayOctect) {
+		return arrayOctect != null && validate(arrayOctect, 0, arrayOctect.length) >= 0;
 	}
 
 	/**
@@ -158,197 +242,619 @@ public final class Base64 {
 	 *            Array containing binaryData
 	 * @return Encoded Base64 array
 	 */
-	public static synchronized byte[] encode(byte[] binaryData) {
+	public static byte[] encode(byte[] binaryData) {
 		if (binaryData == null) {
 			return null;
 		}
+		byte[] encodedData = new byte[getEncodedLength(binaryData.length)];
+		encode(binaryData, 0, binaryData.length, encodedData, 0);
+		return encodedData;
+	}
 
-		int lengthDataBits = binaryData.length * EIGHTBIT;
-		int fewerThan24bits = lengthDataBits % TWENTYFOURBITGROUP;
-		int numberTriplets = lengthDataBits / TWENTYFOURBITGROUP;
-		byte encodedData[] = null;
+	/**
+	 * 返回len个字节编码后的准确长度(含PAD)。
+	 * 
+	 * @param len
+	 *            原始数据长度
+	 * @return 编码后的字节数
+	 */
+	public static int getEncodedLength(int len) {
+		if (len < 0 || len > Integer.MAX_VALUE / 4 * 3) {
+			throw new IllegalArgumentException("Illegal length: " + len);
+		}
+		return (len + 2) / 3 * 4;
+	}
 
-		if (fewerThan24bits != 0) // data not divisible by 24 bit
-		{
-			encodedData = new byte[(numberTriplets + 1) * 4];
-		} else
-		// 16 or 8 bit
-		{
-			encodedData = new byte[numberTriplets * 4];
+	/**
+	 * 将src中指定范围的数据编码后写入调用方提供的dst，不分配任何对象。
+	 * 
+	 * @param src
+	 *            原始数据
+	 * @param off
+	 *            src起始位置
+	 * @param len
+	 *            待编码字节数
+	 * @param dst
+	 *            接收编码结果的数组，剩余空间不得小于{@link #getEncodedLength(int)}
+	 * @param dstOff
+	 *            dst起始位置
+	 * @return 写入dst的字节数
+	 * @throws IndexOutOfBoundsException
+	 *             范围越界或dst空间不足
+	 * @see FastBase64#STANDARD
+	 */
+	public static int encode(byte[] src, int off, int len, byte[] dst, int dstOff) {
+		return FastBase64.STANDARD.encode(src, off, len, dst, dstOff);
+	}
 
+	/**
+	 * 将src中指定范围的数据编码后以字符形式写入dst，供直接写字符缓冲区的场景使用。
+	 * 
+	 * @return 写入dst的字符数
+	 * @see #encode(byte[], int, int, byte[], int)
+	 */
+	public static int encode(byte[] src, int off, int len, char[] dst, int dstOff) {
+		checkRange(src.length, off, len);
+		int outLen = getEncodedLength(len);
+		checkRange(dst.length, dstOff, outLen);
+		int end = off + len / 3 * 3;
+		int o = dstOff;
+		while (off < end) {
+			int bits = (src[off++] & 0xff) << 16 | (src[off++] & 0xff) << 8 | (src[off++] & 0xff);
+			dst[o++] = (char) lookUpBase64Alphabet[bits >>> 18];
+			dst[o++] = (char) lookUpBase64Alphabet[(bits >>> 12) & 0x3f];
+			dst[o++] = (char) lookUpBase64Alphabet[(bits >>> 6) & 0x3f];
+			dst[o++] = (char) lookUpBase64Alphabet[bits & 0x3f];
+		}
+		int rest = len % 3;
+		if (rest > 0) {
+			int b1 = src[off] & 0xff;
+			int b2 = rest > 1 ? src[off + 1] & 0xff : 0;
+			dst[o++] = (char) lookUpBase64Alphabet[b1 >>> 2];
+			dst[o++] = (char) lookUpBase64Alphabet[(b1 & 0x03) << 4 | b2 >>> 4];
+			dst[o++] = rest > 1 ? (char) lookUpBase64Alphabet[(b2 & 0x0f) << 2] : (char) PAD;
+			dst[o] = (char) PAD;
 		}
-		byte k = 0, l = 0, b1 = 0, b2 = 0, b3 = 0;
+		return outLen;
+	}
 
-		int encodedIndex = 0;
-		int dataIndex = 0;
-		int i = 0;
-		if (fDebug) {
-			System.out.println("number of triplets = " + numberTriplets);
+	/**
+	 * 将src剩余的数据编码后写入dst，支持堆内及直接缓冲区。成功后两者的position均前移。
+	 * 
+	 * @return 写入dst的字节数
+	 * @throws BufferOverflowException
+	 *             dst剩余空间不足
+	 */
+	public static int encode(ByteBuffer src, ByteBuffer dst) {
+		int len = src.remaining();
+		int outLen = getEncodedLength(len);
+		if (dst.remaining() < outLen) {
+			throw new BufferOverflowException();
+		}
+		if (src.hasArray() && dst.hasArray()) {
+			encode(src.array(), src.arrayOffset() + src.position(), len, dst.array(),
+					dst.arrayOffset() + dst.position());
+			src.position(src.position() + len);
+			dst.position(dst.position() + outLen);
+			return outLen;
+		}
+		for (; len >= 3; len -= 3) {
+			int bits = (src.get() & 0xff) << 16 | (src.get() & 0xff) << 8 | (src.get() & 0xff);
+			dst.put(lookUpBase64Alphabet[bits >>> 18]);
+			dst.put(lookUpBase64Alphabet[(bits >>> 12) & 0x3f]);
+			dst.put(lookUpBase64Alphabet[(bits >>> 6) & 0x3f]);
+			dst.put(lookUpBase64Alphabet[bits & 0x3f]);
+		}
+		if (len > 0) {
+			int b1 = src.get() & 0xff;
+			int b2 = len > 1 ? src.get() & 0xff : 0;
+			dst.put(lookUpBase64Alphabet[b1 >>> 2]);
+			dst.put(lookUpBase64Alphabet[(b1 & 0x03) << 4 | b2 >>> 4]);
+			dst.put(len > 1 ? lookUpBase64Alphabet[(b2 & 0x0f) << 2] : PAD);
+			dst.put(PAD);
 		}
-		for (i = 0; i < numberTriplets; i++) {
+		return outLen;
+	}
 
-			dataIndex = i * 3;
-			b1 = binaryData[dataIndex];
-			b2 = binaryData[dataIndex + 1];
-			b3 = binaryData[dataIndex + 2];
+	/**
+	 * Decodes Base64 data into octets
+	 * 
+	 * @param base64Data
+	 *            Byte array containing Base64 data
+	 * @return Array containind decoded data.
+	 */
+	public static byte[] decode(byte[] base64Data) {
+		if (base64Data == null) {
+			return null;
+		}
+		int decodedLength = getDecodedLength(base64Data, 0, base64Data.length);
+		if (decodedLength < 0) {
+			return null;
+		}
+		byte[] decodedData = new byte[decodedLength];
+		if (decode(base64Data, 0, base64Data.length, decodedData, 0) < 0) {
+			return null;
+		}
+		return decodedData;
+	}
 
-			if (fDebug) {
-				System.out.println("b1= " + b1 + ", b2= " + b2 + ", b3= " + b3);
+	/**
+	 * 返回指定范围的Base64数据解码后的准确长度，忽略其中的空白符。只校验长度及PAD，
+	 * 不校验字符是否合法。
+	 * 
+	 * @return 解码后的字节数，有效字符数不是4的整数倍时返回-1
+	 */
+	public static int getDecodedLength(byte[] src, int off, int len) {
+		checkRange(src.length, off, len);
+		int count = 0;
+		int pads = 0;
+		for (int i = off, end = off + len; i < end; i++) {
+			byte c = src[i];
+			if (isWhiteSpace(c)) {
+				continue;
 			}
+			count++;
+			pads = isPad(c) ? pads + 1 : 0;
+		}
+		if (count % FOURBYTE != 0) {
+			return -1;
+		}
+		return count / FOURBYTE * 3 - Math.min(pads, 2);
+	}
 
-			l = (byte) (b2 & 0x0f);
-			k = (byte) (b1 & 0x03);
+	/**
+	 * 返回src剩余的Base64数据解码后的准确长度，不改变src的position。
+	 * 
+	 * @see #getDecodedLength(byte[], int, int)
+	 */
+	public static int getDecodedLength(ByteBuffer src) {
+		if (src.hasArray()) {
+			return getDecodedLength(src.array(), src.arrayOffset() + src.position(), src.remaining());
+		}
+		int count = 0;
+		int pads = 0;
+		for (int i = src.position(), end = src.limit(); i < end; i++) {
+			byte c = src.get(i);
+			if (isWhiteSpace(c)) {
+				continue;
+			}
+			count++;
+			pads = isPad(c) ? pads + 1 : 0;
+		}
+		if (count % FOURBYTE != 0) {
+			return -1;
+		}
+		return count / FOURBYTE * 3 - Math.min(pads, 2);
+	}
+
+	/**
+	 * 将src中指定范围的Base64数据解码后写入调用方提供的dst，跳过空白符，不分配任何对象。
+	 * 
+	 * @param src
+	 *            Base64数据
+	 * @param off
+	 *            src起始位置
+	 * @param len
+	 *            待解码字节数
+	 * @param dst
+	 *            接收解码结果的数组，剩余空间不得小于{@link #getDecodedLength(byte[], int, int)}
+	 * @param dstOff
+	 *            dst起始位置
+	 * @return 写入dst的字节数；数据非法时返回-1，此时dst中可能已写入部分数据
+	 * @throws IndexOutOfBoundsException
+	 *             范围越界或dst空间不足
+	 */
+	public static int decode(byte[] src, int off, int len, byte[] dst, int dstOff) {
+		checkRange(src.length, off, len);
+		if (dstOff < 0 || dst.length - dstOff < len / FOURBYTE * 3) {
+			int decodedLength = getDecodedLength(src, off, len);
+			if (decodedLength < 0) {
+				return -1;
+			}
+			checkRange(dst.length, dstOff, decodedLength);
+		}
+		int i = off;
+		int end = off + len;
+		int o = dstOff;
+		int q = 0;
+		byte c1 = 0, c2 = 0, c3 = 0;
+		while (i < end) {
+			if (q == 0 && end - i >= FOURBYTE) {
+				int b1 = valueOf(src[i]);
+				int b2 = valueOf(src[i + 1]);
+				int b3 = valueOf(src[i + 2]);
+				int b4 = valueOf(src[i + 3]);
+				if ((b1 | b2 | b3 | b4) >= 0) {
+					dst[o++] = (byte) (b1 << 2 | b2 >> 4);
+					dst[o++] = (byte) ((b2 & 0xf) << 4 | b3 >> 2);
+					dst[o++] = (byte) (b3 << 6 | b4);
+					i += FOURBYTE;
+					continue;
+				}
+			}
+			byte c = src[i++];
+			if (isWhiteSpace(c)) {
+				continue;
+			}
+			if (q == 0) {
+				c1 = c;
+			} else if (q == 1) {
+				c2 = c;
+			} else if (q == 2) {
+				c3 = c;
+			} else {
+				int r = decodeQuantum(c1, c2, c3, c, dst, o);
+				if (r < 0) {
+					return -1;
+				}
+				o += r;
+				if (r < 3) {
+					// 有PAD的分组必须是最后一组
+					for (; i < end; i++) {
+						if (!isWhiteSpace(src[i])) {
+							return -1;
+						}
+					}
+				}
+				q = 0;
+				continue;
+			}
+			q++;
+		}
+		return q == 0 ? o - dstOff : -1;
+	}
 
-			encodedIndex = i * 4;
-			byte val1 = ((b1 & SIGN) == 0) ? (byte) (b1 >> 2) : (byte) ((b1) >> 2 ^ 0xc0);
+	/**
+	 * 将src剩余的Base64数据解码后写入dst，支持堆内及直接缓冲区。成功后两者的position均前移，
+	 * 数据非法时position不变。
+	 * 
+	 * @return 写入dst的字节数，数据非法时返回-1
+	 * @throws BufferOverflowException
+	 *             dst剩余空间不足
+	 */
+	public static int decode(ByteBuffer src, ByteBuffer dst) {
+		int decodedLength = getDecodedLength(src);
+		if (decodedLength < 0) {
+			return -1;
+		}
+		if (dst.remaining() < decodedLength) {
+			throw new BufferOverflowException();
+		}
+		if (src.hasArray() && dst.hasArray()) {
+			int n = decode(src.array(), src.arrayOffset() + src.position(), src.remaining(), dst.array(),
+					dst.arrayOffset() + dst.position());
+			if (n < 0) {
+				return -1;
+			}
+			src.position(src.limit());
+			dst.position(dst.position() + n);
+			return n;
+		}
+		int o = dst.position();
+		int q = 0;
+		byte c1 = 0, c2 = 0, c3 = 0;
+		boolean finished = false;
+		for (int i = src.position(), end = src.limit(); i < end; i++) {
+			byte c = src.get(i);
+			if (isWhiteSpace(c)) {
+				continue;
+			}
+			if (finished) {
+				return -1;
+			}
+			if (q == 0) {
+				c1 = c;
+			} else if (q == 1) {
+				c2 = c;
+			} else if (q == 2) {
+				c3 = c;
+			} else {
+				int b1 = valueOf(c1), b2 = valueOf(c2), b3 = valueOf(c3), b4 = valueOf(c);
+				if ((b1 | b2 | b3 | b4) >= 0) {
+					dst.put(o++, (byte) (b1 << 2 | b2 >> 4));
+					dst.put(o++, (byte) ((b2 & 0xf) << 4 | b3 >> 2));
+					dst.put(o++, (byte) (b3 << 6 | b4));
+				} else if (b1 >= 0 && b2 >= 0 && b3 >= 0 && isPad(c) && (b3 & 0x3) == 0) {
+					dst.put(o++, (byte) (b1 << 2 | b2 >> 4));
+					dst.put(o++, (byte) ((b2 & 0xf) << 4 | b3 >> 2));
+					finished = true;
+				} else if (b1 >= 0 && b2 >= 0 && isPad(c3) && isPad(c) && (b2 & 0xf) == 0) {
+					dst.put(o++, (byte) (b1 << 2 | b2 >> 4));
+					finished = true;
+				} else {
+					return -1;
+				}
+				q = 0;
+				continue;
+			}
+			q++;
+		}
+		if (q != 0) {
+			return -1;
+		}
+		src.position(src.limit());
+		int n = o - dst.position();
+		dst.position(o);
+		return n;
+	}
 
-			byte val2 = ((b2 & SIGN) == 0) ? (byte) (b2 >> 4) : (byte) ((b2) >> 4 ^ 0xf0);
-			byte val3 = ((b3 & SIGN) == 0) ? (byte) (b3 >> 6) : (byte) ((b3) >> 6 ^ 0xfc);
+	/**
+	 * 校验指定范围的Base64数据，规则与{@link #decode(byte[])}相同(允许空白符)，不复制数据也不分配任何对象。
+	 * 
+	 * @param src
+	 *            待校验的数据
+	 * @param off
+	 *            起始位置
+	 * @param len
+	 *            长度
+	 * @return 数据合法时返回解码后的字节数；否则返回第一个非法字符位置的按位取反值(<code>~index</code>)，
+	 *         数据不完整时该位置为<code>off + len</code>
+	 */
+	public static int validate(byte[] src, int off, int len) {
+		checkRange(src.length, off, len);
+		int state = 0;
+		int dataChars = 0;
+		for (int i = off, end = off + len; i < end; i++) {
+			int c = src[i] & 0xff;
+			if (isSpace(c)) {
+				continue;
+			}
+			if ((state = step(state, c)) < 0) {
+				return ~i;
+			}
+			if (c != PAD) {
+				dataChars++;
+			}
+		}
+		return isComplete(state) ? dataChars * 3 / FOURBYTE : ~(off + len);
+	}
 
-			encodedData[encodedIndex] = lookUpBase64Alphabet[val1];
-			if (fDebug) {
-				System.out.println("val2 = " + val2);
-				System.out.println("k4 = " + (k << 4));
-				System.out.println("vak = " + (val2 | (k << 4)));
+	/**
+	 * 校验字符序列中指定范围的Base64数据，直接读取字符，不转换为字节数组。
+	 * 
+	 * @see #validate(byte[], int, int)
+	 */
+	public static int validate(CharSequence src, int off, int len) {
+		checkRange(src.length(), off, len);
+		int state = 0;
+		int dataChars = 0;
+		for (int i = off, end = off + len; i < end; i++) {
+			int c = src.charAt(i);
+			if (isSpace(c)) {
+				continue;
 			}
+			if ((state = step(state, c)) < 0) {
+				return ~i;
+			}
+			if (c != PAD) {
+				dataChars++;
+			}
+		}
+		return isComplete(state) ? dataChars * 3 / FOURBYTE : ~(off + len);
+	}
 
-			encodedData[encodedIndex + 1] = lookUpBase64Alphabet[val2 | (k << 4)];
-			encodedData[encodedIndex + 2] = lookUpBase64Alphabet[(l << 2) | val3];
-			encodedData[encodedIndex + 3] = lookUpBase64Alphabet[b3 & 0x3f];
+	/**
+	 * 校验缓冲区剩余的Base64数据，不改变position。返回的非法位置是缓冲区中的绝对位置。
+	 * 
+	 * @see #validate(byte[], int, int)
+	 */
+	public static int validate(ByteBuffer src) {
+		int state = 0;
+		int dataChars = 0;
+		for (int i = src.position(), end = src.limit(); i < end; i++) {
+			int c = src.get(i) & 0xff;
+			if (isSpace(c)) {
+				continue;
+			}
+			if ((state = step(state, c)) < 0) {
+				return ~i;
+			}
+			if (c != PAD) {
+				dataChars++;
+			}
 		}
+		return isComplete(state) ? dataChars * 3 / FOURBYTE : ~src.limit();
+	}
 
-		// form integral number of 6-bit groups
-		dataIndex = i * 3;
-		encodedIndex = i * 4;
-		if (fewerThan24bits == EIGHTBIT) {
-			b1 = binaryData[dataIndex];
-			k = (byte) (b1 & 0x03);
-			if (fDebug) {
-				System.out.println("b1=" + b1);
-				System.out.println("b1<<2 = " + (b1 >> 2));
+	/**
+	 * 判断字符序列是否为合法的Base64数据。
+	 * 
+	 * @see #validate(CharSequence, int, int)
+	 */
+	public static boolean isBase64(CharSequence isValidString) {
+		return isValidString != null && validate(isValidString, 0, isValidString.length()) >= 0;
+	}
+
+	/**
+	 * 校验状态机的一步。状态的低2位为当前分组内已读字符数，第2~3位为阶段(0:数据，1:等待第二个PAD，
+	 * 2:已结束)，其余高位为上一个字符的6位值，用于校验PAD前多余的位必须为0。
+	 * 
+	 * @return 新状态，字符非法时返回-1
+	 */
+	private static int step(int state, int c) {
+		int q = state & 3;
+		int phase = (state >> 2) & 3;
+		int prev = state >>> 4;
+		if (phase == 2) {
+			return -1;
+		}
+		if (c == PAD) {
+			if (phase == 1) {
+				return 2 << 2;
 			}
-			byte val1 = ((b1 & SIGN) == 0) ? (byte) (b1 >> 2) : (byte) ((b1) >> 2 ^ 0xc0);
-			encodedData[encodedIndex] = lookUpBase64Alphabet[val1];
-			encodedData[encodedIndex + 1] = lookUpBase64Alphabet[k << 4];
-			encodedData[encodedIndex + 2] = PAD;
-			encodedData[encodedIndex + 3] = PAD;
-		} else if (fewerThan24bits == SIXTEENBIT) {
+			if (q == 2) {
+				return (prev & 0xf) != 0 ? -1 : 1 << 2 | 3;
+			}
+			if (q == 3) {
+				return (prev & 0x3) != 0 ? -1 : 2 << 2;
+			}
+			return -1;
+		}
+		if (phase == 1 || c >= 128 || base64Alphabet[c] < 0) {
+			return -1;
+		}
+		return (q + 1) & 3 | base64Alphabet[c] << 4;
+	}
 
-			b1 = binaryData[dataIndex];
-			b2 = binaryData[dataIndex + 1];
-			l = (byte) (b2 & 0x0f);
-			k = (byte) (b1 & 0x03);
+	private static boolean isComplete(int state) {
+		return state >> 2 == 2 || (state & 0xf) == 0;
+	}
 
-			byte val1 = ((b1 & SIGN) == 0) ? (byte) (b1 >> 2) : (byte) ((b1) >> 2 ^ 0xc0);
-			byte val2 = ((b2 & SIGN) == 0) ? (byte) (b2 >> 4) : (byte) ((b2) >> 4 ^ 0xf0);
+	private static boolean isSpace(int c) {
+		return c == 0x20 || c == 0xd || c == 0xa || c == 0x9;
+	}
+
+	/**
+	 * 并行编解码时每个子任务处理的默认最小输入字节数
+	 */
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 20;
+
+	/**
+	 * 使用公共ForkJoinPool并行编码，适用于很大的字节数组。
+	 * 
+	 * @see #encodeParallel(byte[], int)
+	 */
+	public static byte[] encodeParallel(byte[] binaryData) {
+		return encodeParallel(binaryData, DEFAULT_PARALLEL_THRESHOLD);
+	}
 
-			encodedData[encodedIndex] = lookUpBase64Alphabet[val1];
-			encodedData[encodedIndex + 1] = lookUpBase64Alphabet[val2 | (k << 4)];
-			encodedData[encodedIndex + 2] = lookUpBase64Alphabet[l << 2];
-			encodedData[encodedIndex + 3] = PAD;
+	/**
+	 * 使用公共ForkJoinPool并行编码。输入按3字节边界切分，各子任务直接写入同一个预先分配的
+	 * 结果数组中对应的4字节边界位置，结果与{@link #encode(byte[])}完全一致。
+	 * 
+	 * @param binaryData
+	 *            原始数据
+	 * @param threshold
+	 *            每个子任务处理的最小输入字节数，数据量不超过该值时直接在当前线程编码
+	 * @return 编码结果，传入null时返回null
+	 */
+	public static byte[] encodeParallel(byte[] binaryData, int threshold) {
+		if (binaryData == null) {
+			return null;
+		}
+		if (threshold <= 0) {
+			throw new IllegalArgumentException("threshold must be positive: " + threshold);
+		}
+		byte[] encodedData = new byte[getEncodedLength(binaryData.length)];
+		if (binaryData.length <= threshold) {
+			encode(binaryData, 0, binaryData.length, encodedData, 0);
+		} else {
+			ForkJoinPool.commonPool().invoke(
+					new EncodeTask(binaryData, encodedData, 0, binaryData.length, Math.max(3, threshold / 3 * 3)));
 		}
 		return encodedData;
 	}
 
 	/**
-	 * Decodes Base64 data into octets
+	 * 使用公共ForkJoinPool并行解码，适用于很大的字节数组。
 	 * 
-	 * @param base64Data
-	 *            Byte array containing Base64 data
-	 * @return Array containind decoded data.
+	 * @see #decodeParallel(byte[], int)
 	 */
-	public static synchronized byte[] decode(byte[] base64Data) {
+	public static byte[] decodeParallel(byte[] base64Data) {
+		return decodeParallel(base64Data, DEFAULT_PARALLEL_THRESHOLD);
+	}
 
+	/**
+	 * 使用公共ForkJoinPool并行解码。输入按4字节边界切分，各子任务直接写入同一个预先分配的
+	 * 结果数组中对应的3字节边界位置。数据中含有空白符时无法按固定边界切分，退回
+	 * {@link #decode(byte[])}单线程处理，因此结果与{@link #decode(byte[])}完全一致。
+	 * 
+	 * @param base64Data
+	 *            Base64数据
+	 * @param threshold
+	 *            每个子任务处理的最小输入字节数，数据量不超过该值时直接在当前线程解码
+	 * @return 解码结果，传入null或数据非法时返回null
+	 */
+	public static byte[] decodeParallel(byte[] base64Data, int threshold) {
 		if (base64Data == null) {
 			return null;
 		}
-
-		byte[] normalizedBase64Data = removeWhiteSpace(base64Data);
-
-		if (normalizedBase64Data.length % FOURBYTE != 0) {
-			return null; // should be divisible by four
+		if (threshold <= 0) {
+			throw new IllegalArgumentException("threshold must be positive: " + threshold);
 		}
-
-		int numberQuadruple = (normalizedBase64Data.length / FOURBYTE);
-
-		if (numberQuadruple == 0) {
-			return new byte[0];
+		int len = base64Data.length;
+		if (len <= threshold || len % FOURBYTE != 0) {
+			return decode(base64Data);
 		}
+		int pads = isPad(base64Data[len - 1]) ? (isPad(base64Data[len - 2]) ? 2 : 1) : 0;
+		byte[] decodedData = new byte[len / FOURBYTE * 3 - pads];
+		DecodeTask task = new DecodeTask(base64Data, decodedData, 0, len, Math.max(FOURBYTE, threshold / FOURBYTE
+				* FOURBYTE));
+		if (!ForkJoinPool.commonPool().invoke(task).booleanValue()) {
+			return decode(base64Data);
+		}
+		return decodedData;
+	}
 
-		byte decodedData[] = null;
-		byte b1 = 0, b2 = 0, b3 = 0, b4 = 0;
-		byte d1 = 0, d2 = 0, d3 = 0, d4 = 0;
-
-		// Throw away anything not in normalizedBase64Data
-		// Adjust size
-		int i = 0;
-		int encodedIndex = 0;
-		int dataIndex = 0;
-		decodedData = new byte[(numberQuadruple) * 3];
-
-		for (; i < numberQuadruple - 1; i++) {
+	/**
+	 * 并行编码子任务，[from, to)的起点总是3的整数倍。
+	 */
+	private static final class EncodeTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final byte[] src;
+		private final byte[] dst;
+		private final int from;
+		private final int to;
+		private final int threshold;
+
+		EncodeTask(byte[] src, byte[] dst, int from, int to, int threshold) {
+			this.src = src;
+			this.dst = dst;
+			this.from = from;
+			this.to = to;
+			this.threshold = threshold;
+		}
 
-			if (!isData((d1 = normalizedBase64Data[dataIndex++])) || !isData((d2 = normalizedBase64Data[dataIndex++]))
-					|| !isData((d3 = normalizedBase64Data[dataIndex++]))
-					|| !isData((d4 = normalizedBase64Data[dataIndex++]))) {
-				return null; // if found "no data" just return null
+		protected void compute() {
+			int len = to - from;
+			if (len <= threshold) {
+				encode(src, from, len, dst, from / 3 * 4);
+				return;
 			}
-
-			b1 = base64Alphabet[d1];
-			b2 = base64Alphabet[d2];
-			b3 = base64Alphabet[d3];
-			b4 = base64Alphabet[d4];
-
-			decodedData[encodedIndex++] = (byte) (b1 << 2 | b2 >> 4);
-			decodedData[encodedIndex++] = (byte) (((b2 & 0xf) << 4) | ((b3 >> 2) & 0xf));
-			decodedData[encodedIndex++] = (byte) (b3 << 6 | b4);
+			int mid = from + Math.max(3, len / 6 * 3);
+			invokeAll(new EncodeTask(src, dst, from, mid, threshold), new EncodeTask(src, dst, mid, to, threshold));
 		}
+	}
 
-		if (!isData((d1 = normalizedBase64Data[dataIndex++])) || !isData((d2 = normalizedBase64Data[dataIndex++]))) {
-			return null; // if found "no data" just return null
+	/**
+	 * 并行解码子任务，[from, to)的起点总是4的整数倍。数据中出现空白符或非法字符时返回false。
+	 */
+	private static final class DecodeTask extends RecursiveTask<Boolean> {
+		private static final long serialVersionUID = 1L;
+		private final byte[] src;
+		private final byte[] dst;
+		private final int from;
+		private final int to;
+		private final int threshold;
+
+		DecodeTask(byte[] src, byte[] dst, int from, int to, int threshold) {
+			this.src = src;
+			this.dst = dst;
+			this.from = from;
+			this.to = to;
+			this.threshold = threshold;
 		}
 
-		b1 = base64Alphabet[d1];
-		b2 = base64Alphabet[d2];
-
-		d3 = normalizedBase64Data[dataIndex++];
-		d4 = normalizedBase64Data[dataIndex++];
-		if (!isData((d3)) || !isData((d4))) { // Check if they are PAD
-												// characters
-			if (isPad(d3) && isPad(d4)) { // Two PAD e.g. 3c[Pad][Pad]
-				if ((b2 & 0xf) != 0) // last 4 bits should be zero
-				{
-					return null;
-				}
-				byte[] tmp = new byte[i * 3 + 1];
-				System.arraycopy(decodedData, 0, tmp, 0, i * 3);
-				tmp[encodedIndex] = (byte) (b1 << 2 | b2 >> 4);
-				return tmp;
-			} else if (!isPad(d3) && isPad(d4)) { // One PAD e.g. 3cQ[Pad]
-				b3 = base64Alphabet[d3];
-				if ((b3 & 0x3) != 0) // last 2 bits should be zero
-				{
-					return null;
-				}
-				byte[] tmp = new byte[i * 3 + 2];
-				System.arraycopy(decodedData, 0, tmp, 0, i * 3);
-				tmp[encodedIndex++] = (byte) (b1 << 2 | b2 >> 4);
-				tmp[encodedIndex] = (byte) (((b2 & 0xf) << 4) | ((b3 >> 2) & 0xf));
-				return tmp;
-			} else {
-				return null; // an error like "3c[Pad]r", "3cdX", "3cXd", "3cXX"
-								// where X is non data
+		protected Boolean compute() {
+			int len = to - from;
+			if (len <= threshold) {
+				// PAD只能出现在最后一个子任务中，其余子任务必须解码出完整的3字节分组
+				int dstOff = from / FOURBYTE * 3;
+				int expected = to == src.length ? dst.length - dstOff : len / FOURBYTE * 3;
+				return Boolean.valueOf(FastBase64.STANDARD.decode(src, from, len, dst, dstOff) == expected);
 			}
-		} else { // No PAD e.g 3cQl
-			b3 = base64Alphabet[d3];
-			b4 = base64Alphabet[d4];
-			decodedData[encodedIndex++] = (byte) (b1 << 2 | b2 >> 4);
-			decodedData[encodedIndex++] = (byte) (((b2 & 0xf) << 4) | ((b3 >> 2) & 0xf));
-			decodedData[encodedIndex++] = (byte) (b3 << 6 | b4);
-
+			int mid = from + Math.max(FOURBYTE, len / (FOURBYTE * 2) * FOURBYTE);
+			DecodeTask right = new DecodeTask(src, dst, mid, to, threshold);
+			right.fork();
+			boolean ok = new DecodeTask(src, dst, from, mid, threshold).compute().booleanValue();
+			return Boolean.valueOf(right.join().booleanValue() && ok);
 		}
+	}
 
-		return decodedData;
+	private static void checkRange(int length, int off, int len) {
+		if (off < 0 || len < 0 || off > length - len) {
+			throw new IndexOutOfBoundsException("off=" + off + ", len=" + len + ", length=" + length);
+		}
 	}
 
 	/**
@@ -358,27 +864,12 @@ public final class Base64 {
 	 *            加密的字节数组
 	 * @return a -1 would be return if not
 	 */
-	static public synchronized int getDecodedDataLength(byte[] base64Data) {
-
+	static public int getDecodedDataLength(byte[] base64Data) {
 		if (base64Data == null) {
 			return -1;
 		}
-
-		if (base64Data.length == 0) {
-			return 0;
-		}
-
-		// byte[] normalizedBase64Data = removeWhiteSpace( base64Data );//Remove
-		// any whiteSpace
-		byte[] decodedData = null;
-
-		if ((decodedData = decode(base64Data)) == null) // decode could return a
-														// null byte array
-		{
-			return -1;
-		}
-
-		return decodedData.length;
+		int n = validate(base64Data, 0, base64Data.length);
+		return n < 0 ? -1 : n;
 	}
 
 	/**
@@ -388,18 +879,8 @@ public final class Base64 {
 	 *            编码前的String
 	 * @return 编码后的 String
 	 */
-	public static synchronized String getEncodeString(String string) {
-		// byte[] bb = encode(string.getBytes());
-		byte[] oldby = string.getBytes();
-		byte[] newby = encode(oldby);
-		String newStr = new String(newby);
-		oldby = null;
-		newby = null;
-		return newStr;
-		/*
-		 * String s = ""; for(int i=0;i <bb.length&&bb[i]!=0;i++){ s +=
-		 * (char)bb[i]; } return s;
-		 */
+	public static String getEncodeString(String string) {
+		return getEncodeString(string.getBytes());
 	}
 
 	/**
@@ -409,17 +890,10 @@ public final class Base64 {
 	 *            待编码的字节数组
 	 * @return 编码后的String
 	 */
-	public static synchronized String getEncodeString(byte[] oldby) {
-		// byte[] bb = encode(string.getBytes());
-		byte[] newby = encode(oldby);
-		String newStr = new String(newby);
-		oldby = null;
-		newby = null;
-		return newStr;
-		/*
-		 * String s = ""; for(int i=0;i <bb.length&&bb[i]!=0;i++){ s +=
-		 * (char)bb[i]; } return s;
-		 */
+	public static String getEncodeString(byte[] oldby) {
+		char[] newChars = new char[getEncodedLength(oldby.length)];
+		encode(oldby, 0, oldby.length, newChars, 0);
+		return new String(newChars);
 	}
 
 	/**
@@ -429,7 +903,7 @@ public final class Base64 {
 	 *            编码后的String
 	 * @return 解码后的String
 	 */
-	public static synchronized String getDecodeString(String string) {
+	public static String getDecodeString(String string) {
 		byte[] oldby = string.getBytes();
 		byte[] newby = decode(oldby);
 		String newStr = new String(newby);
@@ -450,7 +924,7 @@ public final class Base64 {
 	 *            已经编码的String
 	 * @return 解码后的byte数组
 	 */
-	public static synchronized byte[] getDecodeBytes(String string) {
+	public static byte[] getDecodeBytes(String string) {
 		byte[] oldby = string.getBytes();
 		byte[] newby = decode(oldby);
 		oldby = null;
@@ -479,24 +953,91 @@ public final class Base64 {
 	 */
 
 	/**
-	 * zip方式压缩并Base64加密指定字符串
+	 * zip方式压缩并Base64加密指定字符串，使用平台默认字符集。
 	 * 
 	 * @param str
 	 *            待处理字符串
 	 * @return 处理后的字符串。传入null产生空指针异常。
 	 * @throws java.io.IOException
+	 * @see #gZip(String, Charset)
 	 */
 	public String gZip(String str) throws java.io.IOException {
-		String retStr = "";
+		return gZip(str, Charset.defaultCharset());
+	}
 
-		ByteArrayOutputStream bOs = new ByteArrayOutputStream();
-		bOs.write(compress(str.getBytes()));
+	/**
+	 * Base64解密并解压缩指定字符串，使用平台默认字符集。
+	 * 
+	 * @param str
+	 *            经过压缩的字符串
+	 * @return 处理后的原始字符串。传入null产生空指针异常。
+	 * @throws java.io.IOException
+	 * @see #gUnZip(String, Charset)
+	 */
+	public String gUnZip(String str) throws java.io.IOException {
+		return gUnZip(str, Charset.defaultCharset());
+	}
+
+	/**
+	 * zip方式压缩并Base64加密指定字符串。
+	 * 
+	 * @param str
+	 *            待处理字符串
+	 * @param charset
+	 *            字符串编码
+	 * @return 处理后的字符串
+	 * @throws java.io.IOException
+	 * @see #gZip(CharSequence, Charset, Appendable)
+	 */
+	public static String gZip(String str, Charset charset) throws java.io.IOException {
+		StringBuilder sb = new StringBuilder();
+		gZip(str, charset, sb);
+		return sb.toString();
+	}
+
+	/**
+	 * 将字符串一次性经过 字符编码→GZIP压缩→Base64编码 后追加到out，中间不生成完整的字节数组，
+	 * 内存占用只有各环节的固定缓冲区。
+	 * 
+	 * @param str
+	 *            待处理字符串
+	 * @param charset
+	 *            字符串编码
+	 * @param out
+	 *            接收Base64字符的目标，如StringBuilder或Writer
+	 * @throws java.io.IOException
+	 */
+	public static void gZip(CharSequence str, Charset charset, Appendable out) throws java.io.IOException {
+		Writer writer = gZipWriter(out, charset);
+		try {
+			for (int i = 0, len = str.length(); i < len; i += 4096) {
+				writer.append(str, i, Math.min(len, i + 4096));
+			}
+		} finally {
+			writer.close();
+		}
+	}
 
-		// sun.misc.BASE64Encoder base64Encoder = new BASE64Encoder();
-		// retStr = base64Encoder.encode(bOs.toByteArray());
-		retStr = new String(Base64.encode(bOs.toByteArray()));
+	/**
+	 * 创建压缩编码Writer，写入的字符经过 字符编码→GZIP压缩→Base64编码 后写入out。
+	 * 必须关闭返回的Writer才能输出完整数据，关闭时同时关闭out。
+	 * 
+	 * @param out
+	 *            接收Base64字符的输出流
+	 * @param charset
+	 *            字符编码
+	 */
+	public static Writer gZipWriter(OutputStream out, Charset charset) throws java.io.IOException {
+		return new OutputStreamWriter(GzipCodec.INSTANCE.createOutputStream(new Base64OutputStream(out)), charset);
+	}
 
-		return retStr;
+	/**
+	 * 创建压缩编码Writer，Base64字符追加到out。out实现了Closeable时关闭返回的Writer会同时关闭out。
+	 * 
+	 * @see #gZipWriter(OutputStream, Charset)
+	 */
+	public static Writer gZipWriter(Appendable out, Charset charset) throws java.io.IOException {
+		return gZipWriter(new AppendableOutputStream(out), charset);
 	}
 
 	/**
@@ -504,14 +1045,142 @@ public final class Base64 {
 	 * 
 	 * @param str
 	 *            经过压缩的字符串
-	 * @return 处理后的原始字符串。传入null产生空指针异常。
+	 * @param charset
+	 *            原始字符串的编码
+	 * @return 处理后的原始字符串
 	 * @throws java.io.IOException
+	 *             数据非法或损坏
+	 * @see #gUnZip(CharSequence, Charset, Appendable)
 	 */
-	public String gUnZip(String str) throws java.io.IOException {
-		// sun.misc.BASE64Decoder base64Decoder = new BASE64Decoder();
-		// byte[] byteArray = base64Decoder.decodeBuffer(str);
-		byte[] byteArray = Base64.decode(str.getBytes());
-		return new String(decompress(byteArray));
+	public static String gUnZip(String str, Charset charset) throws java.io.IOException {
+		StringBuilder sb = new StringBuilder();
+		gUnZip(str, charset, sb);
+		return sb.toString();
+	}
+
+	/**
+	 * 将Base64字符一次性经过 Base64解码→GZIP解压→字符解码 后追加到out，中间不生成完整的字节数组。
+	 * 
+	 * @param str
+	 *            经过压缩的字符串
+	 * @param charset
+	 *            原始字符串的编码
+	 * @param out
+	 *            接收原始字符的目标，如StringBuilder或Writer
+	 * @throws java.io.IOException
+	 *             数据非法或损坏
+	 */
+	public static void gUnZip(CharSequence str, Charset charset, Appendable out) throws java.io.IOException {
+		Reader reader = gUnZipReader(new CharSequenceInputStream(str), charset);
+		try {
+			CharBuffer buffer = CharBuffer.allocate(4096);
+			while (reader.read(buffer) >= 0) {
+				buffer.flip();
+				out.append(buffer);
+				buffer.clear();
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * 创建解压解码Reader，从in读取Base64字符，返回经过 Base64解码→GZIP解压→字符解码 后的字符。
+	 * 
+	 * @param in
+	 *            提供Base64字符的输入流
+	 * @param charset
+	 *            原始字符串的编码
+	 */
+	public static Reader gUnZipReader(InputStream in, Charset charset) throws java.io.IOException {
+		return new InputStreamReader(GzipCodec.INSTANCE.createInputStream(new Base64InputStream(in)), charset);
+	}
+
+	/**
+	 * 将字节按ISO-8859-1追加到Appendable的输出流，用于输出Base64字符。
+	 */
+	private static final class AppendableOutputStream extends OutputStream {
+		private final Appendable out;
+		private final char[] chars = new char[1024];
+
+		AppendableOutputStream(Appendable out) {
+			this.out = out;
+		}
+
+		public void write(int b) throws IOException {
+			out.append((char) (b & 0xff));
+		}
+
+		public void write(byte[] b, int off, int len) throws IOException {
+			checkRange(b.length, off, len);
+			while (len > 0) {
+				int n = Math.min(len, chars.length);
+				for (int i = 0; i < n; i++) {
+					chars[i] = (char) (b[off + i] & 0xff);
+				}
+				if (out instanceof Writer) {
+					((Writer) out).write(chars, 0, n);
+				} else if (out instanceof StringBuilder) {
+					((StringBuilder) out).append(chars, 0, n);
+				} else {
+					out.append(CharBuffer.wrap(chars, 0, n));
+				}
+				off += n;
+				len -= n;
+			}
+		}
+
+		public void flush() throws IOException {
+			if (out instanceof Flushable) {
+				((Flushable) out).flush();
+			}
+		}
+
+		public void close() throws IOException {
+			if (out instanceof Closeable) {
+				((Closeable) out).close();
+			}
+		}
+	}
+
+	/**
+	 * 读取字符序列中Base64字符的输入流，非ASCII字符被读成非法字节。
+	 */
+	private static final class CharSequenceInputStream extends InputStream {
+		private final CharSequence str;
+		private int pos;
+
+		CharSequenceInputStream(CharSequence str) {
+			this.str = str;
+		}
+
+		public int read() {
+			if (pos >= str.length()) {
+				return -1;
+			}
+			char c = str.charAt(pos++);
+			return c < 0x80 ? c : 0x80;
+		}
+
+		public int read(byte[] b, int off, int len) {
+			checkRange(b.length, off, len);
+			if (len == 0) {
+				return 0;
+			}
+			int n = Math.min(len, str.length() - pos);
+			if (n <= 0) {
+				return -1;
+			}
+			for (int i = 0; i < n; i++) {
+				char c = str.charAt(pos++);
+				b[off + i] = (byte) (c < 0x80 ? c : 0x80);
+			}
+			return n;
+		}
+
+		public int available() {
+			return str.length() - pos;
+		}
 	}
 
 	/**
@@ -521,17 +1190,10 @@ public final class Base64 {
 	 *            待处理的字节数组
 	 * @return 经过压缩的字节数组
 	 * @throws java.io.IOException
+	 * @see #compress(CompressionCodec, byte[])
 	 */
 	public byte[] compress(byte[] b) throws java.io.IOException {
-
-		ByteArrayOutputStream outBuffer = new ByteArrayOutputStream();
-		GZIPOutputStream gzip = new GZIPOutputStream(outBuffer);
-		gzip.write(b);
-		gzip.close();
-		byte[] c = outBuffer.toByteArray();
-		outBuffer.reset();
-		return c;
-
+		return compress(GzipCodec.INSTANCE, b);
 	}
 
 	/**
@@ -541,22 +1203,40 @@ public final class Base64 {
 	 *            经过压缩的字节数组
 	 * @return 解压后的字节数组
 	 * @throws java.io.IOException
+	 * @see #decompress(CompressionCodec, byte[])
 	 */
 	public byte[] decompress(byte[] b) throws java.io.IOException {
-		try {
-			ByteArrayOutputStream outBuffer = new ByteArrayOutputStream();
-			ByteArrayInputStream inBuffer = new ByteArrayInputStream(b);
-			GZIPInputStream gunzip = new GZIPInputStream(inBuffer);
-			byte[] buffer = new byte[256];
-			int n;
-			while ((n = gunzip.read(buffer)) >= 0) {
-				outBuffer.write(buffer, 0, n);
-			}
-			return outBuffer.toByteArray();
-		} catch (IOException ex) {
-			ex.printStackTrace();
-			throw ex;
-		}
+		return decompress(GzipCodec.INSTANCE, b);
+	}
+
+	/**
+	 * 使用指定算法压缩字节数组。
+	 * 
+	 * @param codec
+	 *            压缩算法，如{@link GzipCodec#INSTANCE}、{@link DeflateCodec#FASTEST}、
+	 *            {@link Lz4Codec#INSTANCE}
+	 * @param b
+	 *            待处理的字节数组
+	 * @return 经过压缩的字节数组
+	 * @throws java.io.IOException
+	 */
+	public static byte[] compress(CompressionCodec codec, byte[] b) throws java.io.IOException {
+		return codec.compress(b, 0, b.length);
+	}
+
+	/**
+	 * 使用指定算法解压字节数组。
+	 * 
+	 * @param codec
+	 *            压缩时使用的算法
+	 * @param b
+	 *            经过压缩的字节数组
+	 * @return 解压后的字节数组
+	 * @throws java.io.IOException
+	 *             数据损坏或格式不正确
+	 */
+	public static byte[] decompress(CompressionCodec codec, byte[] b) throws java.io.IOException {
+		return codec.decompress(b, 0, b.length);
 	}
 
 	public static void main(String[] args) {
@@ -0,0 +1,133 @@
+package org.scorpio.octopus.utils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Base64解码输入流。
+ * <p>
+ * 从底层输入流读取Base64字符，跳过其中的空白符(MIME换行等)，返回解码后的字节。
+ * 内部只保留固定大小的缓冲区，内存占用与数据总量无关。遇到PAD分组即视为数据结束，
+ * 其后的内容不再读取。数据非法或长度不是4的整数倍时抛出IOException。
+ * </p>
+ *
+ * <pre>
+ * InputStream in = new Base64InputStream(new FileInputStream(&quot;a.b64&quot;));
+ * IOUtil.copyLarge(in, out);
+ * </pre>
+ *
+ * @see Base64OutputStream
+ */
+public class Base64InputStream extends FilterInputStream {
+	private static final int BUFFER_SIZE = 4096;
+
+	private final byte[] raw = new byte[BUFFER_SIZE];
+	private final byte[] decoded = new byte[BUFFER_SIZE / 4 * 3];
+	private int pos;
+	private int limit;
+	private final byte[] quad = new byte[4];
+	private int quadLen;
+	private boolean eof;
+
+	/**
+	 * @param in
+	 *            提供Base64字符的输入流
+	 */
+	public Base64InputStream(InputStream in) {
+		super(in);
+	}
+
+	public int read() throws IOException {
+		if (pos == limit && !fill()) {
+			return -1;
+		}
+		return decoded[pos++] & 0xff;
+	}
+
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (off < 0 || len < 0 || off > b.length - len) {
+			throw new IndexOutOfBoundsException();
+		}
+		if (len == 0) {
+			return 0;
+		}
+		if (pos == limit && !fill()) {
+			return -1;
+		}
+		int n = Math.min(len, limit - pos);
+		System.arraycopy(decoded, pos, b, off, n);
+		pos += n;
+		return n;
+	}
+
+	public long skip(long n) throws IOException {
+		long skipped = 0;
+		while (skipped < n) {
+			if (pos == limit && !fill()) {
+				break;
+			}
+			int step = (int) Math.min(n - skipped, limit - pos);
+			pos += step;
+			skipped += step;
+		}
+		return skipped;
+	}
+
+	public int available() throws IOException {
+		return limit - pos;
+	}
+
+	public boolean markSupported() {
+		return false;
+	}
+
+	public synchronized void mark(int readlimit) {
+	}
+
+	public synchronized void reset() throws IOException {
+		throw new IOException("mark/reset not supported");
+	}
+
+	/**
+	 * 读取并解码下一批数据。
+	 *
+	 * @return 没有更多数据时返回false
+	 */
+	private boolean fill() throws IOException {
+		pos = limit = 0;
+		while (limit == 0) {
+			if (eof) {
+				return false;
+			}
+			int n = in.read(raw, 0, raw.length);
+			if (n < 0) {
+				eof = true;
+				if (quadLen != 0) {
+					throw new IOException("Base64数据长度不是4的整数倍");
+				}
+				return false;
+			}
+			for (int i = 0; i < n; i++) {
+				byte c = raw[i];
+				if (Base64.isWhiteSpace(c)) {
+					continue;
+				}
+				quad[quadLen++] = c;
+				if (quadLen == 4) {
+					quadLen = 0;
+					int r = Base64.decodeQuantum(quad[0], quad[1], quad[2], quad[3], decoded, limit);
+					if (r < 0) {
+						throw new IOException("非法的Base64数据");
+					}
+					limit += r;
+					if (r < 3) {
+						eof = true;
+						break;
+					}
+				}
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,154 @@
+package org.scorpio.octopus.utils;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Base64编码输出流。
+ * <p>
+ * 写入的原始字节被编码为Base64字符后写入底层输出流。内部只保留固定大小的缓冲区，
+ * 内存占用与数据总量无关；关闭流时才输出最后不足3字节的分组及PAD，因此必须调用
+ * {@link #close()}。
+ * </p>
+ *
+ * <pre>
+ * OutputStream out = new Base64OutputStream(new FileOutputStream(&quot;a.b64&quot;));
+ * IOUtil.copyLarge(in, out);
+ * out.close();
+ * </pre>
+ *
+ * @see Base64InputStream
+ */
+public class Base64OutputStream extends FilterOutputStream {
+	private static final int BUFFER_SIZE = 4096;
+
+	private final byte[] pending = new byte[3];
+	private int pendingLen;
+	private final byte[] buf = new byte[BUFFER_SIZE];
+	private int bufLen;
+	private final int lineLength;
+	private int column;
+	private boolean closed;
+
+	/**
+	 * 创建不换行的Base64编码输出流。
+	 *
+	 * @param out
+	 *            接收Base64字符的输出流
+	 */
+	public Base64OutputStream(OutputStream out) {
+		this(out, 0);
+	}
+
+	/**
+	 * 创建按指定行宽换行(CRLF)的Base64编码输出流，MIME格式使用76。
+	 *
+	 * @param out
+	 *            接收Base64字符的输出流
+	 * @param lineLength
+	 *            每行字符数，向下取4的整数倍；0表示不换行
+	 */
+	public Base64OutputStream(OutputStream out, int lineLength) {
+		super(out);
+		if (lineLength < 0) {
+			throw new IllegalArgumentException("lineLength must not be negative: " + lineLength);
+		}
+		this.lineLength = lineLength / 4 * 4;
+	}
+
+	public void write(int b) throws IOException {
+		ensureOpen();
+		pending[pendingLen++] = (byte) b;
+		if (pendingLen == 3) {
+			emit(pending, 0, 3);
+			pendingLen = 0;
+		}
+	}
+
+	public void write(byte[] b, int off, int len) throws IOException {
+		ensureOpen();
+		if (off < 0 || len < 0 || off > b.length - len) {
+			throw new IndexOutOfBoundsException();
+		}
+		int end = off + len;
+		while (pendingLen > 0 && off < end) {
+			write(b[off++]);
+		}
+		int fullEnd = off + (end - off) / 3 * 3;
+		if (lineLength == 0) {
+			while (off < fullEnd) {
+				int n = Math.min(fullEnd - off, (buf.length - bufLen) / 4 * 3);
+				if (n == 0) {
+					flushBuffer();
+					continue;
+				}
+				bufLen += Base64.encodeTriplets(b, off, n / 3, buf, bufLen);
+				off += n;
+			}
+		} else {
+			for (; off < fullEnd; off += 3) {
+				emit(b, off, 3);
+			}
+		}
+		while (off < end) {
+			pending[pendingLen++] = b[off++];
+		}
+	}
+
+	/**
+	 * 输出已编码的字符。尚不足3字节的数据要到关闭时才能编码，不会被flush输出。
+	 */
+	public void flush() throws IOException {
+		ensureOpen();
+		flushBuffer();
+		out.flush();
+	}
+
+	/**
+	 * 输出剩余分组及PAD并关闭底层输出流。
+	 */
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			if (pendingLen > 0) {
+				emit(pending, 0, pendingLen);
+				pendingLen = 0;
+			}
+			flushBuffer();
+			out.flush();
+		} finally {
+			out.close();
+		}
+	}
+
+	private void emit(byte[] src, int off, int len) throws IOException {
+		if (buf.length - bufLen < 6) {
+			flushBuffer();
+		}
+		if (lineLength > 0 && column >= lineLength) {
+			buf[bufLen++] = '\r';
+			buf[bufLen++] = '\n';
+			column = 0;
+		}
+		Base64.encodeQuantum(src, off, len, buf, bufLen);
+		bufLen += 4;
+		column += 4;
+	}
+
+	private void flushBuffer() throws IOException {
+		if (bufLen > 0) {
+			out.write(buf, 0, bufLen);
+			bufLen = 0;
+		}
+	}
+
+	private void ensureOpen() throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+	}
+}
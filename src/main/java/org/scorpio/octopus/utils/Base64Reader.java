@@ -0,0 +1,96 @@
+package org.scorpio.octopus.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+/**
+ * 以字符形式读出Base64编码结果的Reader。
+ * <p>
+ * 从底层输入流读取原始字节，编码为Base64字符返回，可直接通过
+ * {@link IOUtil#copyLarge(Reader, java.io.Writer)}写入文本输出。内存占用与数据总量无关。
+ * </p>
+ *
+ * @see Base64Writer
+ */
+public class Base64Reader extends Reader {
+	private static final int BUFFER_SIZE = 4096;
+
+	private InputStream in;
+	private final byte[] raw = new byte[BUFFER_SIZE / 4 * 3];
+	private int rawLen;
+	private final byte[] encoded = new byte[BUFFER_SIZE];
+	private int pos;
+	private int limit;
+	private boolean eof;
+
+	/**
+	 * @param in
+	 *            提供原始字节的输入流
+	 */
+	public Base64Reader(InputStream in) {
+		this.in = in;
+	}
+
+	public int read(char[] cbuf, int off, int len) throws IOException {
+		if (in == null) {
+			throw new IOException("Stream closed");
+		}
+		if (off < 0 || len < 0 || off > cbuf.length - len) {
+			throw new IndexOutOfBoundsException();
+		}
+		if (len == 0) {
+			return 0;
+		}
+		if (pos == limit && !fill()) {
+			return -1;
+		}
+		int n = Math.min(len, limit - pos);
+		for (int i = 0; i < n; i++) {
+			cbuf[off + i] = (char) encoded[pos + i];
+		}
+		pos += n;
+		return n;
+	}
+
+	public boolean ready() throws IOException {
+		return pos < limit;
+	}
+
+	public void close() throws IOException {
+		if (in != null) {
+			in.close();
+			in = null;
+		}
+	}
+
+	/**
+	 * 读取并编码下一批数据，不足3字节的尾部留到下次或结束时处理。
+	 *
+	 * @return 没有更多数据时返回false
+	 */
+	private boolean fill() throws IOException {
+		pos = limit = 0;
+		while (limit == 0 && !eof) {
+			int n = in.read(raw, rawLen, raw.length - rawLen);
+			if (n < 0) {
+				eof = true;
+				if (rawLen > 0) {
+					Base64.encodeQuantum(raw, 0, rawLen, encoded, 0);
+					limit = 4;
+					rawLen = 0;
+				}
+				break;
+			}
+			rawLen += n;
+			int triplets = rawLen / 3;
+			if (triplets > 0) {
+				limit = Base64.encodeTriplets(raw, 0, triplets, encoded, 0);
+				int rest = rawLen - triplets * 3;
+				System.arraycopy(raw, triplets * 3, raw, 0, rest);
+				rawLen = rest;
+			}
+		}
+		return limit > 0;
+	}
+}
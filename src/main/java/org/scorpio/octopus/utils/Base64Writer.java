@@ -0,0 +1,119 @@
+package org.scorpio.octopus.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * 接收Base64字符并将解码结果写入输出流的Writer。
+ * <p>
+ * 写入的字符中的空白符被忽略，PAD分组之后只允许出现空白符。数据非法时抛出IOException，
+ * 关闭时若剩余字符不足一个分组同样抛出IOException。内存占用与数据总量无关。
+ * </p>
+ *
+ * @see Base64Reader
+ */
+public class Base64Writer extends Writer {
+	private static final int BUFFER_SIZE = 3072;
+
+	private OutputStream out;
+	private final byte[] quad = new byte[4];
+	private int quadLen;
+	private final byte[] buf = new byte[BUFFER_SIZE];
+	private int bufLen;
+	private boolean finished;
+
+	/**
+	 * @param out
+	 *            接收解码后字节的输出流
+	 */
+	public Base64Writer(OutputStream out) {
+		this.out = out;
+	}
+
+	public void write(int c) throws IOException {
+		ensureOpen();
+		accept((char) c);
+	}
+
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		ensureOpen();
+		if (off < 0 || len < 0 || off > cbuf.length - len) {
+			throw new IndexOutOfBoundsException();
+		}
+		for (int end = off + len; off < end; off++) {
+			accept(cbuf[off]);
+		}
+	}
+
+	public void write(String str, int off, int len) throws IOException {
+		ensureOpen();
+		for (int end = off + len; off < end; off++) {
+			accept(str.charAt(off));
+		}
+	}
+
+	/**
+	 * 输出已解码的字节。尚不足一个分组的字符保留到后续写入。
+	 */
+	public void flush() throws IOException {
+		ensureOpen();
+		flushBuffer();
+		out.flush();
+	}
+
+	public void close() throws IOException {
+		if (out == null) {
+			return;
+		}
+		try {
+			flushBuffer();
+			out.flush();
+			if (quadLen != 0) {
+				throw new IOException("Base64数据长度不是4的整数倍");
+			}
+		} finally {
+			out.close();
+			out = null;
+		}
+	}
+
+	private void accept(char c) throws IOException {
+		if (c > 0x7f) {
+			throw new IOException("非法的Base64字符: " + c);
+		}
+		byte b = (byte) c;
+		if (Base64.isWhiteSpace(b)) {
+			return;
+		}
+		if (finished) {
+			throw new IOException("PAD之后出现Base64数据: " + c);
+		}
+		quad[quadLen++] = b;
+		if (quadLen == 4) {
+			quadLen = 0;
+			if (buf.length - bufLen < 3) {
+				flushBuffer();
+			}
+			int r = Base64.decodeQuantum(quad[0], quad[1], quad[2], quad[3], buf, bufLen);
+			if (r < 0) {
+				throw new IOException("非法的Base64数据");
+			}
+			bufLen += r;
+			finished = r < 3;
+		}
+	}
+
+	private void flushBuffer() throws IOException {
+		if (bufLen > 0) {
+			out.write(buf, 0, bufLen);
+			bufLen = 0;
+		}
+	}
+
+	private void ensureOpen() throws IOException {
+		if (out == null) {
+			throw new IOException("Stream closed");
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package org.scorpio.octopus.utils;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 有界的并发缓存，读操作无锁。
+ * <p>
+ * 基于{@link ConcurrentHashMap}，超过容量时按CLOCK(二次机会)算法淘汰：读取时为条目打上访问标记，
+ * 淘汰时清除已标记条目的标记，移除未标记的条目，直到条目数降到容量的3/4。同一时刻只有一个线程执行淘汰，
+ * 其余线程不等待，因此条目数可能短暂超过容量。用于缓存由调用方参数(如日期格式)构造的对象，
+ * 避免参数不受控时内存无限增长。
+ * </p>
+ * <p>
+ * #ThreadSafe#
+ * </p>
+ *
+ * @param <K>
+ *            键的类型，须正确实现equals及hashCode
+ * @param <V>
+ *            值的类型
+ */
+final class BoundedCache<K, V> {
+	private final ConcurrentHashMap<K, Node<V>> map;
+	private final int capacity;
+	private final AtomicBoolean evicting = new AtomicBoolean();
+
+	/**
+	 * @param capacity
+	 *            最多缓存的条目数
+	 */
+	BoundedCache(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity must be positive: " + capacity);
+		}
+		this.capacity = capacity;
+		this.map = new ConcurrentHashMap<K, Node<V>>(Math.min(capacity, 64));
+	}
+
+	/**
+	 * 返回键对应的值，不存在时返回null。
+	 */
+	V get(K key) {
+		Node<V> node = map.get(key);
+		if (node == null) {
+			return null;
+		}
+		if (!node.referenced) {
+			// 已标记时不重复写，避免多线程读同一条目时争用缓存行
+			node.referenced = true;
+		}
+		return node.value;
+	}
+
+	/**
+	 * 键不存在时放入值，返回缓存中最终的值(并发放入时以先放入者为准)。
+	 */
+	V putIfAbsent(K key, V value) {
+		Node<V> prev = map.putIfAbsent(key, new Node<V>(value));
+		if (prev != null) {
+			prev.referenced = true;
+			return prev.value;
+		}
+		if (map.size() > capacity) {
+			evict();
+		}
+		return value;
+	}
+
+	/**
+	 * 返回当前条目数
+	 */
+	int size() {
+		return map.size();
+	}
+
+	/**
+	 * 清空缓存
+	 */
+	void clear() {
+		map.clear();
+	}
+
+	private void evict() {
+		if (!evicting.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			int target = capacity - (capacity >> 2);
+			// 第一轮清除访问标记，第二轮必然能移除第一轮之后未被访问的条目
+			for (int pass = 0; pass < 2 && map.size() > target; pass++) {
+				Iterator<Node<V>> it = map.values().iterator();
+				while (it.hasNext() && map.size() > target) {
+					Node<V> node = it.next();
+					if (node.referenced) {
+						node.referenced = false;
+					} else {
+						it.remove();
+					}
+				}
+			}
+		} finally {
+			evicting.set(false);
+		}
+	}
+
+	private static final class Node<V> {
+		final V value;
+		volatile boolean referenced;
+
+		Node(V value) {
+			this.value = value;
+		}
+	}
+}
@@ -1,8 +1,5 @@
 package org.scorpio.octopus.utils;
 
-import java.text.ParseException;
-import java.text.ParsePosition;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
@@ -10,7 +7,9 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.TimeZone;
 
 /**
  * <p>
@@ -20,9 +19,75 @@ import java.util.Map;
  */
 public class CastUtil {
 
+	private static volatile DatePatternDispatcher dateDispatcher = new DatePatternDispatcher(defaultDatePatterns(),
+			TimeZone.getDefault(), Locale.getDefault());
+
+	private static String[] defaultDatePatterns() {
+		DatePatternEnum[] values = DatePatternEnum.values();
+		String[] patterns = new String[values.length];
+		for (int i = 0; i < values.length; i++) {
+			patterns[i] = values[i].getPattern();
+		}
+		return patterns;
+	}
+
+	/**
+	 * 注册项目自定义的日期格式，{@link #toDateTime(Object, Date)}在{@link DatePatternEnum}及之前注册的格式都不能解析时使用该格式。
+	 * <p>
+	 * 所有格式被编译为按输入形状(长度及分隔符位置)分派的解析器，格式的数量不影响常见输入的解析速度。
+	 * 已注册的格式被忽略。
+	 * </p>
+	 *
+	 * @param pattern
+	 *            SimpleDateFormat兼容的格式，不支持周字段(w W F u Y)
+	 * @throws IllegalArgumentException
+	 *             格式为null、格式错误或包含不支持的字段
+	 */
+	public static synchronized void registerDatePattern(String pattern) {
+		String[] patterns = dateDispatcher.getPatterns();
+		for (int i = 0; i < patterns.length; i++) {
+			if (patterns[i].equals(pattern)) {
+				return;
+			}
+		}
+		String[] newPatterns = Arrays.copyOf(patterns, patterns.length + 1);
+		newPatterns[patterns.length] = pattern;
+		dateDispatcher = new DatePatternDispatcher(newPatterns, TimeZone.getDefault(), Locale.getDefault());
+	}
+
+	/**
+	 * 返回使用当前默认时区及地区的分派器，默认值改变后重新创建，与每次新建SimpleDateFormat的结果一致。
+	 */
+	private static DatePatternDispatcher dateDispatcher() {
+		DatePatternDispatcher dispatcher = dateDispatcher;
+		TimeZone timeZone = TimeZone.getDefault();
+		Locale locale = Locale.getDefault();
+		if (dispatcher.isFor(timeZone, locale)) {
+			return dispatcher;
+		}
+		synchronized (CastUtil.class) {
+			dispatcher = dateDispatcher;
+			if (!dispatcher.isFor(timeZone, locale)) {
+				dispatcher = new DatePatternDispatcher(dispatcher.getPatterns(), timeZone, locale);
+				dateDispatcher = dispatcher;
+			}
+			return dispatcher;
+		}
+	}
+
+	/**
+	 * 返回{@link #toDateTime(Object, Date)}依次使用的日期格式，包括注册的格式。
+	 */
+	public static String[] getDatePatterns() {
+		return dateDispatcher.getPatterns();
+	}
+
 	/**
 	 *
 	 * 将一个Object对象转换为确定的类型 例如Object为String的2007-01-01,c为Date.class 返回为Date类型
+	 * <p>
+	 * 按源类型及目标类型从{@link ConverterRegistry#getDefault()}中选择转换器，可以在其中注册自定义类型的转换。
+	 * </p>
 	 *
 	 * @param val
 	 *            待确定类型的对象
@@ -31,45 +96,89 @@ public class CastUtil {
 	 * @return 转换后的类型为clazz的对象
 	 */
 	public static Object castValue(Object val, Class clazz) {
-		return cast(val, clazz);
+		return ConverterRegistry.getDefault().convert(val, clazz);
 	}
 
 	/**
+	 * 返回内置的转换为目标类型的转换器，不支持的类型返回null
 	 *
-	 * 将一个Object对象转换为确定的类型 例如Object为String的2007-01-01 Class
-	 * c为Date返回的Object实际为Date类型返回后可强制类型转换,或用于其他不需要明确类型的地方,此方法多用于反射的情况
-	 *
-	 * @param val
-	 *            待确定类型的对象
-	 * @param c
-	 *            目标类型的class
-	 * @return
+	 * @param clazz
+	 *            目标类型
 	 */
-	private static Object cast(Object val, Class clazz) {
-		if (val == null)
-			return null;
+	static Converter converter(Class clazz) {
 		if ((java.lang.String.class).equals(clazz))
-			return CastUtil.toString(val, null);
+			return BasicConverter.STRING;
 		if ((java.lang.Integer.class).equals(clazz) || Integer.TYPE.equals(clazz))
-			return CastUtil.toInteger(val, null);
+			return BasicConverter.INTEGER;
 		if ((java.lang.Double.class).equals(clazz) || Double.TYPE.equals(clazz))
-			return CastUtil.toDouble(val, null);
+			return BasicConverter.DOUBLE;
 		if ((java.lang.Short.class).equals(clazz) || Short.TYPE.equals(clazz))
-			return CastUtil.toShort(val, null);
+			return BasicConverter.SHORT;
 		if ((java.lang.Long.class).equals(clazz) || Long.TYPE.equals(clazz))
-			return CastUtil.toLong(val, null);
+			return BasicConverter.LONG;
 		if ((java.lang.Float.class).equals(clazz) || Float.TYPE.equals(clazz))
-			return CastUtil.toFloat(val, null);
+			return BasicConverter.FLOAT;
 		if ((java.lang.Byte.class).equals(clazz) || Byte.TYPE.equals(clazz))
-			return CastUtil.toByte(val, null);
+			return BasicConverter.BYTE;
 		if ((java.lang.Boolean.class).equals(clazz) || Boolean.TYPE.equals(clazz))
-			return CastUtil.toBoolean(val, null);
+			return BasicConverter.BOOLEAN;
 		if ((java.util.Date.class).equals(clazz) || (java.sql.Date.class).equals(clazz)) {
-			return CastUtil.toDateTime(val, null);
+			return BasicConverter.DATE;
 		}
 		return null;
 	}
 
+	/**
+	 * 内置支持的各目标类型的转换
+	 */
+	private enum BasicConverter implements Converter {
+		STRING {
+			public Object convert(Object value) {
+				return CastUtil.toString(value, null);
+			}
+		},
+		INTEGER {
+			public Object convert(Object value) {
+				return CastUtil.toInteger(value, null);
+			}
+		},
+		DOUBLE {
+			public Object convert(Object value) {
+				return CastUtil.toDouble(value, null);
+			}
+		},
+		SHORT {
+			public Object convert(Object value) {
+				return CastUtil.toShort(value, null);
+			}
+		},
+		LONG {
+			public Object convert(Object value) {
+				return CastUtil.toLong(value, null);
+			}
+		},
+		FLOAT {
+			public Object convert(Object value) {
+				return CastUtil.toFloat(value, null);
+			}
+		},
+		BYTE {
+			public Object convert(Object value) {
+				return CastUtil.toByte(value, null);
+			}
+		},
+		BOOLEAN {
+			public Object convert(Object value) {
+				return CastUtil.toBoolean(value, null);
+			}
+		},
+		DATE {
+			public Object convert(Object value) {
+				return CastUtil.toDateTime(value, null);
+			}
+		};
+	}
+
 	/**
 	 * 强制类型转化Object为byte型
 	 *
@@ -201,23 +310,18 @@ public class CastUtil {
 	public static Integer toInteger(Object obj, Integer def) {
 		if (obj == null)
 			return def;
-		try {
-			if (obj instanceof Number) {
-				Number n = (Number) obj;
-				return Integer.valueOf(n.intValue() + "");
-			} else if (obj instanceof Boolean) {
-				Boolean b = (Boolean) obj;
-				return b.booleanValue() ? new Integer(1) : new Integer(0);
-			}
-
-			String s = toNotEmptyString(obj);
-			if (s == null)
-				return def;
-			else
-				return Integer.valueOf(s);
-		} catch (Exception e) {
+		if (obj instanceof Integer)
+			return (Integer) obj;
+		if (obj instanceof Number)
+			return Integer.valueOf(((Number) obj).intValue());
+		if (obj instanceof Boolean)
+			return ((Boolean) obj).booleanValue() ? Integer.valueOf(1) : Integer.valueOf(0);
+		CharSequence s = toCharSequence(obj);
+		if (s == null)
 			return def;
-		}
+		// 结果在int范围内，Long.MIN_VALUE表示不能解析
+		long value = parseLong(s, Integer.MIN_VALUE, Integer.MAX_VALUE, Long.MIN_VALUE);
+		return value == Long.MIN_VALUE ? def : Integer.valueOf((int) value);
 	}
 
 	/**
@@ -241,7 +345,14 @@ public class CastUtil {
 	 * @return int
 	 */
 	public static int toInt(Object obj, int def) {
-		return toInteger(obj, Integer.valueOf(def + "")).intValue();
+		if (obj instanceof Number)
+			return ((Number) obj).intValue();
+		if (obj instanceof Boolean)
+			return ((Boolean) obj).booleanValue() ? 1 : 0;
+		CharSequence s = toCharSequence(obj);
+		if (s == null)
+			return def;
+		return (int) parseLong(s, Integer.MIN_VALUE, Integer.MAX_VALUE, def);
 	}
 
 	/**
@@ -256,19 +367,16 @@ public class CastUtil {
 	public static Long toLong(Object obj, Long def) {
 		if (obj == null)
 			return def;
-		try {
-			if (obj instanceof Number) {
-				Number n = (Number) obj;
-				return Long.valueOf(n.longValue() + "");
-			}
-			String s = toNotEmptyString(obj);
-			if (s == null)
-				return def;
-			else
-				return Long.valueOf(s);
-		} catch (Exception e) {
+		if (obj instanceof Long)
+			return (Long) obj;
+		if (obj instanceof Number)
+			return Long.valueOf(((Number) obj).longValue());
+		CharSequence s = toCharSequence(obj);
+		if (s == null)
 			return def;
-		}
+		boolean[] failed = new boolean[1];
+		long value = parseLong(s, Long.MIN_VALUE, Long.MAX_VALUE, 0, failed);
+		return failed[0] ? def : Long.valueOf(value);
 	}
 
 	/**
@@ -281,7 +389,12 @@ public class CastUtil {
 	 * @return long
 	 */
 	public static long toLong(Object obj, long def) {
-		return toLong(obj, Long.valueOf(def + "")).longValue();
+		if (obj instanceof Number)
+			return ((Number) obj).longValue();
+		CharSequence s = toCharSequence(obj);
+		if (s == null)
+			return def;
+		return parseLong(s, Long.MIN_VALUE, Long.MAX_VALUE, def);
 	}
 
 	/**
@@ -345,22 +458,16 @@ public class CastUtil {
 	public static Double toDouble(Object obj, Double def) {
 		if (obj == null)
 			return def;
-		try {
-			if (obj instanceof Number) {
-				Number n = (Number) obj;
-				return Double.valueOf(n.doubleValue() + "");
-			}
-			if (obj instanceof String) {
-				obj = ((String) obj).trim().replaceAll(",", "");
-			}
-			String s = toNotEmptyString(obj);
-			if (s == null)
-				return def;
-			else
-				return Double.valueOf(s);
-		} catch (Exception e) {
+		if (obj instanceof Double)
+			return (Double) obj;
+		if (obj instanceof Number)
+			return Double.valueOf(((Number) obj).doubleValue());
+		CharSequence s = toCharSequence(obj);
+		if (s == null)
 			return def;
-		}
+		boolean[] failed = new boolean[1];
+		double value = parseDouble(s, obj instanceof String, 0, failed);
+		return failed[0] ? def : Double.valueOf(value);
 	}
 
 	/**
@@ -373,7 +480,224 @@ public class CastUtil {
 	 * @return double
 	 */
 	public static double toDouble(Object obj, double def) {
-		return toDouble(obj, Double.valueOf(def + "")).doubleValue();
+		if (obj instanceof Number)
+			return ((Number) obj).doubleValue();
+		CharSequence s = toCharSequence(obj);
+		if (s == null)
+			return def;
+		return parseDouble(s, obj instanceof String, def);
+	}
+
+	/**
+	 * 返回用于解析数字的文本，obj为null或toString()出错时返回null
+	 */
+	private static CharSequence toCharSequence(Object obj) {
+		if (obj instanceof CharSequence)
+			return (CharSequence) obj;
+		if (obj == null)
+			return null;
+		return toString(obj, null);
+	}
+
+	/**
+	 * 解析十进制整数，不抛出异常。首尾可以有空白(不大于' '的字符)，可以有正负号，结果与Long.valueOf(s.trim())相同。
+	 *
+	 * @param s
+	 *            文本
+	 * @param min
+	 *            最小值
+	 * @param max
+	 *            最大值
+	 * @param def
+	 *            格式错误或超出[min, max]时返回的值
+	 */
+	static long parseLong(CharSequence s, long min, long max, long def) {
+		return parseLong(s, min, max, def, null);
+	}
+
+	/**
+	 * @param failed
+	 *            不为null时，格式错误或超出范围时failed[0]被置为true，用于def也可能是解析结果的情况
+	 */
+	private static long parseLong(CharSequence s, long min, long max, long def, boolean[] failed) {
+		int start = 0;
+		int end = s.length();
+		while (start < end && s.charAt(start) <= ' ')
+			start++;
+		while (end > start && s.charAt(end - 1) <= ' ')
+			end--;
+		if (start == end)
+			return fail(def, failed);
+		char c = s.charAt(start);
+		boolean negative = c == '-';
+		int i = negative || c == '+' ? start + 1 : start;
+		if (i == end)
+			return fail(def, failed);
+		// 按负数累加，可以表示min
+		long limit = negative ? min : -max;
+		long multmin = limit / 10;
+		long result = 0;
+		for (; i < end; i++) {
+			c = s.charAt(i);
+			int digit = c - '0';
+			if (digit < 0 || digit > 9) {
+				if (c >= 0x80)
+					return parseLongSlow(s.subSequence(start, end).toString(), min, max, def, failed);
+				return fail(def, failed);
+			}
+			if (result < multmin)
+				return fail(def, failed);
+			result *= 10;
+			if (result < limit + digit)
+				return fail(def, failed);
+			result -= digit;
+		}
+		return negative ? result : -result;
+	}
+
+	/**
+	 * 含非ASCII字符(如全角数字)时交给Long.parseLong
+	 */
+	private static long parseLongSlow(String s, long min, long max, long def, boolean[] failed) {
+		try {
+			long value = Long.parseLong(s);
+			if (value >= min && value <= max)
+				return value;
+		} catch (NumberFormatException e) {
+		}
+		return fail(def, failed);
+	}
+
+	private static long fail(long def, boolean[] failed) {
+		if (failed != null)
+			failed[0] = true;
+		return def;
+	}
+
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	/**
+	 * 解析浮点数，不抛出异常，结果与Double.valueOf(s.trim())相同。
+	 * <p>
+	 * 不超过15位有效数字且指数不大的十进制数直接由整数和10的幂计算(两者都能精确表示，结果是正确舍入的)；
+	 * 其余格式正确的十进制数交给Double.parseDouble，此时不会出现异常；NaN、Infinity及十六进制等其他形式
+	 * 在解析失败时才捕获异常。
+	 * </p>
+	 *
+	 * @param s
+	 *            文本
+	 * @param removeCommas
+	 *            是否先去掉千分位逗号
+	 * @param def
+	 *            格式错误时返回的值
+	 */
+	static double parseDouble(CharSequence s, boolean removeCommas, double def) {
+		return parseDouble(s, removeCommas, def, null);
+	}
+
+	/**
+	 * @param failed
+	 *            不为null时，格式错误时failed[0]被置为true，用于def也可能是解析结果的情况
+	 */
+	private static double parseDouble(CharSequence s, boolean removeCommas, double def, boolean[] failed) {
+		if (removeCommas && indexOf(s, ',') >= 0)
+			s = s.toString().replace(",", "");
+		int start = 0;
+		int end = s.length();
+		while (start < end && s.charAt(start) <= ' ')
+			start++;
+		while (end > start && s.charAt(end - 1) <= ' ')
+			end--;
+		if (start == end)
+			return fail(def, failed);
+		char c = s.charAt(end - 1);
+		int last = c == 'd' || c == 'D' || c == 'f' || c == 'F' ? end - 1 : end;
+		c = s.charAt(start);
+		boolean negative = c == '-';
+		int i = negative || c == '+' ? start + 1 : start;
+		if (i == end)
+			return fail(def, failed);
+		int digitsStart = i;
+
+		long mantissa = 0;
+		int digits = 0;
+		int exponent = 0;
+		boolean sawDigit = false;
+		boolean sawDot = false;
+		for (; i < last; i++) {
+			c = s.charAt(i);
+			if (c >= '0' && c <= '9') {
+				sawDigit = true;
+				if (mantissa == 0 && c == '0') {
+					// 前导0不计入有效数字
+					if (sawDot)
+						exponent--;
+				} else if (digits < 18) {
+					mantissa = mantissa * 10 + (c - '0');
+					digits++;
+					if (sawDot)
+						exponent--;
+				} else {
+					// 超出的有效数字交给Double.parseDouble
+					digits++;
+					if (!sawDot)
+						exponent++;
+				}
+			} else if (c == '.' && !sawDot) {
+				sawDot = true;
+			} else {
+				break;
+			}
+		}
+		if (i < last && sawDigit && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+			int j = i + 1;
+			boolean negativeExponent = j < last && s.charAt(j) == '-';
+			if (j < last && (s.charAt(j) == '-' || s.charAt(j) == '+'))
+				j++;
+			int value = 0;
+			int k = j;
+			for (; k < last && s.charAt(k) >= '0' && s.charAt(k) <= '9'; k++) {
+				if (value < 100000)
+					value = value * 10 + (s.charAt(k) - '0');
+			}
+			if (k == j || k < last)
+				return fail(def, failed);
+			exponent += negativeExponent ? -value : value;
+			i = last;
+		}
+		if (i < last || !sawDigit) {
+			// NaN、Infinity、十六进制等
+			char first = s.charAt(digitsStart);
+			if (first == 'N' || first == 'I' || first == '0') {
+				try {
+					return Double.parseDouble(s.subSequence(start, end).toString());
+				} catch (NumberFormatException e) {
+					return fail(def, failed);
+				}
+			}
+			return fail(def, failed);
+		}
+
+		if (digits <= 15 && exponent >= -22 && exponent <= 22) {
+			double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+			return negative ? -value : value;
+		}
+		return Double.parseDouble(s.subSequence(start, end).toString());
+	}
+
+	private static double fail(double def, boolean[] failed) {
+		if (failed != null)
+			failed[0] = true;
+		return def;
+	}
+
+	private static int indexOf(CharSequence s, char c) {
+		for (int i = 0; i < s.length(); i++) {
+			if (s.charAt(i) == c)
+				return i;
+		}
+		return -1;
 	}
 
 	/**
@@ -453,39 +777,11 @@ public class CastUtil {
 		} else if (obj instanceof Calendar) {
 			return ((Calendar) obj).getTime();
 		} else {
-			try {
-				String s = toNotEmptyString(obj);
-				if (s == null)
-					return def;
-				else {
-					String[] datePatterns = new String[DatePatternEnum.values().length];
-					for (int i = 0; i < datePatterns.length; i++) {
-						datePatterns[i] = DatePatternEnum.values()[i].getPattern();
-					}
-					if (s == null || datePatterns == null) {
-						throw new IllegalArgumentException("Date and Patterns must not be null");
-					}
-
-					SimpleDateFormat parser = null;
-					ParsePosition pos = new ParsePosition(0);
-					for (int i = 0; i < datePatterns.length; i++) {
-						if (i == 0) {
-							parser = new SimpleDateFormat(datePatterns[0]);
-						} else {
-							parser.applyPattern(datePatterns[i]);
-						}
-						pos.setIndex(0);
-						Date date = parser.parse(s, pos);
-						if (date != null && pos.getIndex() == s.length()) {
-							return date;
-						}
-					}
-					throw new ParseException("Unable to parse the date: " + s, -1);
-				}
-			} catch (ParseException e) {
-				e.printStackTrace();
-				return null;
-			}
+			String s = toNotEmptyString(obj);
+			if (s == null)
+				return def;
+			else
+				return dateDispatcher().parse(s);
 		}
 	}
 
@@ -570,20 +866,20 @@ public class CastUtil {
 
 	/**
 	 *
-	 * 批量转换Map中key的名字和value的类型
+	 * 批量转换Map中key的名字和value的类型，每一行的结果与{@link #castKeyValue(Map, HM[])}相同，HM只编译一次。
 	 * 
 	 * @param list
-	 *            待处理的List
+	 *            待处理的List&lt;Map&gt;，不被修改
 	 * @param hms
 	 *            转换映射对象数组
 	 * @return 已处理的List&lt;HashMapExt&gt;
+	 * @see ConversionPlan
 	 */
 	public static List castKeyValue(List list, HM[] hms) {
-		List r = new ArrayList();
-		for (Iterator iterator = r.iterator(); iterator.hasNext();) {
-			Map map = (Map) iterator.next();
-			HashMapExt hashMap = HashMapExt.valueOf(map);
-			r.add(hashMap.castKeyValue(hms));
+		ConversionPlan plan = ConversionPlan.compile(hms);
+		List r = new ArrayList(list.size());
+		for (Iterator iterator = list.iterator(); iterator.hasNext();) {
+			r.add(plan.apply((Map) iterator.next(), new HashMapExt()));
 		}
 		return r;
 	}
@@ -592,35 +888,19 @@ public class CastUtil {
 		return castKeyValue(map, ((HM[]) hms.toArray(new HM[0])));
 	}
 
+	/**
+	 *
+	 * 转换Map中key的名字和value的类型。同一组HM转换多个Map时应使用{@link ConversionPlan}，只编译一次。
+	 * 
+	 * @param map
+	 *            待处理的Map
+	 * @param hms
+	 *            转换映射对象数组
+	 * @return 新的Map
+	 * @see ConversionPlan
+	 */
 	public static Map castKeyValue(Map map, HM[] hms) {
-		Map rs = new HashMap();
-		List keys = new ArrayList();
-		for (Iterator iterator = map.keySet().iterator(); iterator.hasNext();) {
-			Object key = (Object) iterator.next();
-			keys.add(key);
-		}
-		for (Iterator iterator = keys.iterator(); iterator.hasNext();) {
-			Object key = (Object) iterator.next();
-			Object value = map.get(key);
-			if (value == null)
-				continue;
-			for (int i = 0; i < hms.length; i++) {
-				HM hm = hms[i];
-				if (key.equals(hm.getOldKey())) {
-					if (hm.getClazz() != null) {
-						value = CastUtil.castValue(value, hm.getClazz());
-					}
-					if (hm.getNewKey() != null && !keys.contains(hm.getNewKey())) {
-						rs.remove(key);
-						key = hm.getNewKey();
-					} else {
-						key = hm.getOldKey();
-					}
-				}
-				rs.put(key, value);
-			}
-		}
-		return rs;
+		return ConversionPlan.compile(hms).apply(map);
 	}
 
 	/**
@@ -0,0 +1,251 @@
+package org.scorpio.octopus.utils;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * 由HM数组编译的转换计划，把Map中key的名字和value的类型批量转换，结果与{@link CastUtil#castKeyValue(Map, HM[])}相同。
+ * <p>
+ * 编译时按旧key建立散列表，并为每个HM预先选定目标类型的转换器；转换一行时每个key只查一次表，
+ * 不再逐个比较HM，也不再按类型逐个判断。同一组HM转换很多行时应只编译一次。
+ * </p>
+ * <p>
+ * 转换规则：value为null的key被忽略；key依次应用旧key与其相同的HM(重命名后按新key继续匹配之后的HM)，
+ * 有目标类型时转换value，新key不是原Map中已有的key时重命名。没有HM时结果为空。
+ * </p>
+ * <p>
+ * 编译时复制HM的内容，之后修改HM不影响计划。实例不可变。#ThreadSafe#
+ * </p>
+ *
+ * @see HM
+ */
+public final class ConversionPlan {
+	/**
+	 * 并行转换时每个子任务处理的默认最多行数
+	 */
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 4096;
+
+	private static final int[] NO_STEPS = new int[0];
+
+	private final int size;
+	/**
+	 * 旧key到HM序号(升序)的映射
+	 */
+	private final Map<Object, int[]> steps;
+	private final String[] newKeys;
+	private final Converter[] converters;
+
+	private ConversionPlan(HM[] hms) {
+		this.size = hms.length;
+		this.steps = new HashMap<Object, int[]>();
+		this.newKeys = new String[hms.length];
+		this.converters = new Converter[hms.length];
+		for (int i = 0; i < hms.length; i++) {
+			HM hm = hms[i];
+			newKeys[i] = hm.getNewKey();
+			converters[i] = hm.getClazz() == null ? null : ConverterRegistry.getDefault().forTarget(hm.getClazz());
+			if (hm.getOldKey() == null) {
+				continue;
+			}
+			int[] indexes = steps.get(hm.getOldKey());
+			if (indexes == null) {
+				indexes = NO_STEPS;
+			}
+			int[] newIndexes = new int[indexes.length + 1];
+			System.arraycopy(indexes, 0, newIndexes, 0, indexes.length);
+			newIndexes[indexes.length] = i;
+			steps.put(hm.getOldKey(), newIndexes);
+		}
+	}
+
+	/**
+	 * 编译转换计划
+	 *
+	 * @param hms
+	 *            转换映射对象数组，按应用的顺序排列
+	 */
+	public static ConversionPlan compile(HM[] hms) {
+		return new ConversionPlan(hms);
+	}
+
+	/**
+	 * 编译转换计划
+	 *
+	 * @param hms
+	 *            转换映射对象列表，按应用的顺序排列
+	 */
+	public static ConversionPlan compile(List hms) {
+		return new ConversionPlan((HM[]) hms.toArray(new HM[0]));
+	}
+
+	/**
+	 * 转换一个Map，不修改原Map。
+	 *
+	 * @param map
+	 *            待转换的Map
+	 * @return 新的Map
+	 */
+	public Map apply(Map map) {
+		return apply(map, new HashMap());
+	}
+
+	/**
+	 * 转换一个Map，结果放入rs。
+	 *
+	 * @param map
+	 *            待转换的Map
+	 * @param rs
+	 *            存放结果的空Map
+	 * @return rs
+	 */
+	Map apply(Map map, Map rs) {
+		if (size == 0) {
+			return rs;
+		}
+		for (Iterator iterator = map.entrySet().iterator(); iterator.hasNext();) {
+			Map.Entry entry = (Map.Entry) iterator.next();
+			Object key = entry.getKey();
+			Object value = entry.getValue();
+			if (value == null) {
+				continue;
+			}
+			int next = 0;
+			int[] indexes;
+			while ((indexes = steps.get(key)) != null) {
+				int k = 0;
+				while (k < indexes.length && indexes[k] < next) {
+					k++;
+				}
+				if (k == indexes.length) {
+					break;
+				}
+				int i = indexes[k];
+				if (converters[i] != null) {
+					value = converters[i].convert(value);
+				}
+				if (newKeys[i] != null && !map.containsKey(newKeys[i])) {
+					rs.remove(key);
+					key = newKeys[i];
+				}
+				next = i + 1;
+			}
+			rs.put(key, value);
+		}
+		return rs;
+	}
+
+	/**
+	 * 返回逐行转换的迭代器，每次next()时才转换一行，不保留已转换的行。remove()删除rows中的当前行。
+	 *
+	 * @param rows
+	 *            Map的迭代器
+	 */
+	public Iterator iterator(final Iterator rows) {
+		return new Iterator() {
+			public boolean hasNext() {
+				return rows.hasNext();
+			}
+
+			public Object next() {
+				return apply((Map) rows.next());
+			}
+
+			public void remove() {
+				rows.remove();
+			}
+		};
+	}
+
+	/**
+	 * 返回逐行转换的流，与rows一样是延迟求值的，rows为并行流时并行转换。
+	 *
+	 * @param rows
+	 *            Map的流
+	 */
+	public Stream<Map> stream(Stream<? extends Map> rows) {
+		return rows.map(new Function<Map, Map>() {
+			public Map apply(Map row) {
+				return ConversionPlan.this.apply(row);
+			}
+		});
+	}
+
+	/**
+	 * 把列表中的每一行替换为转换结果，不创建新的列表，原来的行转换后即可被回收。
+	 *
+	 * @param rows
+	 *            形式为<code>List&lt;Map&gt;</code>，须支持set
+	 */
+	public void applyInPlace(List rows) {
+		for (ListIterator iterator = rows.listIterator(); iterator.hasNext();) {
+			iterator.set(apply((Map) iterator.next()));
+		}
+	}
+
+	/**
+	 * 使用{@link #DEFAULT_PARALLEL_THRESHOLD}并行转换。
+	 *
+	 * @see #applyInPlaceParallel(List, int)
+	 */
+	public void applyInPlaceParallel(List rows) {
+		applyInPlaceParallel(rows, DEFAULT_PARALLEL_THRESHOLD);
+	}
+
+	/**
+	 * 在公共ForkJoinPool中并行地把列表中的每一行替换为转换结果。列表不支持随机访问或行数不超过threshold时在当前线程处理。
+	 *
+	 * @param rows
+	 *            形式为<code>List&lt;Map&gt;</code>，须支持set，转换期间不能修改
+	 * @param threshold
+	 *            每个子任务处理的最多行数
+	 * @throws IllegalArgumentException
+	 *             threshold不是正数
+	 */
+	public void applyInPlaceParallel(List rows, int threshold) {
+		if (threshold <= 0) {
+			throw new IllegalArgumentException("threshold must be positive: " + threshold);
+		}
+		if (rows.size() <= threshold || !(rows instanceof RandomAccess)) {
+			applyInPlace(rows);
+			return;
+		}
+		ForkJoinPool.commonPool().invoke(new ApplyTask(rows, 0, rows.size(), threshold));
+	}
+
+	/**
+	 * 并行转换子任务，处理[from, to)行，各子任务写入互不重叠的位置。
+	 */
+	private final class ApplyTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final List rows;
+		private final int from;
+		private final int to;
+		private final int threshold;
+
+		ApplyTask(List rows, int from, int to, int threshold) {
+			this.rows = rows;
+			this.from = from;
+			this.to = to;
+			this.threshold = threshold;
+		}
+
+		protected void compute() {
+			if (to - from <= threshold) {
+				for (int i = from; i < to; i++) {
+					rows.set(i, apply((Map) rows.get(i)));
+				}
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new ApplyTask(rows, from, mid, threshold), new ApplyTask(rows, mid, to, threshold));
+		}
+	}
+}
@@ -0,0 +1,20 @@
+package org.scorpio.octopus.utils;
+
+/**
+ * 把值转换为某一目标类型，可以注册到{@link ConverterRegistry}中供{@link CastUtil#castValue(Object, Class)}使用。
+ * <p>
+ * 实现应是线程安全的。
+ * </p>
+ *
+ * @see ConverterRegistry#register(Class, Class, Converter)
+ */
+public interface Converter {
+	/**
+	 * 转换一个值
+	 *
+	 * @param value
+	 *            待转换的值，不为null
+	 * @return 转换后的值，不能转换时返回null
+	 */
+	Object convert(Object value);
+}
@@ -0,0 +1,290 @@
+package org.scorpio.octopus.utils;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 按(源类型, 目标类型)选择值转换器。
+ * <p>
+ * 选择的顺序：
+ * <ol>
+ * <li>为源类型或其父类、接口注册的转换器(先父类链，后接口，越近越优先)；</li>
+ * <li>{@link CastUtil}内置的String、数值、Boolean、Date转换；</li>
+ * <li>值已是目标类型的实例时原样返回；</li>
+ * <li>BigDecimal、BigInteger及枚举(按名字或序号)；</li>
+ * <li>以上都不适用时结果为null。</li>
+ * </ol>
+ * 选择结果按源类型用{@link ClassValue}缓存，之后同样的类型组合只需两次查表。注册新的转换器时清空缓存。
+ * 基本类型的目标类型按对应的包装类处理。
+ * </p>
+ * <p>
+ * #ThreadSafe#
+ * </p>
+ *
+ * @see CastUtil#castValue(Object, Class)
+ */
+public final class ConverterRegistry {
+	private static final ConverterRegistry DEFAULT = new ConverterRegistry();
+
+	private static final Converter NONE = new Converter() {
+		public Object convert(Object value) {
+			return null;
+		}
+	};
+
+	private static final Converter IDENTITY = new Converter() {
+		public Object convert(Object value) {
+			return value;
+		}
+	};
+
+	/**
+	 * 注册的转换器：源类型到(目标类型到转换器)的映射，注册时整体替换
+	 */
+	private volatile Map<Class<?>, Map<Class<?>, Converter>> registered = Collections.emptyMap();
+	private volatile ClassValue<ConcurrentMap<Class<?>, Converter>> cache = newCache();
+
+	/**
+	 * {@link CastUtil#castValue(Object, Class)}使用的注册表
+	 */
+	public static ConverterRegistry getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * 注册转换器，覆盖同一(源类型, 目标类型)之前注册的转换器。
+	 *
+	 * @param source
+	 *            源类型，也用于其子类及实现类
+	 * @param target
+	 *            目标类型
+	 * @param converter
+	 *            转换器
+	 * @throws IllegalArgumentException
+	 *             参数为null
+	 */
+	public synchronized void register(Class<?> source, Class<?> target, Converter converter) {
+		if (source == null || target == null || converter == null) {
+			throw new IllegalArgumentException("source, target and converter must not be null");
+		}
+		Map<Class<?>, Map<Class<?>, Converter>> copy = new HashMap<Class<?>, Map<Class<?>, Converter>>(registered);
+		Map<Class<?>, Converter> byTarget = copy.get(source);
+		byTarget = byTarget == null ? new HashMap<Class<?>, Converter>() : new HashMap<Class<?>, Converter>(byTarget);
+		byTarget.put(wrap(target), converter);
+		copy.put(source, byTarget);
+		// 先替换注册表再替换缓存，读到新缓存的线程一定能读到新注册表
+		registered = copy;
+		cache = newCache();
+	}
+
+	/**
+	 * 把值转换为目标类型
+	 *
+	 * @param value
+	 *            待转换的值
+	 * @param target
+	 *            目标类型
+	 * @return 转换后的值，value或target为null、不能转换时返回null
+	 */
+	public Object convert(Object value, Class<?> target) {
+		if (value == null || target == null) {
+			return null;
+		}
+		return find(value.getClass(), target).convert(value);
+	}
+
+	/**
+	 * 返回由源类型转换为目标类型的转换器，不能转换时返回的转换器总是返回null。
+	 *
+	 * @param source
+	 *            源类型
+	 * @param target
+	 *            目标类型
+	 */
+	public Converter find(Class<?> source, Class<?> target) {
+		ConcurrentMap<Class<?>, Converter> byTarget = cache.get(source);
+		Converter converter = byTarget.get(target);
+		if (converter == null) {
+			converter = resolve(source, target);
+			byTarget.putIfAbsent(target, converter);
+		}
+		return converter;
+	}
+
+	/**
+	 * 返回转换为目标类型的转换器，按每个值的实际类型选择，值为null时返回null。
+	 */
+	public Converter forTarget(final Class<?> target) {
+		return new Converter() {
+			public Object convert(Object value) {
+				return ConverterRegistry.this.convert(value, target);
+			}
+		};
+	}
+
+	private Converter resolve(Class<?> source, Class<?> target) {
+		Class<?> wrapped = wrap(target);
+		Map<Class<?>, Map<Class<?>, Converter>> registered = this.registered;
+		if (!registered.isEmpty()) {
+			List<Class<?>> interfaces = new ArrayList<Class<?>>();
+			for (Class<?> c = source; c != null; c = c.getSuperclass()) {
+				Converter converter = registered(registered, c, wrapped);
+				if (converter != null) {
+					return converter;
+				}
+				interfaces.addAll(Arrays.asList(c.getInterfaces()));
+			}
+			for (int i = 0; i < interfaces.size(); i++) {
+				Class<?> c = interfaces.get(i);
+				Converter converter = registered(registered, c, wrapped);
+				if (converter != null) {
+					return converter;
+				}
+				interfaces.addAll(Arrays.asList(c.getInterfaces()));
+			}
+		}
+
+		Converter converter = CastUtil.converter(target);
+		if (converter != null) {
+			return converter;
+		}
+		if (wrapped.isAssignableFrom(source)) {
+			return IDENTITY;
+		}
+		if (wrapped == BigDecimal.class) {
+			return BigConverter.DECIMAL;
+		}
+		if (wrapped == BigInteger.class) {
+			return BigConverter.INTEGER;
+		}
+		if (wrapped.isEnum()) {
+			return new EnumConverter(wrapped);
+		}
+		return NONE;
+	}
+
+	private static Converter registered(Map<Class<?>, Map<Class<?>, Converter>> registered, Class<?> source,
+			Class<?> target) {
+		Map<Class<?>, Converter> byTarget = registered.get(source);
+		return byTarget == null ? null : byTarget.get(target);
+	}
+
+	private static ClassValue<ConcurrentMap<Class<?>, Converter>> newCache() {
+		return new ClassValue<ConcurrentMap<Class<?>, Converter>>() {
+			protected ConcurrentMap<Class<?>, Converter> computeValue(Class<?> type) {
+				return new ConcurrentHashMap<Class<?>, Converter>();
+			}
+		};
+	}
+
+	private static Class<?> wrap(Class<?> type) {
+		if (!type.isPrimitive()) {
+			return type;
+		}
+		if (type == Integer.TYPE) {
+			return Integer.class;
+		} else if (type == Long.TYPE) {
+			return Long.class;
+		} else if (type == Double.TYPE) {
+			return Double.class;
+		} else if (type == Boolean.TYPE) {
+			return Boolean.class;
+		} else if (type == Float.TYPE) {
+			return Float.class;
+		} else if (type == Short.TYPE) {
+			return Short.class;
+		} else if (type == Byte.TYPE) {
+			return Byte.class;
+		} else if (type == Character.TYPE) {
+			return Character.class;
+		}
+		return Void.class;
+	}
+
+	/**
+	 * 转换为BigDecimal、BigInteger：数值直接转换(BigInteger截去小数)，其余按去掉首尾空白的字符串解析
+	 */
+	private enum BigConverter implements Converter {
+		DECIMAL {
+			public Object convert(Object value) {
+				if (value instanceof BigInteger) {
+					return new BigDecimal((BigInteger) value);
+				}
+				if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+					return BigDecimal.valueOf(((Number) value).longValue());
+				}
+				return parse(value);
+			}
+		},
+		INTEGER {
+			public Object convert(Object value) {
+				if (value instanceof BigDecimal) {
+					return ((BigDecimal) value).toBigInteger();
+				}
+				if (value instanceof Double || value instanceof Float) {
+					BigDecimal decimal = parse(value);
+					return decimal == null ? null : decimal.toBigInteger();
+				}
+				if (value instanceof Number) {
+					return BigInteger.valueOf(((Number) value).longValue());
+				}
+				String s = CastUtil.toNotEmptyString(value);
+				if (s == null) {
+					return null;
+				}
+				try {
+					return new BigInteger(s);
+				} catch (NumberFormatException e) {
+					return null;
+				}
+			}
+		};
+
+		static BigDecimal parse(Object value) {
+			String s = CastUtil.toNotEmptyString(value);
+			if (s == null) {
+				return null;
+			}
+			try {
+				return new BigDecimal(s);
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * 转换为枚举：字符串按常量名(去掉首尾空白)，整数按序号
+	 */
+	private static final class EnumConverter implements Converter {
+		private final Object[] constants;
+
+		EnumConverter(Class<?> type) {
+			this.constants = type.getEnumConstants();
+		}
+
+		public Object convert(Object value) {
+			if (value instanceof Number) {
+				long ordinal = ((Number) value).longValue();
+				return ordinal >= 0 && ordinal < constants.length ? constants[(int) ordinal] : null;
+			}
+			String name = CastUtil.toNotEmptyString(value);
+			if (name != null) {
+				for (int i = 0; i < constants.length; i++) {
+					if (((Enum<?>) constants[i]).name().equals(name)) {
+						return constants[i];
+					}
+				}
+			}
+			return null;
+		}
+	}
+}
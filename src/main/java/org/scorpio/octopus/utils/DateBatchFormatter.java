@@ -0,0 +1,339 @@
+package org.scorpio.octopus.utils;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 批量格式化<code>List&lt;Map&gt;</code>中的日期值，用于很大的查询结果集。
+ * <p>
+ * 创建时一次性取得默认格式及按key指定的格式对应的格式化器，处理每个值时不再查找。行数超过阈值时按行切分，
+ * 在公共ForkJoinPool中并行处理。可以原地把Map中的日期值替换为字符串({@link #format(List)})，
+ * 也可以不修改原数据，生成按列存放的结果({@link #formatColumns(List)})。
+ * </p>
+ * <p>
+ * 与{@link DateFormatUtil#batchFormat(List)}一样，值为<code>List</code>时其中的Map也会被格式化；
+ * 列表中不是Map的元素被忽略。并行原地格式化时列表中不能有同一个Map对象出现多次。
+ * </p>
+ * <p>
+ * 实例不可变。#ThreadSafe#
+ * </p>
+ *
+ * @see DateFormatUtil#batchFormat(List)
+ */
+public final class DateBatchFormatter {
+	/**
+	 * 并行格式化时每个子任务处理的默认最少行数
+	 */
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 4096;
+
+	private final FastDateFormat defaultFormat;
+	private final Map<Object, FastDateFormat> keyFormats;
+	private final int threshold;
+
+	/**
+	 * 所有日期值使用同一格式，使用默认时区及地区。
+	 *
+	 * @param pattern
+	 *            日期格式
+	 * @throws IllegalArgumentException
+	 *             格式为null或格式错误
+	 */
+	public DateBatchFormatter(String pattern) {
+		this(pattern, null, null, null, DEFAULT_PARALLEL_THRESHOLD);
+	}
+
+	/**
+	 * 按key指定格式，使用默认时区及地区。
+	 *
+	 * @param pattern
+	 *            日期值的默认格式
+	 * @param keyPatterns
+	 *            key到格式的映射，覆盖默认格式，可以为null
+	 * @throws IllegalArgumentException
+	 *             格式为null或格式错误
+	 */
+	public DateBatchFormatter(String pattern, Map<?, String> keyPatterns) {
+		this(pattern, keyPatterns, null, null, DEFAULT_PARALLEL_THRESHOLD);
+	}
+
+	/**
+	 * @param pattern
+	 *            日期值的默认格式
+	 * @param keyPatterns
+	 *            key到格式的映射，覆盖默认格式，可以为null
+	 * @param timeZone
+	 *            时区，为null时使用默认时区
+	 * @param locale
+	 *            地区，为null时使用默认地区
+	 * @param threshold
+	 *            每个子任务处理的最少行数，行数不超过该值时直接在当前线程处理
+	 * @throws IllegalArgumentException
+	 *             格式为null、格式错误或threshold不是正数
+	 */
+	public DateBatchFormatter(String pattern, Map<?, String> keyPatterns, TimeZone timeZone, Locale locale,
+			int threshold) {
+		if (threshold <= 0) {
+			throw new IllegalArgumentException("threshold must be positive: " + threshold);
+		}
+		this.defaultFormat = FastDateFormat.getInstance(pattern, timeZone, locale);
+		this.keyFormats = new HashMap<Object, FastDateFormat>();
+		if (keyPatterns != null) {
+			for (Iterator<? extends Map.Entry<?, String>> it = keyPatterns.entrySet().iterator(); it.hasNext();) {
+				Map.Entry<?, String> entry = it.next();
+				keyFormats.put(entry.getKey(), FastDateFormat.getInstance(entry.getValue(), timeZone, locale));
+			}
+		}
+		this.threshold = threshold;
+	}
+
+	/**
+	 * 原地格式化列表中每个Map的日期值，行数超过阈值时并行处理。
+	 *
+	 * @param rows
+	 *            形式为<code>List&lt;Map&gt;</code>
+	 */
+	public void format(List rows) {
+		int size = rows.size();
+		if (size <= threshold) {
+			for (int i = 0; i < size; i++) {
+				formatRow(rows.get(i));
+			}
+			return;
+		}
+		Object[] array = rows instanceof RandomAccess ? null : rows.toArray();
+		ForkJoinPool.commonPool().invoke(new FormatTask(rows, array, 0, size));
+	}
+
+	/**
+	 * 原地格式化Map中的日期值。
+	 *
+	 * @param row
+	 *            待格式化的Map
+	 */
+	public void format(Map row) {
+		for (Iterator it = row.entrySet().iterator(); it.hasNext();) {
+			Map.Entry entry = (Map.Entry) it.next();
+			Object value = entry.getValue();
+			if (value instanceof Date) {
+				entry.setValue(getFormat(entry.getKey()).format((Date) value));
+			} else if (value instanceof List) {
+				List list = (List) value;
+				for (int i = 0; i < list.size(); i++) {
+					formatRow(list.get(i));
+				}
+			}
+		}
+	}
+
+	/**
+	 * 不修改原数据，生成按列存放的格式化结果。
+	 * <p>
+	 * 结果按各key在列表中首次出现的顺序排列，每列的长度等于行数，第i个元素是第i行该key的值，
+	 * 日期值替换为字符串，<code>List&lt;Map&gt;</code>值替换为格式化后的副本；行中没有该key或该行不是Map时为null。
+	 * 行数超过阈值时并行处理。
+	 * </p>
+	 *
+	 * @param rows
+	 *            形式为<code>List&lt;Map&gt;</code>
+	 * @return key到列的映射
+	 */
+	public Map<Object, Object[]> formatColumns(List rows) {
+		int size = rows.size();
+		Object[] array = size <= threshold || rows instanceof RandomAccess ? null : rows.toArray();
+		Set<Object> keys;
+		if (size <= threshold) {
+			keys = collectKeys(rows, array, 0, size);
+		} else {
+			keys = ForkJoinPool.commonPool().invoke(new KeysTask(rows, array, 0, size));
+		}
+
+		Map<Object, Integer> indexes = new HashMap<Object, Integer>();
+		Object[][] columns = new Object[keys.size()][];
+		Map<Object, Object[]> result = new LinkedHashMap<Object, Object[]>();
+		for (Iterator<Object> it = keys.iterator(); it.hasNext();) {
+			Object key = it.next();
+			Object[] column = new Object[size];
+			indexes.put(key, Integer.valueOf(result.size()));
+			columns[result.size()] = column;
+			result.put(key, column);
+		}
+
+		if (size <= threshold) {
+			fillColumns(rows, array, 0, size, indexes, columns);
+		} else {
+			ForkJoinPool.commonPool().invoke(new ColumnsTask(rows, array, 0, size, indexes, columns));
+		}
+		return result;
+	}
+
+	private FastDateFormat getFormat(Object key) {
+		if (keyFormats.isEmpty()) {
+			return defaultFormat;
+		}
+		FastDateFormat format = keyFormats.get(key);
+		return format == null ? defaultFormat : format;
+	}
+
+	private void formatRow(Object row) {
+		if (row instanceof Map) {
+			format((Map) row);
+		}
+	}
+
+	/**
+	 * 返回值的格式化结果，不修改原数据
+	 */
+	private Object formatValue(Object key, Object value) {
+		if (value instanceof Date) {
+			return getFormat(key).format((Date) value);
+		} else if (value instanceof List) {
+			List list = (List) value;
+			List copy = new ArrayList(list.size());
+			for (int i = 0; i < list.size(); i++) {
+				Object element = list.get(i);
+				if (element instanceof Map) {
+					Map map = new LinkedHashMap((Map) element);
+					format(map);
+					element = map;
+				}
+				copy.add(element);
+			}
+			return copy;
+		}
+		return value;
+	}
+
+	private static Object row(List rows, Object[] array, int i) {
+		return array == null ? rows.get(i) : array[i];
+	}
+
+	private static Set<Object> collectKeys(List rows, Object[] array, int from, int to) {
+		Set<Object> keys = new LinkedHashSet<Object>();
+		for (int i = from; i < to; i++) {
+			Object row = row(rows, array, i);
+			if (row instanceof Map) {
+				keys.addAll(((Map) row).keySet());
+			}
+		}
+		return keys;
+	}
+
+	private void fillColumns(List rows, Object[] array, int from, int to, Map<Object, Integer> indexes,
+			Object[][] columns) {
+		for (int i = from; i < to; i++) {
+			Object row = row(rows, array, i);
+			if (!(row instanceof Map)) {
+				continue;
+			}
+			for (Iterator it = ((Map) row).entrySet().iterator(); it.hasNext();) {
+				Map.Entry entry = (Map.Entry) it.next();
+				Object key = entry.getKey();
+				columns[indexes.get(key).intValue()][i] = formatValue(key, entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * 并行原地格式化子任务，处理[from, to)行。
+	 */
+	private final class FormatTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final List rows;
+		private final Object[] array;
+		private final int from;
+		private final int to;
+
+		FormatTask(List rows, Object[] array, int from, int to) {
+			this.rows = rows;
+			this.array = array;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			if (to - from <= threshold) {
+				for (int i = from; i < to; i++) {
+					formatRow(row(rows, array, i));
+				}
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new FormatTask(rows, array, from, mid), new FormatTask(rows, array, mid, to));
+		}
+	}
+
+	/**
+	 * 并行收集key的子任务，合并时保持key首次出现的顺序。
+	 */
+	private final class KeysTask extends RecursiveTask<Set<Object>> {
+		private static final long serialVersionUID = 1L;
+		private final List rows;
+		private final Object[] array;
+		private final int from;
+		private final int to;
+
+		KeysTask(List rows, Object[] array, int from, int to) {
+			this.rows = rows;
+			this.array = array;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected Set<Object> compute() {
+			if (to - from <= threshold) {
+				return collectKeys(rows, array, from, to);
+			}
+			int mid = (from + to) >>> 1;
+			KeysTask right = new KeysTask(rows, array, mid, to);
+			right.fork();
+			Set<Object> keys = new KeysTask(rows, array, from, mid).compute();
+			keys.addAll(right.join());
+			return keys;
+		}
+	}
+
+	/**
+	 * 并行填充列的子任务，各子任务写入各列中互不重叠的[from, to)区间。
+	 */
+	private final class ColumnsTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final List rows;
+		private final Object[] array;
+		private final int from;
+		private final int to;
+		private final Map<Object, Integer> indexes;
+		private final Object[][] columns;
+
+		ColumnsTask(List rows, Object[] array, int from, int to, Map<Object, Integer> indexes, Object[][] columns) {
+			this.rows = rows;
+			this.array = array;
+			this.from = from;
+			this.to = to;
+			this.indexes = indexes;
+			this.columns = columns;
+		}
+
+		protected void compute() {
+			if (to - from <= threshold) {
+				fillColumns(rows, array, from, to, indexes, columns);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new ColumnsTask(rows, array, from, mid, indexes, columns), new ColumnsTask(rows, array, mid,
+					to, indexes, columns));
+		}
+	}
+}
@@ -0,0 +1,359 @@
+package org.scorpio.octopus.utils;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 批量截断、四舍五入时刻及计算时刻所在的桶，结果与逐个调用{@link DateUtil.Millis#truncate(long, int, TimeZone)}、
+ * {@link DateUtil.Millis#round(long, int, TimeZone)}相同。
+ * <p>
+ * 时刻及结果前后两天内时区偏移不变时直接由本地时间的余数计算；按月、年计算时，从本地月初(年初)到时刻都在同一偏移区间内的结果
+ * 只取决于月份(年份)及是否进位，按此缓存，区间内有偏移变化时逐个计算；
+ * 靠近偏移变化的时刻按Calendar的规则逐个计算。当前的无偏移变化区间被后续时刻复用，所以按时间排序的数据最快。
+ * </p>
+ * <p>
+ * 实例保存上一次计算的区间及结果，只能在一个线程中使用；静态的批量方法为每个子任务创建各自的实例。
+ * </p>
+ *
+ * @see DateUtil.Millis#truncateAll(long[], long[], int, TimeZone)
+ */
+final class DateBucketer {
+	private static final long MILLIS_PER_SECOND = 1000;
+	private static final long MILLIS_PER_MINUTE = 60 * MILLIS_PER_SECOND;
+	private static final long MILLIS_PER_HOUR = 60 * MILLIS_PER_MINUTE;
+	private static final long MILLIS_PER_DAY = 24 * MILLIS_PER_HOUR;
+	/**
+	 * 直接计算时要求偏移不变的范围，大于按本地时间计算时刻时查看的范围(18小时)与最大时区偏移之和
+	 */
+	private static final long MARGIN = 2 * MILLIS_PER_DAY;
+
+	private final TimeZone zone;
+	private final ZoneTransitions transitions;
+	private final int field;
+	private final int modType;
+	/**
+	 * 秒、分、时、日对应的本地时间长度，月、年为0
+	 */
+	private final long unit;
+
+	/**
+	 * 上一个时刻所在的偏移不变区间[quietStart, quietEnd)及其偏移，不在变化表范围内时区间为空
+	 */
+	private long quietStart = Long.MAX_VALUE;
+	private long quietEnd = Long.MIN_VALUE;
+	private int quietOffset;
+
+	/**
+	 * 按月、年计算时上一个本地日期、月份(年份)及结果
+	 */
+	private long memoDay = Long.MIN_VALUE;
+	private long memoKey = -1;
+	private long memoValue;
+
+	/**
+	 * @param zone
+	 *            时区，不能为null
+	 * @param field
+	 *            {@link Calendar}的MILLISECOND、SECOND、MINUTE、HOUR_OF_DAY(HOUR)、DATE(DAY_OF_MONTH)、MONTH或YEAR
+	 * @param modType
+	 *            DateUtil的MODIFY_TRUNCATE、MODIFY_ROUND或MODIFY_CEILING
+	 * @throws IllegalArgumentException
+	 *             不支持的字段
+	 */
+	DateBucketer(TimeZone zone, int field, int modType) {
+		switch (field) {
+		case Calendar.MILLISECOND:
+			unit = 1;
+			break;
+		case Calendar.SECOND:
+			unit = MILLIS_PER_SECOND;
+			break;
+		case Calendar.MINUTE:
+			unit = MILLIS_PER_MINUTE;
+			break;
+		case Calendar.HOUR_OF_DAY:
+		case Calendar.HOUR:
+			unit = MILLIS_PER_HOUR;
+			break;
+		case Calendar.DATE:
+			unit = MILLIS_PER_DAY;
+			break;
+		case Calendar.MONTH:
+		case Calendar.YEAR:
+			unit = 0;
+			break;
+		default:
+			throw new IllegalArgumentException("The field " + field + " is not supported");
+		}
+		this.zone = zone;
+		this.transitions = ZoneTransitions.getInstance(zone);
+		this.field = field;
+		this.modType = modType;
+	}
+
+	/**
+	 * 按构造时指定的字段及方式计算一个时刻。
+	 */
+	long apply(long millis) {
+		if (field == Calendar.MILLISECOND) {
+			return millis;
+		}
+		if (millis < quietStart || millis >= quietEnd) {
+			quietStart = transitions.segmentStart(millis);
+			quietEnd = transitions.segmentEnd(millis);
+			quietOffset = transitions.getOffset(millis);
+			if (quietStart > quietEnd) {
+				return DateUtil.Millis.modify(millis, field, zone, modType);
+			}
+		}
+		long local = millis + quietOffset;
+		if (unit != 0) {
+			long start = millis - Math.floorMod(local, unit);
+			long result = start;
+			if (modType == DateUtil.MODIFY_CEILING || modType == DateUtil.MODIFY_ROUND && millis - start >= unit / 2) {
+				result += unit;
+			}
+			if (start - MARGIN >= quietStart && Math.max(millis, result) + MARGIN < quietEnd) {
+				return result;
+			}
+			return DateUtil.Millis.modify(millis, field, zone, modType);
+		}
+
+		long day = Math.floorDiv(local, MILLIS_PER_DAY);
+		if (day * MILLIS_PER_DAY - quietOffset - MARGIN < quietStart || millis + MARGIN >= quietEnd) {
+			return DateUtil.Millis.modify(millis, field, zone, modType);
+		}
+		if (day == memoDay) {
+			return memoValue;
+		}
+		int civil = DateUtil.Millis.civil(day);
+		int year = civil >> 9;
+		int month = civil >> 5 & 15;
+		boolean roundUp;
+		long key;
+		long periodDay;
+		if (field == Calendar.MONTH) {
+			roundUp = (civil & 31) - 1 > (DateUtil.Millis.daysInMonth(year, month) - 1) / 2;
+			key = year * 12L + month;
+			periodDay = day - (civil & 31) + 1;
+		} else {
+			roundUp = month > 5;
+			key = year;
+			periodDay = DateUtil.Millis.daysFromCivil(year, Calendar.JANUARY, 1);
+		}
+		// 从月初(年初)到时刻都在同一偏移区间内时，截断的每一步都是本地时间的简单减法，结果只取决于月份(年份)及是否进位；
+		// 否则与Calendar一样依赖各步所在的偏移，逐个计算
+		if (periodDay * MILLIS_PER_DAY - quietOffset - MARGIN < quietStart) {
+			return DateUtil.Millis.modify(millis, field, zone, modType);
+		}
+		key = modType == DateUtil.MODIFY_ROUND && roundUp ? key << 1 | 1 : key << 1;
+		if (key != memoKey) {
+			memoValue = DateUtil.Millis.modify(millis, field, zone, modType);
+			memoKey = key;
+		}
+		memoDay = day;
+		return memoValue;
+	}
+
+	/**
+	 * 按日、月、年计算时返回结果的本地日期、月份或年份的序号
+	 */
+	private long ordinal(long millis) {
+		long bucket = apply(millis);
+		int offset = bucket >= quietStart && bucket < quietEnd ? quietOffset : transitions.getOffset(bucket);
+		long day = Math.floorDiv(bucket + offset, MILLIS_PER_DAY);
+		if (field == Calendar.DATE) {
+			return day;
+		}
+		int civil = DateUtil.Millis.civil(day);
+		return field == Calendar.MONTH ? (civil >> 9) * 12L + (civil >> 5 & 15) : civil >> 9;
+	}
+
+	/**
+	 * 返回时刻所在桶相对起点所在桶的序号，相邻的桶相差1：秒、分、时按经过的时间计算，日、月、年按本地日历计算。
+	 */
+	private long index(long millis, long origin, long originOrdinal) {
+		if (unit == 0 || unit == MILLIS_PER_DAY) {
+			return ordinal(millis) - originOrdinal;
+		}
+		return Math.floorDiv(apply(millis) - origin, unit);
+	}
+
+	static void applyAll(long[] in, long[] out, TimeZone zone, int field, int modType, int threshold) {
+		DateBucketer bucketer = checkArguments(in, out, zone, field, modType, threshold);
+		if (in.length <= threshold) {
+			bucketer.apply(in, out, 0, in.length);
+		} else {
+			ForkJoinPool.commonPool().invoke(new ApplyTask(in, out, zone, field, modType, 0, 0, in.length, threshold));
+		}
+	}
+
+	static void indexAll(long[] in, long[] out, long origin, TimeZone zone, int field, int threshold) {
+		DateBucketer bucketer = checkArguments(in, out, zone, field, DateUtil.MODIFY_TRUNCATE, threshold);
+		if (in.length <= threshold) {
+			bucketer.index(in, out, origin, 0, in.length);
+		} else {
+			ForkJoinPool.commonPool().invoke(
+					new ApplyTask(in, out, zone, field, -1, origin, 0, in.length, threshold));
+		}
+	}
+
+	static int[] histogram(long[] in, long from, long to, TimeZone zone, int field, int threshold) {
+		if (to < from) {
+			throw new IllegalArgumentException("to is before from: " + to + " < " + from);
+		}
+		DateBucketer bucketer = checkArguments(in, in, zone, field, DateUtil.MODIFY_TRUNCATE, threshold);
+		long origin = bucketer.apply(from);
+		long count = bucketer.index(to, origin, bucketer.ordinal(from)) + 1;
+		if (count > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Too many buckets: " + count);
+		}
+		if (in.length <= threshold) {
+			int[] counts = new int[(int) count];
+			bucketer.count(in, from, to, counts, 0, in.length);
+			return counts;
+		}
+		if (count > threshold) {
+			// 桶很多时每个子任务各用一个数组太大，改为并行计算序号后再统计
+			long[] indexes = new long[in.length];
+			ForkJoinPool.commonPool().invoke(new ApplyTask(in, indexes, zone, field, -1, from, 0, in.length, threshold));
+			int[] counts = new int[(int) count];
+			for (int i = 0; i < in.length; i++) {
+				if (in[i] >= from && in[i] <= to) {
+					counts[(int) indexes[i]]++;
+				}
+			}
+			return counts;
+		}
+		return ForkJoinPool.commonPool().invoke(
+				new HistogramTask(in, from, to, zone, field, (int) count, 0, in.length, threshold));
+	}
+
+	private static DateBucketer checkArguments(long[] in, long[] out, TimeZone zone, int field, int modType,
+			int threshold) {
+		if (threshold <= 0) {
+			throw new IllegalArgumentException("threshold must be positive: " + threshold);
+		}
+		if (out.length < in.length) {
+			throw new IllegalArgumentException("Output array too short: " + out.length + " < " + in.length);
+		}
+		return new DateBucketer(zone, field, modType);
+	}
+
+	private void apply(long[] in, long[] out, int from, int to) {
+		for (int i = from; i < to; i++) {
+			out[i] = apply(in[i]);
+		}
+	}
+
+	private void index(long[] in, long[] out, long origin, int from, int to) {
+		long bucket = apply(origin);
+		long originOrdinal = ordinal(origin);
+		for (int i = from; i < to; i++) {
+			out[i] = index(in[i], bucket, originOrdinal);
+		}
+	}
+
+	private void count(long[] in, long start, long end, int[] counts, int from, int to) {
+		long origin = apply(start);
+		long originOrdinal = ordinal(start);
+		for (int i = from; i < to; i++) {
+			long millis = in[i];
+			if (millis >= start && millis <= end) {
+				counts[(int) index(millis, origin, originOrdinal)]++;
+			}
+		}
+	}
+
+	/**
+	 * 并行计算[from, to)的子任务，modType为-1时计算相对origin的桶序号。
+	 */
+	private static final class ApplyTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final long[] in;
+		private final long[] out;
+		private final TimeZone zone;
+		private final int field;
+		private final int modType;
+		private final long origin;
+		private final int from;
+		private final int to;
+		private final int threshold;
+
+		ApplyTask(long[] in, long[] out, TimeZone zone, int field, int modType, long origin, int from, int to,
+				int threshold) {
+			this.in = in;
+			this.out = out;
+			this.zone = zone;
+			this.field = field;
+			this.modType = modType;
+			this.origin = origin;
+			this.from = from;
+			this.to = to;
+			this.threshold = threshold;
+		}
+
+		protected void compute() {
+			if (to - from <= threshold) {
+				if (modType < 0) {
+					new DateBucketer(zone, field, DateUtil.MODIFY_TRUNCATE).index(in, out, origin, from, to);
+				} else {
+					new DateBucketer(zone, field, modType).apply(in, out, from, to);
+				}
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new ApplyTask(in, out, zone, field, modType, origin, from, mid, threshold), new ApplyTask(in,
+					out, zone, field, modType, origin, mid, to, threshold));
+		}
+	}
+
+	/**
+	 * 并行统计[from, to)的子任务，合并时逐桶相加。
+	 */
+	private static final class HistogramTask extends RecursiveTask<int[]> {
+		private static final long serialVersionUID = 1L;
+		private final long[] in;
+		private final long start;
+		private final long end;
+		private final TimeZone zone;
+		private final int field;
+		private final int count;
+		private final int from;
+		private final int to;
+		private final int threshold;
+
+		HistogramTask(long[] in, long start, long end, TimeZone zone, int field, int count, int from, int to,
+				int threshold) {
+			this.in = in;
+			this.start = start;
+			this.end = end;
+			this.zone = zone;
+			this.field = field;
+			this.count = count;
+			this.from = from;
+			this.to = to;
+			this.threshold = threshold;
+		}
+
+		protected int[] compute() {
+			if (to - from <= threshold) {
+				int[] counts = new int[count];
+				new DateBucketer(zone, field, DateUtil.MODIFY_TRUNCATE).count(in, start, end, counts, from, to);
+				return counts;
+			}
+			int mid = (from + to) >>> 1;
+			HistogramTask right = new HistogramTask(in, start, end, zone, field, count, mid, to, threshold);
+			right.fork();
+			int[] counts = new HistogramTask(in, start, end, zone, field, count, from, mid, threshold).compute();
+			int[] rightCounts = right.join();
+			for (int i = 0; i < count; i++) {
+				counts[i] += rightCounts[i];
+			}
+			return counts;
+		}
+	}
+}
@@ -17,10 +17,9 @@ package org.scorpio.octopus.utils;
  * limitations under the License.
  */
 
+import java.io.IOException;
 import java.util.Calendar;
-import java.util.Collection;
 import java.util.Date;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -68,7 +67,7 @@ public class DateFormatUtil {
 	 * @return the formatted date
 	 */
 	public static String formatUTC(long millis, String pattern) {
-		return format(new Date(millis), pattern, DateUtil.UTC_TIME_ZONE, null);
+		return format(millis, pattern, DateUtil.UTC_TIME_ZONE, null);
 	}
 
 	/**
@@ -101,7 +100,7 @@ public class DateFormatUtil {
 	 * @return the formatted date
 	 */
 	public static String formatUTC(long millis, String pattern, Locale locale) {
-		return format(new Date(millis), pattern, DateUtil.UTC_TIME_ZONE, locale);
+		return format(millis, pattern, DateUtil.UTC_TIME_ZONE, locale);
 	}
 
 	/**
@@ -134,7 +133,7 @@ public class DateFormatUtil {
 	 * @return the formatted date
 	 */
 	public static String format(long millis, String pattern) {
-		return format(new Date(millis), pattern, null, null);
+		return format(millis, pattern, null, null);
 	}
 
 	/**
@@ -185,7 +184,7 @@ public class DateFormatUtil {
 	 * @return the formatted date
 	 */
 	public static String format(long millis, String pattern, TimeZone timeZone) {
-		return format(new Date(millis), pattern, timeZone, null);
+		return format(millis, pattern, timeZone, null);
 	}
 
 	/**
@@ -236,7 +235,7 @@ public class DateFormatUtil {
 	 * @return the formatted date
 	 */
 	public static String format(long millis, String pattern, Locale locale) {
-		return format(new Date(millis), pattern, null, locale);
+		return format(millis, pattern, null, locale);
 	}
 
 	/**
@@ -289,7 +288,7 @@ public class DateFormatUtil {
 	 * @return the formatted date
 	 */
 	public static String format(long millis, String pattern, TimeZone timeZone, Locale locale) {
-		return format(new Date(millis), pattern, timeZone, locale);
+		return getFormat(pattern, timeZone, locale).format(millis);
 	}
 
 	/**
@@ -308,8 +307,7 @@ public class DateFormatUtil {
 	 * @return the formatted date
 	 */
 	public static String format(Date date, String pattern, TimeZone timeZone, Locale locale) {
-		FastDateFormat df = FastDateFormat.getInstance(pattern, timeZone, locale);
-		return df.format(date);
+		return getFormat(pattern, timeZone, locale).format(date);
 	}
 
 	/**
@@ -328,59 +326,514 @@ public class DateFormatUtil {
 	 * @return the formatted calendar
 	 */
 	public static String format(Calendar calendar, String pattern, TimeZone timeZone, Locale locale) {
-		FastDateFormat df = FastDateFormat.getInstance(pattern, timeZone, locale);
-		return df.format(calendar);
+		return getFormat(pattern, timeZone, locale).format(calendar);
 	}
 
 	/**
-	 * 批量格式化。
+	 * 根据指定的格式格式化日期时间并追加到buf，不创建任何对象，用于直接写入输出缓冲区。
+	 * 
+	 * @param millis
+	 *            日期时间的毫秒数
+	 * @param pattern
+	 *            日期格式
+	 * @param buf
+	 *            要追加到的StringBuilder
+	 * @return 传入的buf
+	 */
+	public static StringBuilder formatTo(long millis, String pattern, StringBuilder buf) {
+		return formatTo(millis, pattern, null, null, buf);
+	}
+
+	/**
+	 * 根据指定的格式格式化日期时间并追加到buf，可以指定时区及地区。
+	 * 
+	 * @param millis
+	 *            日期时间的毫秒数
+	 * @param pattern
+	 *            日期格式
+	 * @param timeZone
+	 *            时区，可以为<code>null</code>
+	 * @param locale
+	 *            地区，可以为<code>null</code>
+	 * @param buf
+	 *            要追加到的StringBuilder
+	 * @return 传入的buf
+	 */
+	public static StringBuilder formatTo(long millis, String pattern, TimeZone timeZone, Locale locale,
+			StringBuilder buf) {
+		return getFormat(pattern, timeZone, locale).formatTo(millis, buf);
+	}
+
+	/**
+	 * 根据指定的格式格式化日期时间并追加到buf，使用UTC时区。
+	 * 
+	 * @param millis
+	 *            日期时间的毫秒数
+	 * @param pattern
+	 *            日期格式
+	 * @param buf
+	 *            要追加到的StringBuilder
+	 * @return 传入的buf
+	 */
+	public static StringBuilder formatUTCTo(long millis, String pattern, StringBuilder buf) {
+		return formatTo(millis, pattern, DateUtil.UTC_TIME_ZONE, null, buf);
+	}
+
+	/**
+	 * 根据指定的格式格式化日期时间并追加到buf，使用UTC时区，可以指定地区。
+	 * 
+	 * @param millis
+	 *            日期时间的毫秒数
+	 * @param pattern
+	 *            日期格式
+	 * @param locale
+	 *            地区，可以为<code>null</code>
+	 * @param buf
+	 *            要追加到的StringBuilder
+	 * @return 传入的buf
+	 */
+	public static StringBuilder formatUTCTo(long millis, String pattern, Locale locale, StringBuilder buf) {
+		return formatTo(millis, pattern, DateUtil.UTC_TIME_ZONE, locale, buf);
+	}
+
+	/**
+	 * 根据指定的格式格式化日期时间并追加到buf，不创建任何对象，用于直接写入输出缓冲区。
+	 * 
+	 * @param date
+	 *            日期时间
+	 * @param pattern
+	 *            日期格式
+	 * @param buf
+	 *            要追加到的StringBuilder
+	 * @return 传入的buf
+	 */
+	public static StringBuilder formatTo(Date date, String pattern, StringBuilder buf) {
+		return formatTo(date, pattern, null, null, buf);
+	}
+
+	/**
+	 * 根据指定的格式格式化日期时间并追加到buf，可以指定时区及地区。
+	 * 
+	 * @param date
+	 *            日期时间
+	 * @param pattern
+	 *            日期格式
+	 * @param timeZone
+	 *            时区，可以为<code>null</code>
+	 * @param locale
+	 *            地区，可以为<code>null</code>
+	 * @param buf
+	 *            要追加到的StringBuilder
+	 * @return 传入的buf
+	 */
+	public static StringBuilder formatTo(Date date, String pattern, TimeZone timeZone, Locale locale,
+			StringBuilder buf) {
+		return getFormat(pattern, timeZone, locale).formatTo(date.getTime(), buf);
+	}
+
+	/**
+	 * 根据指定的格式格式化日期时间并追加到buf，使用UTC时区。
+	 * 
+	 * @param date
+	 *            日期时间
+	 * @param pattern
+	 *            日期格式
+	 * @param buf
+	 *            要追加到的StringBuilder
+	 * @return 传入的buf
+	 */
+	public static StringBuilder formatUTCTo(Date date, String pattern, StringBuilder buf) {
+		return formatTo(date, pattern, DateUtil.UTC_TIME_ZONE, null, buf);
+	}
+
+	/**
+	 * 根据指定的格式格式化日期时间并追加到buf，使用UTC时区，可以指定地区。
+	 * 
+	 * @param date
+	 *            日期时间
+	 * @param pattern
+	 *            日期格式
+	 * @param locale
+	 *            地区，可以为<code>null</code>
+	 * @param buf
+	 *            要追加到的StringBuilder
+	 * @return 传入的buf
+	 */
+	public static StringBuilder formatUTCTo(Date date, String pattern, Locale locale, StringBuilder buf) {
+		return formatTo(date, pattern, DateUtil.UTC_TIME_ZONE, locale, buf);
+	}
+
+	/**
+	 * 根据指定的格式格式化日期时间并写入out，不创建任何对象。Writer一次写入字符数组，其余Appendable一次追加CharSequence。
+	 * 
+	 * @param millis
+	 *            日期时间的毫秒数
+	 * @param pattern
+	 *            日期格式
+	 * @param out
+	 *            要写入的目标
+	 * @return 传入的out
+	 * @throws IOException
+	 *             写入目标抛出的异常
+	 */
+	public static Appendable formatTo(long millis, String pattern, Appendable out) throws IOException {
+		return formatTo(millis, pattern, null, null, out);
+	}
+
+	/**
+	 * 根据指定的格式格式化日期时间并写入out，可以指定时区及地区。
+	 * 
+	 * @param millis
+	 *            日期时间的毫秒数
+	 * @param pattern
+	 *            日期格式
+	 * @param timeZone
+	 *            时区，可以为<code>null</code>
+	 * @param locale
+	 *            地区，可以为<code>null</code>
+	 * @param out
+	 *            要写入的目标
+	 * @return 传入的out
+	 * @throws IOException
+	 *             写入目标抛出的异常
+	 */
+	public static Appendable formatTo(long millis, String pattern, TimeZone timeZone, Locale locale,
+			Appendable out) throws IOException {
+		return getFormat(pattern, timeZone, locale).formatTo(millis, out);
+	}
+
+	/**
+	 * 根据指定的格式格式化日期时间并写入out，使用UTC时区。
+	 * 
+	 * @param millis
+	 *            日期时间的毫秒数
+	 * @param pattern
+	 *            日期格式
+	 * @param out
+	 *            要写入的目标
+	 * @return 传入的out
+	 * @throws IOException
+	 *             写入目标抛出的异常
+	 */
+	public static Appendable formatUTCTo(long millis, String pattern, Appendable out) throws IOException {
+		return formatTo(millis, pattern, DateUtil.UTC_TIME_ZONE, null, out);
+	}
+
+	/**
+	 * 根据指定的格式格式化日期时间并写入out，使用UTC时区，可以指定地区。
+	 * 
+	 * @param millis
+	 *            日期时间的毫秒数
+	 * @param pattern
+	 *            日期格式
+	 * @param locale
+	 *            地区，可以为<code>null</code>
+	 * @param out
+	 *            要写入的目标
+	 * @return 传入的out
+	 * @throws IOException
+	 *             写入目标抛出的异常
+	 */
+	public static Appendable formatUTCTo(long millis, String pattern, Locale locale,
+			Appendable out) throws IOException {
+		return formatTo(millis, pattern, DateUtil.UTC_TIME_ZONE, locale, out);
+	}
+
+	/**
+	 * 根据指定的格式格式化日期时间并写入out，不创建任何对象。Writer一次写入字符数组，其余Appendable一次追加CharSequence。
+	 * 
+	 * @param date
+	 *            日期时间
+	 * @param pattern
+	 *            日期格式
+	 * @param out
+	 *            要写入的目标
+	 * @return 传入的out
+	 * @throws IOException
+	 *             写入目标抛出的异常
+	 */
+	public static Appendable formatTo(Date date, String pattern, Appendable out) throws IOException {
+		return formatTo(date, pattern, null, null, out);
+	}
+
+	/**
+	 * 根据指定的格式格式化日期时间并写入out，可以指定时区及地区。
+	 * 
+	 * @param date
+	 *            日期时间
+	 * @param pattern
+	 *            日期格式
+	 * @param timeZone
+	 *            时区，可以为<code>null</code>
+	 * @param locale
+	 *            地区，可以为<code>null</code>
+	 * @param out
+	 *            要写入的目标
+	 * @return 传入的out
+	 * @throws IOException
+	 *             写入目标抛出的异常
+	 */
+	public static Appendable formatTo(Date date, String pattern, TimeZone timeZone, Locale locale,
+			Appendable out) throws IOException {
+		return getFormat(pattern, timeZone, locale).formatTo(date.getTime(), out);
+	}
+
+	/**
+	 * 根据指定的格式格式化日期时间并写入out，使用UTC时区。
+	 * 
+	 * @param date
+	 *            日期时间
+	 * @param pattern
+	 *            日期格式
+	 * @param out
+	 *            要写入的目标
+	 * @return 传入的out
+	 * @throws IOException
+	 *             写入目标抛出的异常
+	 */
+	public static Appendable formatUTCTo(Date date, String pattern, Appendable out) throws IOException {
+		return formatTo(date, pattern, DateUtil.UTC_TIME_ZONE, null, out);
+	}
+
+	/**
+	 * 根据指定的格式格式化日期时间并写入out，使用UTC时区，可以指定地区。
+	 * 
+	 * @param date
+	 *            日期时间
+	 * @param pattern
+	 *            日期格式
+	 * @param locale
+	 *            地区，可以为<code>null</code>
+	 * @param out
+	 *            要写入的目标
+	 * @return 传入的out
+	 * @throws IOException
+	 *             写入目标抛出的异常
+	 */
+	public static Appendable formatUTCTo(Date date, String pattern, Locale locale, Appendable out) throws IOException {
+		return formatTo(date, pattern, DateUtil.UTC_TIME_ZONE, locale, out);
+	}
+
+	/**
+	 * 根据指定的格式格式化日期时间并写入字符数组，不创建任何对象。
+	 * 
+	 * @param millis
+	 *            日期时间的毫秒数
+	 * @param pattern
+	 *            日期格式
+	 * @param dst
+	 *            要写入的字符数组
+	 * @param off
+	 *            开始写入的位置
+	 * @return 写入的最后一个字符之后的位置
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             剩余空间不足，此时不写入任何字符
+	 */
+	public static int formatTo(long millis, String pattern, char[] dst, int off) {
+		return formatTo(millis, pattern, null, null, dst, off);
+	}
+
+	/**
+	 * 根据指定的格式格式化日期时间并写入字符数组，可以指定时区及地区。
+	 * 
+	 * @param millis
+	 *            日期时间的毫秒数
+	 * @param pattern
+	 *            日期格式
+	 * @param timeZone
+	 *            时区，可以为<code>null</code>
+	 * @param locale
+	 *            地区，可以为<code>null</code>
+	 * @param dst
+	 *            要写入的字符数组
+	 * @param off
+	 *            开始写入的位置
+	 * @return 写入的最后一个字符之后的位置
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             剩余空间不足，此时不写入任何字符
+	 */
+	public static int formatTo(long millis, String pattern, TimeZone timeZone, Locale locale, char[] dst, int off) {
+		return getFormat(pattern, timeZone, locale).formatTo(millis, dst, off);
+	}
+
+	/**
+	 * 根据指定的格式格式化日期时间并写入字符数组，使用UTC时区。
+	 * 
+	 * @param millis
+	 *            日期时间的毫秒数
+	 * @param pattern
+	 *            日期格式
+	 * @param dst
+	 *            要写入的字符数组
+	 * @param off
+	 *            开始写入的位置
+	 * @return 写入的最后一个字符之后的位置
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             剩余空间不足，此时不写入任何字符
+	 */
+	public static int formatUTCTo(long millis, String pattern, char[] dst, int off) {
+		return formatTo(millis, pattern, DateUtil.UTC_TIME_ZONE, null, dst, off);
+	}
+
+	/**
+	 * 根据指定的格式格式化日期时间并写入字符数组，使用UTC时区，可以指定地区。
+	 * 
+	 * @param millis
+	 *            日期时间的毫秒数
+	 * @param pattern
+	 *            日期格式
+	 * @param locale
+	 *            地区，可以为<code>null</code>
+	 * @param dst
+	 *            要写入的字符数组
+	 * @param off
+	 *            开始写入的位置
+	 * @return 写入的最后一个字符之后的位置
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             剩余空间不足，此时不写入任何字符
+	 */
+	public static int formatUTCTo(long millis, String pattern, Locale locale, char[] dst, int off) {
+		return formatTo(millis, pattern, DateUtil.UTC_TIME_ZONE, locale, dst, off);
+	}
+
+	/**
+	 * 根据指定的格式格式化日期时间并写入字符数组，不创建任何对象。
+	 * 
+	 * @param date
+	 *            日期时间
+	 * @param pattern
+	 *            日期格式
+	 * @param dst
+	 *            要写入的字符数组
+	 * @param off
+	 *            开始写入的位置
+	 * @return 写入的最后一个字符之后的位置
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             剩余空间不足，此时不写入任何字符
+	 */
+	public static int formatTo(Date date, String pattern, char[] dst, int off) {
+		return formatTo(date, pattern, null, null, dst, off);
+	}
+
+	/**
+	 * 根据指定的格式格式化日期时间并写入字符数组，可以指定时区及地区。
+	 * 
+	 * @param date
+	 *            日期时间
+	 * @param pattern
+	 *            日期格式
+	 * @param timeZone
+	 *            时区，可以为<code>null</code>
+	 * @param locale
+	 *            地区，可以为<code>null</code>
+	 * @param dst
+	 *            要写入的字符数组
+	 * @param off
+	 *            开始写入的位置
+	 * @return 写入的最后一个字符之后的位置
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             剩余空间不足，此时不写入任何字符
+	 */
+	public static int formatTo(Date date, String pattern, TimeZone timeZone, Locale locale, char[] dst, int off) {
+		return getFormat(pattern, timeZone, locale).formatTo(date.getTime(), dst, off);
+	}
+
+	/**
+	 * 根据指定的格式格式化日期时间并写入字符数组，使用UTC时区。
+	 * 
+	 * @param date
+	 *            日期时间
+	 * @param pattern
+	 *            日期格式
+	 * @param dst
+	 *            要写入的字符数组
+	 * @param off
+	 *            开始写入的位置
+	 * @return 写入的最后一个字符之后的位置
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             剩余空间不足，此时不写入任何字符
+	 */
+	public static int formatUTCTo(Date date, String pattern, char[] dst, int off) {
+		return formatTo(date, pattern, DateUtil.UTC_TIME_ZONE, null, dst, off);
+	}
+
+	/**
+	 * 根据指定的格式格式化日期时间并写入字符数组，使用UTC时区，可以指定地区。
+	 * 
+	 * @param date
+	 *            日期时间
+	 * @param pattern
+	 *            日期格式
+	 * @param locale
+	 *            地区，可以为<code>null</code>
+	 * @param dst
+	 *            要写入的字符数组
+	 * @param off
+	 *            开始写入的位置
+	 * @return 写入的最后一个字符之后的位置
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             剩余空间不足，此时不写入任何字符
+	 */
+	public static int formatUTCTo(Date date, String pattern, Locale locale, char[] dst, int off) {
+		return formatTo(date, pattern, DateUtil.UTC_TIME_ZONE, locale, dst, off);
+	}
+
+	/**
+	 * 取得格式化器。每个线程记住上次使用的格式化器，参数与上次相同时不必构造缓存键查找。
+	 * 
+	 * @throws IllegalArgumentException
+	 *             格式为null或格式错误
+	 */
+	private static FastDateFormat getFormat(String pattern, TimeZone timeZone, Locale locale) {
+		LastFormat last = lastFormat.get();
+		FastDateFormat df = last.format;
+		if (df != null && last.timeZone == timeZone && last.locale == locale && df.getPattern().equals(pattern)
+				&& (timeZone != null || df.getTimeZone().equals(TimeZone.getDefault()))
+				&& (locale != null || df.getLocale().equals(Locale.getDefault()))) {
+			return df;
+		}
+		df = FastDateFormat.getInstance(pattern, timeZone, locale);
+		last.format = df;
+		last.timeZone = timeZone;
+		last.locale = locale;
+		return df;
+	}
+
+	private static final ThreadLocal<LastFormat> lastFormat = new ThreadLocal<LastFormat>() {
+		protected LastFormat initialValue() {
+			return new LastFormat();
+		}
+	};
+
+	/**
+	 * 线程最近使用的格式化器及查找参数
+	 */
+	private static class LastFormat {
+		FastDateFormat format;
+		TimeZone timeZone;
+		Locale locale;
+	}
+
+	/**
+	 * 批量格式化，日期值按{@link DatePatternEnum#DATE}格式化，行数较多时并行处理。
 	 * 
 	 * @param list
 	 *            形式为<code>List&lt;Map&gt;</code>
 	 * @see #batchFormat(Map)
+	 * @see DateBatchFormatter
 	 */
 	public static void batchFormat(List list) {
-		for (int i = 0; i < list.size(); i++) {
-			Map map = (Map) list.get(i);
-			batchFormat(map);
-		}
+		new DateBatchFormatter(DatePatternEnum.DATE.getPattern()).format(list);
 	}
 
 	/**
-	 * 批量格式化Map中的value
+	 * 批量格式化Map中的value，日期值按{@link DatePatternEnum#DATE}格式化，值为List&lt;Map&gt;时格式化其中的Map。
 	 * 
 	 * @param map
 	 *            待格式化的Map
+	 * @see DateBatchFormatter
 	 */
 	public static void batchFormat(Map map) {
-		Collection keys = map.keySet();
-		for (Iterator i$ = keys.iterator(); i$.hasNext();) {
-			Object key = i$.next();
-			Object obj = map.get(key);
-			map.put(key, formatObj(obj));
-		}
-	}
-
-	/**
-	 * 如果是日期类型则返回日期格式化字符串，如果是List&lt;Map&gt;则格式化Map。
-	 * 
-	 * @param obj
-	 * @return
-	 */
-	private static Object formatObj(Object obj) {
-		Object result = obj;
-		if (obj instanceof Date) {
-			Date date = (Date) obj;
-			result = DateFormatUtil.format(date, DatePatternEnum.DATE.getPattern());
-		} else if (obj instanceof List) {
-			List list = (List) obj;
-			for (int i = 0; i < list.size(); i++) {
-				Object subObj = list.get(i);
-				if (subObj instanceof Map) {
-					batchFormat((Map) subObj);
-				}
-			}
-		}
-		return result;
+		new DateBatchFormatter(DatePatternEnum.DATE.getPattern()).format(map);
 	}
 }
@@ -0,0 +1,244 @@
+package org.scorpio.octopus.utils;
+
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * 多格式日期解析，按输入的形状(长度及分隔符位置)直接选择解析格式。
+ * <p>
+ * 结果与按顺序逐个尝试各格式、返回第一个解析成功(且解析到末尾)的结果相同，但不必逐个尝试：
+ * <ul>
+ * <li>创建时为每个只含定宽数字字段的格式(如yyyy-MM-dd HH:mm:ss)生成形状，并用该形状的样本确认排在前面的格式
+ * 都不能解析，按长度分组；输入长度及每个分隔符都与某个形状相符时直接使用对应的格式。</li>
+ * <li>其余输入按顺序尝试，成功后记住该形状所用的格式，之后相同形状的输入先尝试该格式。</li>
+ * </ul>
+ * 宽松模式下数字字段能否解析只取决于数字的位数，与数值无关，所以形状相同的输入由同一个格式解析。
+ * </p>
+ * <p>
+ * 解析器绑定创建时指定的时区及地区，默认时区或地区改变后调用方需要重新创建实例。
+ * 实例不可变。#ThreadSafe#
+ * </p>
+ *
+ * @see CastUtil#toDateTime(Object, Date)
+ * @see CastUtil#registerDatePattern(String)
+ */
+final class DatePatternDispatcher {
+	private final String[] patterns;
+	private final TimeZone timeZone;
+	private final Locale locale;
+	private final FastDateParser[] parsers;
+	/**
+	 * 按长度分组的定宽形状，'0'表示数字，其余字符表示自身
+	 */
+	private final String[][] shapes;
+	/**
+	 * 与shapes对应的格式序号
+	 */
+	private final int[][] targets;
+	/**
+	 * 运行时记住的形状及格式序号
+	 */
+	private final BoundedCache<String, Integer> learned = new BoundedCache<String, Integer>(256);
+
+	/**
+	 * @param patterns
+	 *            SimpleDateFormat兼容的格式，按尝试的顺序排列
+	 * @param timeZone
+	 *            文本中不含时区时使用的时区
+	 * @param locale
+	 *            月份、星期等名称所用的地区
+	 * @throws IllegalArgumentException
+	 *             格式为null、格式错误或包含不支持的字段
+	 */
+	DatePatternDispatcher(String[] patterns, TimeZone timeZone, Locale locale) {
+		this.patterns = patterns.clone();
+		this.timeZone = timeZone;
+		this.locale = locale;
+		this.parsers = new FastDateParser[patterns.length];
+		for (int i = 0; i < patterns.length; i++) {
+			parsers[i] = FastDateParser.getInstance(patterns[i], timeZone, locale);
+		}
+
+		String[] fixedShapes = new String[patterns.length];
+		int maxLength = -1;
+		for (int i = 0; i < patterns.length; i++) {
+			fixedShapes[i] = fixedShape(patterns[i]);
+			if (fixedShapes[i] != null) {
+				maxLength = Math.max(maxLength, fixedShapes[i].length());
+			}
+		}
+		String[][] shapes = new String[maxLength + 1][];
+		int[][] targets = new int[maxLength + 1][];
+		for (int i = 0; i < patterns.length; i++) {
+			String shape = fixedShapes[i];
+			if (shape == null) {
+				continue;
+			}
+			String sample = shape.replace('0', '1');
+			int target = -1;
+			for (int j = 0; j <= i; j++) {
+				if (parsers[j].parseExactly(sample) != null) {
+					target = j;
+					break;
+				}
+			}
+			int length = shape.length();
+			if (target < 0 || indexOf(shapes[length], shape) >= 0) {
+				continue;
+			}
+			shapes[length] = append(shapes[length], shape);
+			targets[length] = append(targets[length], target);
+		}
+		this.shapes = shapes;
+		this.targets = targets;
+	}
+
+	/**
+	 * 返回全部格式
+	 */
+	String[] getPatterns() {
+		return patterns.clone();
+	}
+
+	/**
+	 * 是否使用指定的时区及地区
+	 */
+	boolean isFor(TimeZone timeZone, Locale locale) {
+		return this.timeZone.equals(timeZone) && this.locale.equals(locale);
+	}
+
+	/**
+	 * 解析整个字符串。
+	 *
+	 * @param source
+	 *            日期文本
+	 * @return 日期，所有格式都不能解析时返回null
+	 */
+	Date parse(CharSequence source) {
+		int length = source.length();
+		if (length < shapes.length && shapes[length] != null) {
+			String[] candidates = shapes[length];
+			for (int k = 0; k < candidates.length; k++) {
+				if (matches(candidates[k], source)) {
+					Date date = parsers[targets[length][k]].parseExactly(source);
+					if (date != null) {
+						return date;
+					}
+					break;
+				}
+			}
+		}
+
+		String shape = shapeOf(source);
+		Integer index = learned.get(shape);
+		if (index != null) {
+			Date date = parsers[index.intValue()].parseExactly(source);
+			if (date != null) {
+				return date;
+			}
+		}
+		for (int i = 0; i < parsers.length; i++) {
+			Date date = parsers[i].parseExactly(source);
+			if (date != null) {
+				learned.putIfAbsent(shape, Integer.valueOf(i));
+				return date;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 只含数字字段及不含数字的文本的格式，返回其形状，否则返回null。
+	 */
+	private static String fixedShape(String pattern) {
+		StringBuilder shape = new StringBuilder(pattern.length());
+		int length = pattern.length();
+		boolean inLiteral = false;
+		for (int i = 0; i < length; i++) {
+			char c = pattern.charAt(i);
+			if (c == '\'') {
+				if (i + 1 < length && pattern.charAt(i + 1) == '\'') {
+					shape.append(c);
+					i++;
+				} else {
+					inLiteral = !inLiteral;
+				}
+			} else if (inLiteral || !(c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z')) {
+				if (c >= '0' && c <= '9') {
+					return null;
+				}
+				shape.append(c);
+			} else if ("ydHkKhmsSD".indexOf(c) >= 0 || c == 'M' && countRun(pattern, i) <= 2) {
+				shape.append('0');
+			} else {
+				return null;
+			}
+		}
+		return shape.toString();
+	}
+
+	private static int countRun(String pattern, int i) {
+		int start = i;
+		while (start > 0 && pattern.charAt(start - 1) == pattern.charAt(i)) {
+			start--;
+		}
+		int end = i;
+		while (end < pattern.length() && pattern.charAt(end) == pattern.charAt(i)) {
+			end++;
+		}
+		return end - start;
+	}
+
+	private static boolean matches(String shape, CharSequence source) {
+		for (int i = 0; i < shape.length(); i++) {
+			char s = shape.charAt(i);
+			char c = source.charAt(i);
+			if (s == '0' ? c < '0' || c > '9' : c != s) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static String shapeOf(CharSequence source) {
+		int length = source.length();
+		char[] shape = new char[length];
+		for (int i = 0; i < length; i++) {
+			char c = source.charAt(i);
+			shape[i] = c >= '0' && c <= '9' ? '0' : c;
+		}
+		return new String(shape);
+	}
+
+	private static int indexOf(String[] array, String s) {
+		if (array != null) {
+			for (int i = 0; i < array.length; i++) {
+				if (array[i].equals(s)) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	private static String[] append(String[] array, String s) {
+		if (array == null) {
+			return new String[] { s };
+		}
+		String[] result = new String[array.length + 1];
+		System.arraycopy(array, 0, result, 0, array.length);
+		result[array.length] = s;
+		return result;
+	}
+
+	private static int[] append(int[] array, int i) {
+		if (array == null) {
+			return new int[] { i };
+		}
+		int[] result = new int[array.length + 1];
+		System.arraycopy(array, 0, result, 0, array.length);
+		result[array.length] = i;
+		return result;
+	}
+}
@@ -0,0 +1,286 @@
+package org.scorpio.octopus.utils;
+
+import java.util.Comparator;
+import java.util.Date;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TimeZone;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * [start, end)之间按固定步长排列的时刻，以毫秒数表示，不创建Calendar及Date对象。
+ * <p>
+ * 第k个时刻直接由起点计算(与Calendar从起点add(k * 步长)相同)，不逐个累加，所以按月时起点为31日的各月都尽量取31日，
+ * 并行流可以在任意位置以O(1)切分。按天、月、工作日的步长保持起点的本地时间，夏令时的处理与{@link DateUtil.Millis}相同；
+ * 工作日为周一至周五，不考虑节假日。
+ * </p>
+ * <p>
+ * 实例不可变。#ThreadSafe#
+ * </p>
+ *
+ * <pre>
+ * DateRange.of(start, end, DateRange.Step.DAY, zone).stream().parallel().forEach(...);
+ * </pre>
+ */
+public final class DateRange implements Iterable<Long> {
+	private static final long MILLIS_PER_HOUR = 60 * 60 * 1000L;
+	private static final long MILLIS_PER_DAY = 24 * MILLIS_PER_HOUR;
+
+	/**
+	 * 步长单位
+	 */
+	public enum Step {
+		/**
+		 * 小时，直接加毫秒数
+		 */
+		HOUR(MILLIS_PER_HOUR),
+		/**
+		 * 天，本地时间不变
+		 */
+		DAY(MILLIS_PER_DAY),
+		/**
+		 * 月，本地时间不变，当月没有起点的日期时取当月最后一天
+		 */
+		MONTH(MILLIS_PER_DAY * 146097 / 4800),
+		/**
+		 * 工作日(周一至周五)，本地时间不变，起点为周六、周日时从下周一开始
+		 */
+		BUSINESS_DAY(MILLIS_PER_DAY * 7 / 5);
+
+		/**
+		 * 平均长度，用于估计个数
+		 */
+		private final long averageMillis;
+
+		private Step(long averageMillis) {
+			this.averageMillis = averageMillis;
+		}
+	}
+
+	private final long start;
+	private final long end;
+	private final Step step;
+	private final int amount;
+	private final TimeZone zone;
+	private final ZoneTransitions transitions;
+	/**
+	 * 工作日：第一个工作日相对起点的天数及其星期(周一为0)
+	 */
+	private final int firstShift;
+	private final int firstWeekday;
+	private final long size;
+
+	private DateRange(long start, long end, Step step, int amount, TimeZone zone) {
+		this.start = start;
+		this.end = end;
+		this.step = step;
+		this.amount = amount;
+		this.zone = zone;
+		this.transitions = ZoneTransitions.getInstance(zone);
+		if (step == Step.BUSINESS_DAY) {
+			long day = Math.floorDiv(start + transitions.getOffset(start), MILLIS_PER_DAY);
+			// 1970-01-01为周四
+			int weekday = (int) Math.floorMod(day + 3, 7L);
+			this.firstShift = weekday < 5 ? 0 : 7 - weekday;
+			this.firstWeekday = weekday < 5 ? weekday : 0;
+		} else {
+			this.firstShift = 0;
+			this.firstWeekday = 0;
+		}
+		this.size = computeSize();
+	}
+
+	/**
+	 * 每次一个步长单位，使用默认时区。
+	 *
+	 * @see #of(long, long, Step, int, TimeZone)
+	 */
+	public static DateRange of(Date start, Date end, Step step) {
+		return of(start.getTime(), end.getTime(), step, 1, TimeZone.getDefault());
+	}
+
+	/**
+	 * 每次一个步长单位。
+	 *
+	 * @see #of(long, long, Step, int, TimeZone)
+	 */
+	public static DateRange of(long start, long end, Step step, TimeZone zone) {
+		return of(start, end, step, 1, zone);
+	}
+
+	/**
+	 * @param start
+	 *            起点(含)，即第一个时刻；按工作日时起点为周六、周日则从下周一的同一本地时间开始
+	 * @param end
+	 *            终点(不含)，不晚于start时范围为空
+	 * @param step
+	 *            步长单位
+	 * @param amount
+	 *            每次的步长单位数
+	 * @param zone
+	 *            时区，不能为null
+	 * @throws IllegalArgumentException
+	 *             amount不是正数
+	 */
+	public static DateRange of(long start, long end, Step step, int amount, TimeZone zone) {
+		if (amount <= 0) {
+			throw new IllegalArgumentException("amount must be positive: " + amount);
+		}
+		return new DateRange(start, end, step, amount, zone);
+	}
+
+	/**
+	 * 返回时刻的个数
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * 返回第index个时刻
+	 *
+	 * @throws IndexOutOfBoundsException
+	 *             index小于0或不小于{@link #size()}
+	 */
+	public long get(long index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		return element(index);
+	}
+
+	public PrimitiveIterator.OfLong iterator() {
+		return Spliterators.iterator(spliterator());
+	}
+
+	/**
+	 * 返回按序号切分的Spliterator，特征为SIZED、SUBSIZED、ORDERED、SORTED、NONNULL及IMMUTABLE。
+	 * 本地日期被跳过时(如2011年的Pacific/Apia)相邻两个时刻可能相同，所以不是DISTINCT。
+	 */
+	public Spliterator.OfLong spliterator() {
+		return new RangeSpliterator(0, size);
+	}
+
+	/**
+	 * 返回顺序流
+	 */
+	public LongStream stream() {
+		return StreamSupport.longStream(spliterator(), false);
+	}
+
+	/**
+	 * 返回并行流
+	 */
+	public LongStream parallelStream() {
+		return StreamSupport.longStream(spliterator(), true);
+	}
+
+	/**
+	 * 返回全部时刻
+	 *
+	 * @throws IllegalStateException
+	 *             个数超过数组的最大长度
+	 */
+	public long[] toArray() {
+		if (size > Integer.MAX_VALUE - 8) {
+			throw new IllegalStateException("Range too large: " + size);
+		}
+		long[] array = new long[(int) size];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = element(i);
+		}
+		return array;
+	}
+
+	private long element(long index) {
+		long units = index * amount;
+		switch (step) {
+		case HOUR:
+			return start + units * MILLIS_PER_HOUR;
+		case DAY:
+			return DateUtil.Millis.addDays(transitions, start, units);
+		case MONTH:
+			return DateUtil.Millis.addMonths(transitions, zone, start, units);
+		default:
+			// 每5个工作日为一周
+			long days = firstShift + (firstWeekday + units) / 5 * 7 + (firstWeekday + units) % 5 - firstWeekday;
+			return DateUtil.Millis.addDays(transitions, start, days);
+		}
+	}
+
+	/**
+	 * 各时刻不递减，由平均步长估计个数后向前、向后调整
+	 */
+	private long computeSize() {
+		if (end <= start) {
+			return 0;
+		}
+		long span = end - start;
+		long stepMillis = step.averageMillis * amount;
+		if (step == Step.HOUR) {
+			return (span - 1) / stepMillis + 1;
+		}
+		long count = span / stepMillis;
+		while (element(count) < end) {
+			count++;
+		}
+		while (count > 0 && element(count - 1) >= end) {
+			count--;
+		}
+		return count;
+	}
+
+	/**
+	 * 处理序号[index, fence)的时刻
+	 */
+	private final class RangeSpliterator implements Spliterator.OfLong {
+		private long index;
+		private final long fence;
+
+		RangeSpliterator(long index, long fence) {
+			this.index = index;
+			this.fence = fence;
+		}
+
+		public boolean tryAdvance(LongConsumer action) {
+			if (index < fence) {
+				action.accept(element(index++));
+				return true;
+			}
+			return false;
+		}
+
+		public void forEachRemaining(LongConsumer action) {
+			long i = index;
+			index = fence;
+			for (; i < fence; i++) {
+				action.accept(element(i));
+			}
+		}
+
+		public Spliterator.OfLong trySplit() {
+			long mid = index + ((fence - index) >>> 1);
+			if (mid <= index) {
+				return null;
+			}
+			RangeSpliterator prefix = new RangeSpliterator(index, mid);
+			index = mid;
+			return prefix;
+		}
+
+		public long estimateSize() {
+			return fence - index;
+		}
+
+		public int characteristics() {
+			return SIZED | SUBSIZED | ORDERED | SORTED | NONNULL | IMMUTABLE;
+		}
+
+		public Comparator<? super Long> getComparator() {
+			return null;
+		}
+	}
+}
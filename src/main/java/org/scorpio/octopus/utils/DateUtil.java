@@ -5,6 +5,7 @@ import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.GregorianCalendar;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.TimeZone;
@@ -94,17 +95,17 @@ public class DateUtil {
 	/**
 	 * Constant marker for truncating
 	 */
-	private final static int MODIFY_TRUNCATE = 0;
+	final static int MODIFY_TRUNCATE = 0;
 
 	/**
 	 * Constant marker for rounding
 	 */
-	private final static int MODIFY_ROUND = 1;
+	final static int MODIFY_ROUND = 1;
 
 	/**
 	 * Constant marker for ceiling
 	 */
-	private final static int MODIFY_CEILING = 2;
+	final static int MODIFY_CEILING = 2;
 
 	// -----------------------------------------------------------------------
 	/**
@@ -355,41 +356,52 @@ public class DateUtil {
 			throw new IllegalArgumentException("Date and Patterns must not be null");
 		}
 
-		SimpleDateFormat parser = new SimpleDateFormat();
-		parser.setLenient(lenient);
-		ParsePosition pos = new ParsePosition(0);
 		for (int i = 0; i < parsePatterns.length; i++) {
-
 			String pattern = parsePatterns[i];
-
-			// LANG-530 - need to make sure 'ZZ' output doesn't get passed to
-			// SimpleDateFormat
-			if (parsePatterns[i].endsWith("ZZ")) {
-				pattern = pattern.substring(0, pattern.length() - 1);
-			}
-
-			parser.applyPattern(pattern);
-			pos.setIndex(0);
-
-			String str2 = str;
-			// LANG-530 - need to make sure 'ZZ' output doesn't hit
-			// SimpleDateFormat as it will ParseException
-			if (parsePatterns[i].endsWith("ZZ")) {
-				int signIdx = indexOfSignChars(str2, 0);
-				while (signIdx >= 0) {
-					str2 = reformatTimezone(str2, signIdx);
-					signIdx = indexOfSignChars(str2, ++signIdx);
+			Date date;
+			if (FastDateParser.isSupported(pattern)) {
+				// FastDateParser parses both +HHMM and +HH:MM for ZZ, so LANG-530
+				// needs no special handling here
+				FastDateParser parser = FastDateParser.getInstance(pattern, null, null, lenient);
+				date = parser.parseExactly(str);
+				if (date == null && parser.hasZoneText()) {
+					// zone names of other time zones are only known to SimpleDateFormat
+					date = parseBySimpleDateFormat(str, pattern, lenient);
 				}
+			} else {
+				date = parseBySimpleDateFormat(str, pattern, lenient);
 			}
-
-			Date date = parser.parse(str2, pos);
-			if (date != null && pos.getIndex() == str2.length()) {
+			if (date != null) {
 				return date;
 			}
 		}
 		throw new ParseException("Unable to parse the date: " + str, -1);
 	}
 
+	/**
+	 * Parses the whole string with a new SimpleDateFormat, for patterns that
+	 * FastDateParser does not fully support.
+	 * 
+	 * @return the parsed date, or null if the pattern does not match
+	 */
+	private static Date parseBySimpleDateFormat(String str, String pattern, boolean lenient) {
+		// LANG-530 - need to make sure 'ZZ' output doesn't get passed to
+		// SimpleDateFormat as it will ParseException
+		if (pattern.endsWith("ZZ")) {
+			pattern = pattern.substring(0, pattern.length() - 1);
+			int signIdx = indexOfSignChars(str, 0);
+			while (signIdx >= 0) {
+				str = reformatTimezone(str, signIdx);
+				signIdx = indexOfSignChars(str, ++signIdx);
+			}
+		}
+		SimpleDateFormat parser = new SimpleDateFormat(pattern);
+		parser.setLenient(lenient);
+		ParsePosition pos = new ParsePosition(0);
+		Date date = parser.parse(str, pos);
+		return date != null && pos.getIndex() == str.length() ? date : null;
+	}
+
 	/**
 	 * Index of sign charaters (i.e. '+' or '-').
 	 * 
@@ -400,24 +412,13 @@ public class DateUtil {
 	 * @return the index of the first sign character or -1 if not found
 	 */
 	private static int indexOfSignChars(String str, int startPos) {
-		int idx = indexOf(str, '+', startPos);
+		int idx = str.indexOf('+', startPos);
 		if (idx < 0) {
-			idx = indexOf(str, '-', startPos);
+			idx = str.indexOf('-', startPos);
 		}
 		return idx;
 	}
 
-	private static int indexOf(String str, char searchChar, int startPos) {
-		if (isEmpty(str)) {
-			return -1;
-		}
-		return str.indexOf(searchChar, startPos);
-	}
-
-	private static boolean isEmpty(String str) {
-		return str == null || str.length() == 0;
-	}
-
 	/**
 	 * Reformat the timezone in a date string.
 	 *
@@ -2159,7 +2160,11 @@ public class DateUtil {
 	 * 返回数据格式: 123456789
 	 * <p>
 	 * 例:
+	 * 
+	 * @deprecated 精度为秒，同一秒内的结果相同，不能用作唯一标识，由{@link IdGenerator#nextId()}取代
+	 * @see IdGenerator
 	 */
+	@Deprecated
 	public static long getIdentityByTime(java.util.Date d) {
 		if (d == null) {
 			d = new Date();
@@ -2187,4 +2192,500 @@ public class DateUtil {
 		int d = c2.get(Calendar.SECOND) - c1.get(Calendar.SECOND);
 		return d;
 	}
+
+
+	/**
+	 * 以毫秒数表示时刻的日期计算，不创建Calendar及Date对象，用于大批量计算日期边界。
+	 * <p>
+	 * 结果与对应的Calendar版本(时区为参数指定的时区)相同：按天、月、年加减时保持本地时间不变，夏令时切换造成的不存在或重复的本地时间
+	 * 与GregorianCalendar的解释相同；按时、分、秒加减直接加减毫秒数。时区偏移取自按时区缓存的偏移变化表。
+	 * 1600年以前或9999年以后的按月、年计算交由GregorianCalendar处理。
+	 * </p>
+	 * <p>
+	 * #ThreadSafe#
+	 * </p>
+	 *
+	 * @see DateUtil#addDay(Date, int)
+	 * @see DateUtil#truncate(Date, int)
+	 */
+	public static final class Millis {
+		/**
+		 * 1600-01-01，早于此日期时按月、年计算使用GregorianCalendar
+		 */
+		private static final long MIN_CIVIL_DAY = -135140L;
+		/**
+		 * 9999-12-31
+		 */
+		private static final long MAX_CIVIL_DAY = 2932896L;
+
+		private Millis() {
+		}
+
+		/**
+		 * 增加指定的小时数
+		 */
+		public static long addHours(long millis, int amount) {
+			return millis + amount * MILLIS_PER_HOUR;
+		}
+
+		/**
+		 * 增加指定的分钟数
+		 */
+		public static long addMinutes(long millis, int amount) {
+			return millis + amount * MILLIS_PER_MINUTE;
+		}
+
+		/**
+		 * 增加指定的秒数
+		 */
+		public static long addSeconds(long millis, int amount) {
+			return millis + amount * MILLIS_PER_SECOND;
+		}
+
+		/**
+		 * 增加指定的天数，本地时间不变。
+		 * 
+		 * @param millis
+		 *            时刻
+		 * @param amount
+		 *            天数，可以为负数
+		 * @param zone
+		 *            时区，不能为null
+		 * @see DateUtil#addDay(Date, int)
+		 */
+		public static long addDays(long millis, int amount, TimeZone zone) {
+			return addDays(ZoneTransitions.getInstance(zone), millis, amount);
+		}
+
+		/**
+		 * 增加指定的周数，本地时间不变。
+		 * 
+		 * @see #addDays(long, int, TimeZone)
+		 */
+		public static long addWeeks(long millis, int amount, TimeZone zone) {
+			return addDays(ZoneTransitions.getInstance(zone), millis, amount * 7L);
+		}
+
+		/**
+		 * 增加指定的月数，本地时间不变，日超过目标月的天数时取该月最后一天。
+		 * 
+		 * @param millis
+		 *            时刻
+		 * @param amount
+		 *            月数，可以为负数
+		 * @param zone
+		 *            时区，不能为null
+		 * @see DateUtil#addMonth(Date, int)
+		 */
+		public static long addMonths(long millis, int amount, TimeZone zone) {
+			return addMonths(ZoneTransitions.getInstance(zone), zone, millis, amount);
+		}
+
+		/**
+		 * 增加指定的年数，本地时间不变，2月29日在非闰年取2月28日。
+		 * 
+		 * @see DateUtil#addYear(Date, int)
+		 */
+		public static long addYears(long millis, int amount, TimeZone zone) {
+			return addMonths(ZoneTransitions.getInstance(zone), zone, millis, amount * 12L);
+		}
+
+		/**
+		 * 返回本地日期当天的零点，与{@link DateUtil#truncate(Date, int)}按DATE截断相同。
+		 */
+		public static long truncateToDay(long millis, TimeZone zone) {
+			return truncate(millis, Calendar.DATE, zone);
+		}
+
+		/**
+		 * 截断到指定字段，与{@link DateUtil#truncate(Date, int)}相同。
+		 * 
+		 * @param millis
+		 *            时刻
+		 * @param field
+		 *            {@link Calendar}的MILLISECOND、SECOND、MINUTE、HOUR_OF_DAY(HOUR)、DATE(DAY_OF_MONTH)、MONTH或YEAR
+		 * @param zone
+		 *            时区，不能为null
+		 * @throws IllegalArgumentException
+		 *             不支持的字段
+		 */
+		public static long truncate(long millis, int field, TimeZone zone) {
+			return modify(millis, field, zone, MODIFY_TRUNCATE);
+		}
+
+		/**
+		 * 四舍五入到指定字段，与{@link DateUtil#round(Date, int)}相同。
+		 * 
+		 * @see #truncate(long, int, TimeZone)
+		 */
+		public static long round(long millis, int field, TimeZone zone) {
+			return modify(millis, field, zone, MODIFY_ROUND);
+		}
+
+		/**
+		 * 截断到指定字段后进一，与{@link DateUtil#ceiling(Date, int)}相同。
+		 * 
+		 * @see #truncate(long, int, TimeZone)
+		 */
+		public static long ceiling(long millis, int field, TimeZone zone) {
+			return modify(millis, field, zone, MODIFY_CEILING);
+		}
+
+		/**
+		 * 返回本地日期所在月第一天的零点。
+		 * 
+		 * @see DateUtil#getMonthFirst(Date)
+		 */
+		public static long getMonthFirst(long millis, TimeZone zone) {
+			ZoneTransitions transitions = ZoneTransitions.getInstance(zone);
+			long day = Math.floorDiv(millis + transitions.getOffset(millis), MILLIS_PER_DAY);
+			if (day < MIN_CIVIL_DAY || day > MAX_CIVIL_DAY) {
+				Calendar c = calendar(millis, zone);
+				c.set(c.get(Calendar.YEAR), c.get(Calendar.MONTH), 1, 0, 0, 0);
+				c.set(Calendar.MILLISECOND, 0);
+				return c.getTimeInMillis();
+			}
+			int civil = civil(day);
+			return transitions.toUtc(daysFromCivil(civil >> 9, civil >> 5 & 15, 1) * MILLIS_PER_DAY);
+		}
+
+		/**
+		 * 返回本地日期所在月最后一天的零点。
+		 * 
+		 * @see DateUtil#getMonthEnd(Date)
+		 */
+		public static long getMonthEnd(long millis, TimeZone zone) {
+			ZoneTransitions transitions = ZoneTransitions.getInstance(zone);
+			long first = getMonthFirst(millis, zone);
+			return addDays(transitions, addMonths(transitions, zone, first, 1), -1);
+		}
+
+		/**
+		 * 返回本地日期距1970-01-01的天数。
+		 */
+		public static long toEpochDay(long millis, TimeZone zone) {
+			return Math.floorDiv(millis + ZoneTransitions.getInstance(zone).getOffset(millis), MILLIS_PER_DAY);
+		}
+
+		/**
+		 * 返回两个时刻本地日期之间的天数，to的日期早于from时为负数。
+		 * 
+		 * @see DateUtil#dateDiff(Date, Date)
+		 */
+		public static int daysBetween(long from, long to, TimeZone zone) {
+			ZoneTransitions transitions = ZoneTransitions.getInstance(zone);
+			long fromDay = Math.floorDiv(from + transitions.getOffset(from), MILLIS_PER_DAY);
+			long toDay = Math.floorDiv(to + transitions.getOffset(to), MILLIS_PER_DAY);
+			return (int) (toDay - fromDay);
+		}
+
+		/**
+		 * 批量截断，结果与逐个调用{@link #truncate(long, int, TimeZone)}相同。时刻及结果前后两天内没有时区偏移变化时
+		 * 直接按本地时间计算，不逐个查找偏移，按时间排序的数据最快。
+		 * 
+		 * @param in
+		 *            时刻
+		 * @param out
+		 *            结果，长度不能小于in，可以与in是同一个数组
+		 * @param field
+		 *            字段，同{@link #truncate(long, int, TimeZone)}
+		 * @param zone
+		 *            时区，不能为null
+		 * @throws IllegalArgumentException
+		 *             不支持的字段或out长度不足
+		 */
+		public static void truncateAll(long[] in, long[] out, int field, TimeZone zone) {
+			DateBucketer.applyAll(in, out, zone, field, MODIFY_TRUNCATE, Integer.MAX_VALUE);
+		}
+
+		/**
+		 * 在公共ForkJoinPool中并行批量截断，每个子任务处理不超过threshold个时刻。
+		 * 
+		 * @throws IllegalArgumentException
+		 *             不支持的字段、out长度不足或threshold不是正数
+		 * @see #truncateAll(long[], long[], int, TimeZone)
+		 */
+		public static void truncateAllParallel(long[] in, long[] out, int field, TimeZone zone, int threshold) {
+			DateBucketer.applyAll(in, out, zone, field, MODIFY_TRUNCATE, threshold);
+		}
+
+		/**
+		 * 批量四舍五入，结果与逐个调用{@link #round(long, int, TimeZone)}相同。
+		 * 
+		 * @see #truncateAll(long[], long[], int, TimeZone)
+		 */
+		public static void roundAll(long[] in, long[] out, int field, TimeZone zone) {
+			DateBucketer.applyAll(in, out, zone, field, MODIFY_ROUND, Integer.MAX_VALUE);
+		}
+
+		/**
+		 * 在公共ForkJoinPool中并行批量四舍五入。
+		 * 
+		 * @see #truncateAllParallel(long[], long[], int, TimeZone, int)
+		 */
+		public static void roundAllParallel(long[] in, long[] out, int field, TimeZone zone, int threshold) {
+			DateBucketer.applyAll(in, out, zone, field, MODIFY_ROUND, threshold);
+		}
+
+		/**
+		 * 批量计算时刻所在的桶相对origin所在的桶的序号，桶即按field截断的结果，相邻的桶相差1。
+		 * 秒、分、时按截断结果之间经过的时间计算，日、月、年按截断结果的本地日期计算，早于origin所在的桶时为负数。
+		 * 
+		 * @param in
+		 *            时刻
+		 * @param out
+		 *            序号，长度不能小于in，可以与in是同一个数组
+		 * @param origin
+		 *            起点
+		 * @throws IllegalArgumentException
+		 *             不支持的字段或out长度不足
+		 * @see #truncateAll(long[], long[], int, TimeZone)
+		 */
+		public static void bucketIndex(long[] in, long[] out, long origin, int field, TimeZone zone) {
+			DateBucketer.indexAll(in, out, origin, zone, field, Integer.MAX_VALUE);
+		}
+
+		/**
+		 * 在公共ForkJoinPool中并行批量计算桶序号。
+		 * 
+		 * @see #bucketIndex(long[], long[], long, int, TimeZone)
+		 */
+		public static void bucketIndexParallel(long[] in, long[] out, long origin, int field, TimeZone zone,
+				int threshold) {
+			DateBucketer.indexAll(in, out, origin, zone, field, threshold);
+		}
+
+		/**
+		 * 统计[from, to]之间的时刻在各桶中的个数，第0个桶为from所在的桶，最后一个为to所在的桶，范围之外的时刻被忽略。
+		 * 
+		 * @param in
+		 *            时刻，不必排序
+		 * @param from
+		 *            起始时刻(含)
+		 * @param to
+		 *            结束时刻(含)
+		 * @return 各桶的个数
+		 * @throws IllegalArgumentException
+		 *             不支持的字段、to早于from或桶太多
+		 * @see #bucketIndex(long[], long[], long, int, TimeZone)
+		 */
+		public static int[] histogram(long[] in, long from, long to, int field, TimeZone zone) {
+			return DateBucketer.histogram(in, from, to, zone, field, Integer.MAX_VALUE);
+		}
+
+		/**
+		 * 在公共ForkJoinPool中并行统计，每个子任务统计到各自的数组后逐桶相加。
+		 * 
+		 * @see #histogram(long[], long, long, int, TimeZone)
+		 */
+		public static int[] histogramParallel(long[] in, long from, long to, int field, TimeZone zone, int threshold) {
+			return DateBucketer.histogram(in, from, to, zone, field, threshold);
+		}
+
+		static long addDays(ZoneTransitions transitions, long millis, long amount) {
+			// 与GregorianCalendar.add(DATE)相同：先按原偏移计算，偏移变化时调整，调整后日期改变则不调整
+			int offset = transitions.getOffset(millis);
+			long local = millis + offset;
+			long day = Math.floorDiv(local, MILLIS_PER_DAY) + amount;
+			long result = day * MILLIS_PER_DAY + Math.floorMod(local, MILLIS_PER_DAY) - offset;
+			int diff = offset - transitions.getOffset(result);
+			if (diff != 0) {
+				long adjusted = result + diff;
+				if (Math.floorDiv(adjusted + transitions.getOffset(adjusted), MILLIS_PER_DAY) == day) {
+					result = adjusted;
+				}
+			}
+			return result;
+		}
+
+		static long addMonths(ZoneTransitions transitions, TimeZone zone, long millis, long amount) {
+			if (amount == 0) {
+				// 与Calendar.add相同，不做任何调整；否则重复的本地时间会被映射到之后的偏移
+				return millis;
+			}
+			long local = millis + transitions.getOffset(millis);
+			long day = Math.floorDiv(local, MILLIS_PER_DAY);
+			if (day >= MIN_CIVIL_DAY && day <= MAX_CIVIL_DAY) {
+				int civil = civil(day);
+				long month = (civil >> 9) * 12L + (civil >> 5 & 15) + amount;
+				int year = (int) Math.floorDiv(month, 12L);
+				int monthOfYear = (int) Math.floorMod(month, 12L);
+				int dayOfMonth = Math.min(civil & 31, daysInMonth(year, monthOfYear));
+				long newDay = daysFromCivil(year, monthOfYear, dayOfMonth);
+				if (newDay >= MIN_CIVIL_DAY && newDay <= MAX_CIVIL_DAY) {
+					return transitions.toUtc(newDay * MILLIS_PER_DAY + Math.floorMod(local, MILLIS_PER_DAY));
+				}
+			}
+			Calendar c = calendar(millis, zone);
+			c.add(Calendar.MONTH, (int) amount);
+			return c.getTimeInMillis();
+		}
+
+		/**
+		 * 与{@link DateUtil#modify(Calendar, int, int)}的计算过程相同：先直接减去毫秒、秒、分(LANG-59)，再由低到高把各字段置为最小值，
+		 * 每次置值后按本地时间重新计算时刻，因此跨越时区偏移变化时结果与Calendar一致。
+		 */
+		static long modify(long millis, int field, TimeZone zone, int modType) {
+			int order;
+			switch (field) {
+			case Calendar.MILLISECOND:
+				return millis;
+			case Calendar.SECOND:
+				order = 1;
+				break;
+			case Calendar.MINUTE:
+				order = 2;
+				break;
+			case Calendar.HOUR_OF_DAY:
+			case Calendar.HOUR:
+				order = 3;
+				break;
+			case Calendar.DATE:
+				order = 4;
+				break;
+			case Calendar.MONTH:
+				order = 5;
+				break;
+			case Calendar.YEAR:
+				order = 6;
+				break;
+			default:
+				throw new IllegalArgumentException("The field " + field + " is not supported");
+			}
+			ZoneTransitions transitions = ZoneTransitions.getInstance(zone);
+			long local = millis + transitions.getOffset(millis);
+			long day = Math.floorDiv(local, MILLIS_PER_DAY);
+			if (day < MIN_CIVIL_DAY || day > MAX_CIVIL_DAY) {
+				Calendar c = calendar(millis, zone);
+				DateUtil.modify(c, field, modType);
+				return c.getTimeInMillis();
+			}
+
+			long time = millis;
+			long millisecs = Math.floorMod(local, MILLIS_PER_SECOND);
+			long seconds = Math.floorMod(local, MILLIS_PER_MINUTE) - millisecs;
+			long minutes = Math.floorMod(local, MILLIS_PER_HOUR) - seconds - millisecs;
+			if (MODIFY_TRUNCATE == modType || millisecs < 500) {
+				time -= millisecs;
+			}
+			if (order > 1 && (MODIFY_TRUNCATE == modType || seconds < 30 * MILLIS_PER_SECOND)) {
+				time -= seconds;
+			}
+			if (order > 2 && (MODIFY_TRUNCATE == modType || minutes < 30 * MILLIS_PER_MINUTE)) {
+				time -= minutes;
+			}
+
+			boolean roundUp = false;
+			for (int i = 0; i < order; i++) {
+				local = time + transitions.getOffset(time);
+				// 该字段置为最小值时本地时间减少的毫秒数
+				long offset;
+				switch (i) {
+				case 0:
+					offset = Math.floorMod(local, MILLIS_PER_SECOND);
+					roundUp = offset > 499;
+					break;
+				case 1:
+					offset = Math.floorMod(local, MILLIS_PER_MINUTE) / MILLIS_PER_SECOND;
+					roundUp = offset > 29;
+					offset *= MILLIS_PER_SECOND;
+					break;
+				case 2:
+					offset = Math.floorMod(local, MILLIS_PER_HOUR) / MILLIS_PER_MINUTE;
+					roundUp = offset > 29;
+					offset *= MILLIS_PER_MINUTE;
+					break;
+				case 3:
+					offset = Math.floorMod(local, MILLIS_PER_DAY) / MILLIS_PER_HOUR;
+					roundUp = offset > 11;
+					offset *= MILLIS_PER_HOUR;
+					break;
+				case 4: {
+					int civil = civil(Math.floorDiv(local, MILLIS_PER_DAY));
+					offset = (civil & 31) - 1;
+					roundUp = offset > (daysInMonth(civil >> 9, civil >> 5 & 15) - 1) / 2;
+					offset *= MILLIS_PER_DAY;
+					break;
+				}
+				default: {
+					long localDay = Math.floorDiv(local, MILLIS_PER_DAY);
+					int civil = civil(localDay);
+					int month = civil >> 5 & 15;
+					roundUp = month > 5;
+					offset = (localDay - daysFromCivil(civil >> 9, Calendar.JANUARY, civil & 31)) * MILLIS_PER_DAY;
+					break;
+				}
+				}
+				if (offset != 0) {
+					time = transitions.toUtc(local - offset);
+				}
+			}
+			if (modType == MODIFY_CEILING || modType == MODIFY_ROUND && roundUp) {
+				time = next(transitions, zone, time, field);
+			}
+			return time;
+		}
+
+		/**
+		 * 增加一个字段单位，与Calendar.add相同
+		 */
+		private static long next(ZoneTransitions transitions, TimeZone zone, long time, int field) {
+			switch (field) {
+			case Calendar.SECOND:
+				return time + MILLIS_PER_SECOND;
+			case Calendar.MINUTE:
+				return time + MILLIS_PER_MINUTE;
+			case Calendar.HOUR_OF_DAY:
+			case Calendar.HOUR:
+				return time + MILLIS_PER_HOUR;
+			case Calendar.DATE:
+				return addDays(transitions, time, 1);
+			case Calendar.MONTH:
+				return addMonths(transitions, zone, time, 1);
+			default:
+				return addMonths(transitions, zone, time, 12);
+			}
+		}
+
+		private static Calendar calendar(long millis, TimeZone zone) {
+			Calendar c = Calendar.getInstance(zone);
+			c.setTimeInMillis(millis);
+			return c;
+		}
+
+		/**
+		 * 由1970-01-01起的天数计算年月日，返回year &lt;&lt; 9 | month &lt;&lt; 5 | dayOfMonth，月份从0开始
+		 */
+		static int civil(long day) {
+			// 以3月1日为年初，闰日位于一年的最后一天
+			int z = (int) day + 719468;
+			int era = z / 146097;
+			int doe = z - era * 146097;
+			int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+			int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+			int mp = (5 * doy + 2) / 153;
+			int dayOfMonth = doy - (153 * mp + 2) / 5 + 1;
+			int month = mp < 10 ? mp + 2 : mp - 10;
+			int year = era * 400 + yoe + (month <= Calendar.FEBRUARY ? 1 : 0);
+			return year << 9 | month << 5 | dayOfMonth;
+		}
+
+		static long daysFromCivil(int year, int month, int dayOfMonth) {
+			long y = month < 2 ? year - 1L : year;
+			long era = Math.floorDiv(y, 400L);
+			long yoe = y - era * 400;
+			int mp = month < 2 ? month + 10 : month - 2;
+			long doy = (153 * mp + 2) / 5 + dayOfMonth - 1;
+			long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+			return era * 146097 + doe - 719468;
+		}
+
+		static int daysInMonth(int year, int month) {
+			if (month == Calendar.FEBRUARY) {
+				return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0) ? 29 : 28;
+			}
+			return month == Calendar.APRIL || month == Calendar.JUNE || month == Calendar.SEPTEMBER
+					|| month == Calendar.NOVEMBER ? 30 : 31;
+		}
+	}
 }
@@ -0,0 +1,430 @@
+package org.scorpio.octopus.utils;
+
+import java.nio.charset.Charset;
+
+/**
+ * 高吞吐量的Base64编解码器，支持RFC 4648标准字母表、URL安全字母表、无PAD及MIME换行格式。
+ * <p>
+ * 与{@link Base64}逐个24位分组处理不同，本类将6个字节打包为一个long，编码时按12位查找
+ * 双字符表，一次循环处理两个long(12字节输入/16字符输出)；解码时一次读取8个字符，
+ * 全部合法时整体拼成48位后写出6个字节，遇到PAD、换行或非法字符才退回逐字符处理。
+ * </p>
+ * <p>
+ * 各模式的约定：
+ * </p>
+ * <ul>
+ * <li>{@link #STANDARD}：标准字母表，输出带PAD。</li>
+ * <li>{@link #URL_SAFE}：使用'-'、'_'的URL安全字母表，输出带PAD。</li>
+ * <li>{@link #URL_SAFE_NO_PADDING}：URL安全字母表，输出不带PAD，适用于JWT等令牌。</li>
+ * <li>{@link #MIME}：标准字母表，每76个字符以CRLF换行；解码时忽略字母表以外的字符。</li>
+ * </ul>
+ * <p>
+ * 除MIME外，解码时不允许出现字母表以外的字符(包括空白符)。所有模式解码时均接受带PAD
+ * 或不带PAD的输入，但出现的PAD必须正确。实例不可变，可被多线程共享。
+ * </p>
+ *
+ * <pre>
+ * String token = FastBase64.URL_SAFE_NO_PADDING.encodeToString(payload);
+ * byte[] payload = FastBase64.URL_SAFE_NO_PADDING.decode(token);
+ * </pre>
+ *
+ * <p>#ThreadSafe#</p>
+ */
+public final class FastBase64 {
+	/**
+	 * MIME格式的行宽
+	 */
+	public static final int MIME_LINE_LENGTH = 76;
+
+	private static final byte PAD = (byte) '=';
+	private static final Charset ASCII = Charset.forName("US-ASCII");
+
+	/**
+	 * RFC 4648标准字母表，输出带PAD，与{@link Base64#encode(byte[])}结果一致。
+	 */
+	public static final FastBase64 STANDARD = new FastBase64(false, true, 0);
+
+	/**
+	 * RFC 4648 URL安全字母表，输出带PAD。
+	 */
+	public static final FastBase64 URL_SAFE = new FastBase64(true, true, 0);
+
+	/**
+	 * RFC 4648 URL安全字母表，输出不带PAD。
+	 */
+	public static final FastBase64 URL_SAFE_NO_PADDING = new FastBase64(true, false, 0);
+
+	/**
+	 * RFC 2045 MIME格式，标准字母表，每76个字符以CRLF换行。
+	 */
+	public static final FastBase64 MIME = new FastBase64(false, true, MIME_LINE_LENGTH);
+
+	private final byte[] alphabet;
+	private final byte[] pairs;
+	private final int[] values;
+	private final boolean padding;
+	private final int lineLength;
+
+	private FastBase64(boolean urlSafe, boolean padding, int lineLength) {
+		this.padding = padding;
+		this.lineLength = lineLength;
+		alphabet = new byte[64];
+		System.arraycopy(Base64.lookUpBase64Alphabet, 0, alphabet, 0, 64);
+		if (urlSafe) {
+			alphabet[62] = '-';
+			alphabet[63] = '_';
+		}
+		pairs = new byte[4096 * 2];
+		for (int i = 0; i < 4096; i++) {
+			pairs[i * 2] = alphabet[i >>> 6];
+			pairs[i * 2 + 1] = alphabet[i & 0x3f];
+		}
+		values = new int[256];
+		for (int i = 0; i < 256; i++) {
+			values[i] = -1;
+		}
+		for (int i = 0; i < 64; i++) {
+			values[alphabet[i]] = i;
+		}
+	}
+
+	/**
+	 * 返回len个字节按当前模式编码后的准确长度(含PAD及换行符)。
+	 */
+	public int getEncodedLength(int len) {
+		if (len < 0 || len > Integer.MAX_VALUE / 4 * 3 - 3) {
+			throw new IllegalArgumentException("Illegal length: " + len);
+		}
+		int n;
+		if (padding) {
+			n = (len + 2) / 3 * 4;
+		} else {
+			int rest = len % 3;
+			n = len / 3 * 4 + (rest == 0 ? 0 : rest + 1);
+		}
+		if (lineLength > 0 && n > 0) {
+			n += (n - 1) / lineLength * 2;
+		}
+		return n;
+	}
+
+	/**
+	 * 编码整个字节数组。
+	 *
+	 * @return 编码结果，传入null时返回null
+	 */
+	public byte[] encode(byte[] src) {
+		if (src == null) {
+			return null;
+		}
+		byte[] dst = new byte[getEncodedLength(src.length)];
+		encode(src, 0, src.length, dst, 0);
+		return dst;
+	}
+
+	/**
+	 * 编码整个字节数组并返回字符串。
+	 *
+	 * @return 编码结果，传入null时返回null
+	 */
+	public String encodeToString(byte[] src) {
+		if (src == null) {
+			return null;
+		}
+		return new String(encode(src), ASCII);
+	}
+
+	/**
+	 * 将src中指定范围的数据编码后写入调用方提供的dst，不分配任何对象。
+	 *
+	 * @param dst
+	 *            接收编码结果的数组，剩余空间不得小于{@link #getEncodedLength(int)}
+	 * @return 写入dst的字节数
+	 * @throws IndexOutOfBoundsException
+	 *             范围越界或dst空间不足
+	 */
+	public int encode(byte[] src, int off, int len, byte[] dst, int dstOff) {
+		checkRange(src.length, off, len);
+		int outLen = getEncodedLength(len);
+		checkRange(dst.length, dstOff, outLen);
+		int end = off + len;
+		int dp = dstOff;
+		if (lineLength == 0) {
+			dp = encodeBlock(src, off, end, dst, dp);
+		} else {
+			int lineBytes = lineLength / 4 * 3;
+			while (end - off > lineBytes) {
+				dp = encodeBlock(src, off, off + lineBytes, dst, dp);
+				dst[dp++] = '\r';
+				dst[dp++] = '\n';
+				off += lineBytes;
+			}
+			dp = encodeBlock(src, off, end, dst, dp);
+		}
+		return dp - dstOff;
+	}
+
+	/**
+	 * 编码[sp, sl)范围内的数据，不插入换行符。
+	 *
+	 * @return dst中下一个写入位置
+	 */
+	private int encodeBlock(byte[] src, int sp, int sl, byte[] dst, int dp) {
+		byte[] pairs = this.pairs;
+		int sl12 = sp + (sl - sp) / 12 * 12;
+		while (sp < sl12) {
+			long a = (src[sp] & 0xffL) << 40 | (src[sp + 1] & 0xffL) << 32 | (src[sp + 2] & 0xffL) << 24
+					| (src[sp + 3] & 0xffL) << 16 | (src[sp + 4] & 0xffL) << 8 | (src[sp + 5] & 0xffL);
+			long b = (src[sp + 6] & 0xffL) << 40 | (src[sp + 7] & 0xffL) << 32 | (src[sp + 8] & 0xffL) << 24
+					| (src[sp + 9] & 0xffL) << 16 | (src[sp + 10] & 0xffL) << 8 | (src[sp + 11] & 0xffL);
+			// 每次取12位，索引即为双字符表中的偏移(12位值 * 2)
+			int i = (int) (a >>> 35) & 0x1ffe;
+			dst[dp] = pairs[i];
+			dst[dp + 1] = pairs[i + 1];
+			i = (int) (a >>> 23) & 0x1ffe;
+			dst[dp + 2] = pairs[i];
+			dst[dp + 3] = pairs[i + 1];
+			i = (int) (a >>> 11) & 0x1ffe;
+			dst[dp + 4] = pairs[i];
+			dst[dp + 5] = pairs[i + 1];
+			i = (int) (a << 1) & 0x1ffe;
+			dst[dp + 6] = pairs[i];
+			dst[dp + 7] = pairs[i + 1];
+			i = (int) (b >>> 35) & 0x1ffe;
+			dst[dp + 8] = pairs[i];
+			dst[dp + 9] = pairs[i + 1];
+			i = (int) (b >>> 23) & 0x1ffe;
+			dst[dp + 10] = pairs[i];
+			dst[dp + 11] = pairs[i + 1];
+			i = (int) (b >>> 11) & 0x1ffe;
+			dst[dp + 12] = pairs[i];
+			dst[dp + 13] = pairs[i + 1];
+			i = (int) (b << 1) & 0x1ffe;
+			dst[dp + 14] = pairs[i];
+			dst[dp + 15] = pairs[i + 1];
+			sp += 12;
+			dp += 16;
+		}
+		int sl3 = sp + (sl - sp) / 3 * 3;
+		while (sp < sl3) {
+			int bits = (src[sp] & 0xff) << 16 | (src[sp + 1] & 0xff) << 8 | (src[sp + 2] & 0xff);
+			int i = bits >>> 11 & 0x1ffe;
+			dst[dp] = pairs[i];
+			dst[dp + 1] = pairs[i + 1];
+			i = bits << 1 & 0x1ffe;
+			dst[dp + 2] = pairs[i];
+			dst[dp + 3] = pairs[i + 1];
+			sp += 3;
+			dp += 4;
+		}
+		int rest = sl - sp;
+		if (rest > 0) {
+			int b1 = src[sp] & 0xff;
+			int b2 = rest > 1 ? src[sp + 1] & 0xff : 0;
+			dst[dp++] = alphabet[b1 >>> 2];
+			dst[dp++] = alphabet[(b1 & 0x03) << 4 | b2 >>> 4];
+			if (rest > 1) {
+				dst[dp++] = alphabet[(b2 & 0x0f) << 2];
+			} else if (padding) {
+				dst[dp++] = PAD;
+			}
+			if (padding) {
+				dst[dp++] = PAD;
+			}
+		}
+		return dp;
+	}
+
+	/**
+	 * 返回src中指定范围的数据解码后的准确长度，只根据长度及PAD计算，不校验字符是否合法。
+	 * MIME模式下需扫描全部数据以排除换行等字符。
+	 *
+	 * @return 解码后的字节数，长度不可能合法时返回-1
+	 */
+	public int getDecodedLength(byte[] src, int off, int len) {
+		checkRange(src.length, off, len);
+		int n;
+		if (lineLength == 0) {
+			int end = off + len;
+			n = len;
+			if (n > 0 && src[end - 1] == PAD) {
+				n--;
+				if (n > 0 && src[end - 2] == PAD) {
+					n--;
+				}
+			}
+		} else {
+			n = 0;
+			for (int i = off, end = off + len; i < end; i++) {
+				byte c = src[i];
+				if (c == PAD) {
+					break;
+				}
+				if (values[c & 0xff] >= 0) {
+					n++;
+				}
+			}
+		}
+		int rest = n % 4;
+		if (rest == 1) {
+			return -1;
+		}
+		return n / 4 * 3 + (rest == 0 ? 0 : rest - 1);
+	}
+
+	/**
+	 * 解码整个字节数组。
+	 *
+	 * @return 解码结果，传入null或数据非法时返回null
+	 */
+	public byte[] decode(byte[] src) {
+		if (src == null) {
+			return null;
+		}
+		int n = getDecodedLength(src, 0, src.length);
+		if (n < 0) {
+			return null;
+		}
+		byte[] dst = new byte[n];
+		if (decode(src, 0, src.length, dst, 0) != n) {
+			return null;
+		}
+		return dst;
+	}
+
+	/**
+	 * 解码字符串。
+	 *
+	 * @return 解码结果，传入null或数据非法时返回null
+	 */
+	public byte[] decode(String src) {
+		if (src == null) {
+			return null;
+		}
+		return decode(src.getBytes(ASCII));
+	}
+
+	/**
+	 * 将src中指定范围的数据解码后写入调用方提供的dst，不分配任何对象。
+	 *
+	 * @param dst
+	 *            接收解码结果的数组，剩余空间不得小于
+	 *            {@link #getDecodedLength(byte[], int, int)}
+	 * @return 写入dst的字节数；数据非法时返回-1，此时dst中可能已写入部分数据
+	 * @throws IndexOutOfBoundsException
+	 *             范围越界或dst空间不足
+	 */
+	public int decode(byte[] src, int off, int len, byte[] dst, int dstOff) {
+		checkRange(src.length, off, len);
+		if (dstOff < 0 || dst.length - dstOff < len / 4 * 3 + 2) {
+			int n = getDecodedLength(src, off, len);
+			if (n < 0) {
+				return -1;
+			}
+			checkRange(dst.length, dstOff, n);
+		}
+		int[] values = this.values;
+		boolean mime = lineLength > 0;
+		int sp = off;
+		int sl = off + len;
+		int dp = dstOff;
+		int bits = 0;
+		int shift = 18;
+		while (sp < sl) {
+			if (shift == 18) {
+				while (sl - sp >= 8) {
+					int d0 = values[src[sp] & 0xff];
+					int d1 = values[src[sp + 1] & 0xff];
+					int d2 = values[src[sp + 2] & 0xff];
+					int d3 = values[src[sp + 3] & 0xff];
+					int d4 = values[src[sp + 4] & 0xff];
+					int d5 = values[src[sp + 5] & 0xff];
+					int d6 = values[src[sp + 6] & 0xff];
+					int d7 = values[src[sp + 7] & 0xff];
+					if ((d0 | d1 | d2 | d3 | d4 | d5 | d6 | d7) < 0) {
+						break;
+					}
+					long v = (long) d0 << 42 | (long) d1 << 36 | (long) d2 << 30 | (long) d3 << 24 | d4 << 18
+							| d5 << 12 | d6 << 6 | d7;
+					dst[dp] = (byte) (v >>> 40);
+					dst[dp + 1] = (byte) (v >>> 32);
+					dst[dp + 2] = (byte) (v >>> 24);
+					dst[dp + 3] = (byte) (v >>> 16);
+					dst[dp + 4] = (byte) (v >>> 8);
+					dst[dp + 5] = (byte) v;
+					sp += 8;
+					dp += 6;
+				}
+				if (sp >= sl) {
+					break;
+				}
+			}
+			int c = src[sp++] & 0xff;
+			int d = values[c];
+			if (d < 0) {
+				if (c == PAD) {
+					// 两个字符后需要"=="，三个字符后需要"="
+					if (shift == 6) {
+						sp = skipIgnored(src, sp, sl, mime);
+						if (sp == sl || src[sp++] != PAD) {
+							return -1;
+						}
+					} else if (shift != 0) {
+						return -1;
+					}
+					if (skipIgnored(src, sp, sl, mime) != sl) {
+						return -1;
+					}
+					break;
+				}
+				if (mime) {
+					continue;
+				}
+				return -1;
+			}
+			bits |= d << shift;
+			shift -= 6;
+			if (shift < 0) {
+				dst[dp] = (byte) (bits >> 16);
+				dst[dp + 1] = (byte) (bits >> 8);
+				dst[dp + 2] = (byte) bits;
+				dp += 3;
+				bits = 0;
+				shift = 18;
+			}
+		}
+		if (shift == 6) {
+			if ((bits & 0xf000) != 0) {
+				return -1;
+			}
+			dst[dp++] = (byte) (bits >> 16);
+		} else if (shift == 0) {
+			if ((bits & 0xc0) != 0) {
+				return -1;
+			}
+			dst[dp++] = (byte) (bits >> 16);
+			dst[dp++] = (byte) (bits >> 8);
+		} else if (shift != 18) {
+			return -1;
+		}
+		return dp - dstOff;
+	}
+
+	/**
+	 * MIME模式下跳过字母表以外的非PAD字符。
+	 */
+	private int skipIgnored(byte[] src, int sp, int sl, boolean mime) {
+		if (mime) {
+			while (sp < sl && src[sp] != PAD && values[src[sp] & 0xff] < 0) {
+				sp++;
+			}
+		}
+		return sp;
+	}
+
+	private static void checkRange(int length, int off, int len) {
+		if (off < 0 || len < 0 || off > length - len) {
+			throw new IndexOutOfBoundsException("off=" + off + ", len=" + len + ", length=" + length);
+		}
+	}
+}
@@ -19,6 +19,7 @@ package org.scorpio.octopus.utils;
 
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.io.Writer;
 import java.text.DateFormat;
 import java.text.DateFormatSymbols;
 import java.text.FieldPosition;
@@ -29,10 +30,8 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 import java.util.TimeZone;
 /**
  * 快速的，线程安全的日期格式化类。
@@ -104,13 +103,41 @@ class FastDateFormat extends Format {
      */
     public static final int SHORT = DateFormat.SHORT;
     
-    private static String cDefaultPattern; // lazily initialised by getInstance()
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+    /**
+     * 1600-01-01, safely after the Julian/Gregorian cutover.
+     */
+    private static final long MIN_MILLIS_DAY = -135140L;
+    /**
+     * 9999-12-31.
+     */
+    private static final long MAX_MILLIS_DAY = 2932896L;
+    private static final int[] DAYS_BEFORE_MONTH = {
+        0, 31, 59, 90, 120, 151, 181, 212, 243, 273, 304, 334
+    };
 
-    private static final Map cInstanceCache = new HashMap(7);
-    private static final Map cDateInstanceCache = new HashMap(7);
-    private static final Map cTimeInstanceCache = new HashMap(7);
-    private static final Map cDateTimeInstanceCache = new HashMap(7);
-    private static final Map cTimeZoneDisplayCache = new HashMap(7);
+    private static volatile String cDefaultPattern; // lazily initialised by getInstance()
+
+    // The caches are bounded because patterns may come from callers; reads
+    // are lock-free, a racing miss may build a format twice but only the
+    // first one put is ever handed out.
+    private static final BoundedCache<FastDateFormat, FastDateFormat> cInstanceCache =
+        new BoundedCache<FastDateFormat, FastDateFormat>(512);
+    private static final BoundedCache<Object, FastDateFormat> cDateInstanceCache =
+        new BoundedCache<Object, FastDateFormat>(64);
+    private static final BoundedCache<Object, FastDateFormat> cTimeInstanceCache =
+        new BoundedCache<Object, FastDateFormat>(64);
+    private static final BoundedCache<Object, FastDateFormat> cDateTimeInstanceCache =
+        new BoundedCache<Object, FastDateFormat>(64);
+    private static final BoundedCache<TimeZoneDisplayKey, String> cTimeZoneDisplayCache =
+        new BoundedCache<TimeZoneDisplayKey, String>(256);
+    // Per-thread work areas, so that formatting millis into a caller's
+    // buffer allocates nothing.
+    private static final ThreadLocal<FormatScratch> cScratch = new ThreadLocal<FormatScratch>() {
+        protected FormatScratch initialValue() {
+            return new FormatScratch();
+        }
+    };
 
     /**
      * The pattern.
@@ -140,6 +167,35 @@ class FastDateFormat extends Format {
      * The estimated maximum length.
      */
     private transient int mMaxLengthEstimate;
+    /**
+     * Number of leading rules that depend on the date only, or -1 if
+     * the pattern cannot be formatted without a <code>Calendar</code>.
+     */
+    private transient int mDatePrefixRules;
+    /**
+     * Whether a rule after the date prefix needs the date fields.
+     */
+    private transient boolean mSuffixNeedsDate;
+    /**
+     * Whether a rule needs the daylight savings state (time zone names).
+     */
+    private transient boolean mNeedsDaylight;
+    /**
+     * Whether the output only changes once per second (no milliseconds).
+     */
+    private transient boolean mSecondCacheable;
+    /**
+     * The shared offset table of the time zone.
+     */
+    private transient ZoneTransitions mTransitions;
+    /**
+     * The date prefix of the most recently formatted local day.
+     */
+    private transient volatile CachedText mDayCache;
+    /**
+     * The full text of the most recently formatted second.
+     */
+    private transient volatile CachedText mSecondCache;
 
     //-----------------------------------------------------------------------
     /**
@@ -208,13 +264,13 @@ class FastDateFormat extends Format {
      * @throws IllegalArgumentException if pattern is invalid
      *  or <code>null</code>
      */
-    public static synchronized FastDateFormat getInstance(String pattern, TimeZone timeZone, Locale locale) {
+    public static FastDateFormat getInstance(String pattern, TimeZone timeZone, Locale locale) {
         FastDateFormat emptyFormat = new FastDateFormat(pattern, timeZone, locale);
-        FastDateFormat format = (FastDateFormat) cInstanceCache.get(emptyFormat);
+        FastDateFormat format = cInstanceCache.get(emptyFormat);
         if (format == null) {
             format = emptyFormat;
             format.init();  // convert shell format into usable one
-            cInstanceCache.put(format, format);  // this is OK!
+            format = cInstanceCache.putIfAbsent(format, format);  // this is OK!
         }
         return format;
     }
@@ -277,7 +333,7 @@ class FastDateFormat extends Format {
      * @throws IllegalArgumentException if the Locale has no date
      *  pattern defined
      */
-    public static synchronized FastDateFormat getDateInstance(int style, TimeZone timeZone, Locale locale) {
+    public static FastDateFormat getDateInstance(int style, TimeZone timeZone, Locale locale) {
         Object key = new Integer(style);
         if (timeZone != null) {
             key = new Pair(key, timeZone);
@@ -289,13 +345,13 @@ class FastDateFormat extends Format {
 
         key = new Pair(key, locale);
 
-        FastDateFormat format = (FastDateFormat) cDateInstanceCache.get(key);
+        FastDateFormat format = cDateInstanceCache.get(key);
         if (format == null) {
             try {
                 SimpleDateFormat formatter = (SimpleDateFormat) DateFormat.getDateInstance(style, locale);
                 String pattern = formatter.toPattern();
                 format = getInstance(pattern, timeZone, locale);
-                cDateInstanceCache.put(key, format);
+                format = cDateInstanceCache.putIfAbsent(key, format);
                 
             } catch (ClassCastException ex) {
                 throw new IllegalArgumentException("No date pattern for locale: " + locale);
@@ -362,7 +418,7 @@ class FastDateFormat extends Format {
      * @throws IllegalArgumentException if the Locale has no time
      *  pattern defined
      */
-    public static synchronized FastDateFormat getTimeInstance(int style, TimeZone timeZone, Locale locale) {
+    public static FastDateFormat getTimeInstance(int style, TimeZone timeZone, Locale locale) {
         Object key = new Integer(style);
         if (timeZone != null) {
             key = new Pair(key, timeZone);
@@ -371,7 +427,7 @@ class FastDateFormat extends Format {
             key = new Pair(key, locale);
         }
 
-        FastDateFormat format = (FastDateFormat) cTimeInstanceCache.get(key);
+        FastDateFormat format = cTimeInstanceCache.get(key);
         if (format == null) {
             if (locale == null) {
                 locale = Locale.getDefault();
@@ -381,7 +437,7 @@ class FastDateFormat extends Format {
                 SimpleDateFormat formatter = (SimpleDateFormat) DateFormat.getTimeInstance(style, locale);
                 String pattern = formatter.toPattern();
                 format = getInstance(pattern, timeZone, locale);
-                cTimeInstanceCache.put(key, format);
+                format = cTimeInstanceCache.putIfAbsent(key, format);
             
             } catch (ClassCastException ex) {
                 throw new IllegalArgumentException("No date pattern for locale: " + locale);
@@ -454,7 +510,7 @@ class FastDateFormat extends Format {
      * @throws IllegalArgumentException if the Locale has no date/time
      *  pattern defined
      */
-    public static synchronized FastDateFormat getDateTimeInstance(int dateStyle, int timeStyle, TimeZone timeZone,
+    public static FastDateFormat getDateTimeInstance(int dateStyle, int timeStyle, TimeZone timeZone,
             Locale locale) {
 
         Object key = new Pair(new Integer(dateStyle), new Integer(timeStyle));
@@ -466,14 +522,14 @@ class FastDateFormat extends Format {
         }
         key = new Pair(key, locale);
 
-        FastDateFormat format = (FastDateFormat) cDateTimeInstanceCache.get(key);
+        FastDateFormat format = cDateTimeInstanceCache.get(key);
         if (format == null) {
             try {
                 SimpleDateFormat formatter = (SimpleDateFormat) DateFormat.getDateTimeInstance(dateStyle, timeStyle,
                         locale);
                 String pattern = formatter.toPattern();
                 format = getInstance(pattern, timeZone, locale);
-                cDateTimeInstanceCache.put(key, format);
+                format = cDateTimeInstanceCache.putIfAbsent(key, format);
 
             } catch (ClassCastException ex) {
                 throw new IllegalArgumentException("No date time pattern for locale: " + locale);
@@ -493,13 +549,13 @@ class FastDateFormat extends Format {
      * @param locale  the locale to use
      * @return the textual name of the time zone
      */
-    static synchronized String getTimeZoneDisplay(TimeZone tz, boolean daylight, int style, Locale locale) {
-        Object key = new TimeZoneDisplayKey(tz, daylight, style, locale);
-        String value = (String) cTimeZoneDisplayCache.get(key);
+    static String getTimeZoneDisplay(TimeZone tz, boolean daylight, int style, Locale locale) {
+        TimeZoneDisplayKey key = new TimeZoneDisplayKey(tz, daylight, style, locale);
+        String value = cTimeZoneDisplayCache.get(key);
         if (value == null) {
             // This is a very slow call, so cache the results.
             value = tz.getDisplayName(daylight, style, locale);
-            cTimeZoneDisplayCache.put(key, value);
+            value = cTimeZoneDisplayCache.putIfAbsent(key, value);
         }
         return value;
     }
@@ -509,11 +565,13 @@ class FastDateFormat extends Format {
      * 
      * @return the default pattern
      */
-    private static synchronized String getDefaultPattern() {
-        if (cDefaultPattern == null) {
-            cDefaultPattern = new SimpleDateFormat().toPattern();
+    private static String getDefaultPattern() {
+        String pattern = cDefaultPattern;
+        if (pattern == null) {
+            pattern = new SimpleDateFormat().toPattern();
+            cDefaultPattern = pattern;
         }
-        return cDefaultPattern;
+        return pattern;
     }
 
     // Constructor
@@ -564,6 +622,79 @@ class FastDateFormat extends Format {
         }
 
         mMaxLengthEstimate = len;
+        mTransitions = ZoneTransitions.getInstance(mTimeZone);
+        mDayCache = null;
+        mSecondCache = null;
+        initMillisRules();
+    }
+
+    /**
+     * <p>Decides whether the pattern can be formatted straight from epoch
+     * millis and finds the leading rules that only depend on the date.</p>
+     *
+     * <p>The week fields depend on the first day of week and minimal days
+     * of the locale, so patterns using them always go through a
+     * <code>Calendar</code>.</p>
+     */
+    private void initMillisRules() {
+        int prefix = 0;
+        boolean inPrefix = true;
+        boolean suffixNeedsDate = false;
+        boolean needsDaylight = false;
+        boolean secondCacheable = true;
+
+        int length = mPattern.length();
+        int[] indexRef = new int[1];
+        for (int i = 0; i < length; i++) {
+            indexRef[0] = i;
+            String token = parseToken(mPattern, indexRef);
+            i = indexRef[0];
+            if (token.length() == 0) {
+                break;
+            }
+
+            boolean dateOnly = false;
+            switch (token.charAt(0)) {
+            case 'w':
+            case 'W':
+                mDatePrefixRules = -1;
+                mSecondCacheable = false;
+                return;
+            case 'G':
+            case 'y':
+            case 'M':
+            case 'd':
+            case 'E':
+            case 'D':
+            case 'F':
+                dateOnly = true;
+                if (!inPrefix) {
+                    suffixNeedsDate = true;
+                }
+                break;
+            case '\'':
+                dateOnly = true;
+                break;
+            case 'S':
+                secondCacheable = false;
+                break;
+            case 'z':
+                needsDaylight = true;
+                break;
+            default:
+                break;
+            }
+            if (inPrefix && dateOnly) {
+                prefix++;
+            } else {
+                inPrefix = false;
+            }
+        }
+
+        mDatePrefixRules = prefix;
+        mSuffixNeedsDate = suffixNeedsDate;
+        mNeedsDaylight = needsDaylight;
+        mSecondCacheable = secondCacheable;
     }
 
     // Parse the pattern
@@ -806,7 +937,17 @@ class FastDateFormat extends Format {
      * @since 2.1
      */
     public String format(long millis) {
-        return format(new Date(millis));
+        if (!mSecondCacheable) {
+            return applyRules(millis, new StringBuilder(mMaxLengthEstimate)).toString();
+        }
+        long second = Math.floorDiv(millis, 1000L);
+        CachedText cached = mSecondCache;
+        if (cached != null && cached.mKey == second) {
+            return cached.mText;
+        }
+        String text = applyRules(millis, new StringBuilder(mMaxLengthEstimate)).toString();
+        mSecondCache = new CachedText(second, text);
+        return text;
     }
 
     /**
@@ -816,9 +957,7 @@ class FastDateFormat extends Format {
      * @return the formatted string
      */
     public String format(Date date) {
-        Calendar c = new GregorianCalendar(mTimeZone, mLocale);
-        c.setTime(date);
-        return applyRules(c, new StringBuffer(mMaxLengthEstimate)).toString();
+        return format(date.getTime());
     }
 
     /**
@@ -828,7 +967,7 @@ class FastDateFormat extends Format {
      * @return the formatted string
      */
     public String format(Calendar calendar) {
-        return format(calendar, new StringBuffer(mMaxLengthEstimate)).toString();
+        return format(calendar, new StringBuilder(mMaxLengthEstimate)).toString();
     }
 
     /**
@@ -841,7 +980,15 @@ class FastDateFormat extends Format {
      * @since 2.1
      */
     public StringBuffer format(long millis, StringBuffer buf) {
-        return format(new Date(millis), buf);
+        StringBuilder text = scratchText();
+        if (mDatePrefixRules < 0) {
+            // 与原实现一致，这两个StringBuffer方法按默认地区计算周字段
+            Calendar c = new GregorianCalendar(mTimeZone);
+            c.setTimeInMillis(millis);
+            return buf.append(applyRules(c, text));
+        }
+        appendMillis(millis, text);
+        return buf.append(text);
     }
 
     /**
@@ -853,9 +1000,7 @@ class FastDateFormat extends Format {
      * @return the specified string buffer
      */
     public StringBuffer format(Date date, StringBuffer buf) {
-        Calendar c = new GregorianCalendar(mTimeZone);
-        c.setTime(date);
-        return applyRules(c, buf);
+        return format(date.getTime(), buf);
     }
 
     /**
@@ -868,6 +1013,18 @@ class FastDateFormat extends Format {
      * @return the specified string buffer
      */
     public StringBuffer format(Calendar calendar, StringBuffer buf) {
+        return buf.append(format(calendar, scratchText()));
+    }
+
+    /**
+     * <p>Formats a <code>Calendar</code> object into the
+     * supplied <code>StringBuilder</code>.</p>
+     * 
+     * @param calendar  the calendar to format
+     * @param buf  the buffer to format into
+     * @return the specified string builder
+     */
+    public StringBuilder format(Calendar calendar, StringBuilder buf) {
         if (mTimeZoneForced) {
             calendar.getTime(); /// LANG-538
             calendar = (Calendar) calendar.clone();
@@ -876,15 +1033,119 @@ class FastDateFormat extends Format {
         return applyRules(calendar, buf);
     }
 
+    /**
+     * 格式化毫秒数并追加到buf，不创建任何对象(每天第一次格式化时缓存日期部分除外)。
+     * <p>Formats a millisecond <code>long</code> value into the
+     * supplied <code>StringBuilder</code> without allocating.</p>
+     * 
+     * @param millis  the millisecond value to format
+     * @param buf  the buffer to format into
+     * @return the specified string builder
+     */
+    public StringBuilder formatTo(long millis, StringBuilder buf) {
+        return appendMillis(millis, buf);
+    }
+
+    /**
+     * 格式化毫秒数并追加到out，不创建任何对象。
+     * <p>Formats a millisecond <code>long</code> value into the
+     * supplied <code>Appendable</code>. The text is formatted into a
+     * per-thread buffer first; a <code>Writer</code> receives it as one
+     * <code>write(char[], int, int)</code> call, any other
+     * <code>Appendable</code> as one <code>append(CharSequence)</code>
+     * call.</p>
+     * 
+     * @param millis  the millisecond value to format
+     * @param out  the destination to format into
+     * @return the specified appendable
+     * @throws IOException if the appendable throws it
+     */
+    public Appendable formatTo(long millis, Appendable out) throws IOException {
+        if (out instanceof StringBuilder) {
+            return appendMillis(millis, (StringBuilder) out);
+        }
+        FormatScratch scratch = cScratch.get();
+        StringBuilder text = scratch.mText;
+        text.setLength(0);
+        appendMillis(millis, text, scratch);
+        if (out instanceof Writer) {
+            int len = text.length();
+            char[] chars = scratch.chars(len);
+            text.getChars(0, len, chars, 0);
+            ((Writer) out).write(chars, 0, len);
+        } else {
+            out.append(text);
+        }
+        return out;
+    }
+
+    /**
+     * 格式化毫秒数并写入字符数组，不创建任何对象。
+     * <p>Formats a millisecond <code>long</code> value into the supplied
+     * array starting at <code>off</code>. Nothing is written if the text
+     * does not fit; {@link #getMaxLengthEstimate()} is a safe size for
+     * patterns without text fields.</p>
+     * 
+     * @param millis  the millisecond value to format
+     * @param dst  the array to format into
+     * @param off  the index of the first char to write
+     * @return the index after the last char written
+     * @throws ArrayIndexOutOfBoundsException if the text does not fit
+     */
+    public int formatTo(long millis, char[] dst, int off) {
+        StringBuilder text = scratchText();
+        appendMillis(millis, text);
+        int len = text.length();
+        if (off < 0 || off > dst.length - len) {
+            throw new ArrayIndexOutOfBoundsException("Formatted length " + len
+                    + " does not fit at offset " + off + " of array length " + dst.length);
+        }
+        text.getChars(0, len, dst, off);
+        return off + len;
+    }
+
+    /**
+     * <p>Returns the cleared per-thread buffer of the calling thread.</p>
+     * 
+     * @return the per-thread buffer
+     */
+    private static StringBuilder scratchText() {
+        StringBuilder text = (cScratch.get()).mText;
+        text.setLength(0);
+        return text;
+    }
+
+    /**
+     * <p>Appends the formatted millis, reusing the text of the most
+     * recently formatted second if it is still current.</p>
+     * 
+     * @param millis  the millisecond value to format
+     * @param buf  the buffer to format into
+     * @return the specified string builder
+     */
+    private StringBuilder appendMillis(long millis, StringBuilder buf) {
+        return appendMillis(millis, buf, cScratch.get());
+    }
+
+    private StringBuilder appendMillis(long millis, StringBuilder buf, FormatScratch scratch) {
+        if (mSecondCacheable) {
+            CachedText cached = mSecondCache;
+            if (cached != null && cached.mKey == Math.floorDiv(millis, 1000L)) {
+                return buf.append(cached.mText);
+            }
+        }
+        return applyRules(millis, buf, scratch);
+    }
+
     /**
      * <p>Performs the formatting by applying the rules to the
      * specified calendar.</p>
      * 
      * @param calendar  the calendar to format
      * @param buf  the buffer to format into
-     * @return the specified string buffer
+     * @return the specified string builder
      */
-    protected StringBuffer applyRules(Calendar calendar, StringBuffer buf) {
+    protected StringBuilder applyRules(Calendar calendar, StringBuilder buf) {
         Rule[] rules = mRules;
         int len = mRules.length;
         for (int i = 0; i < len; i++) {
@@ -893,6 +1154,105 @@ class FastDateFormat extends Format {
         return buf;
     }
 
+    /**
+     * 不创建Calendar，直接由毫秒数计算各字段并格式化，同一天的日期前缀会被缓存。
+     * <p>Performs the formatting by applying the rules to the specified
+     * epoch millis in the time zone of this formatter.</p>
+     *
+     * <p>The civil fields are computed arithmetically in the proleptic
+     * Gregorian calendar, so instants before 1600 and patterns using week
+     * fields fall back to a <code>GregorianCalendar</code>.</p>
+     * 
+     * @param millis  the millisecond value to format
+     * @param buf  the buffer to format into
+     * @return the specified string builder
+     */
+    protected StringBuilder applyRules(long millis, StringBuilder buf) {
+        return applyRules(millis, buf, cScratch.get());
+    }
+
+    private StringBuilder applyRules(long millis, StringBuilder buf, FormatScratch scratch) {
+        ZoneTransitions transitions = mTransitions;
+        int offset = transitions.getOffset(millis);
+        long day = Math.floorDiv(millis + offset, MILLIS_PER_DAY);
+        if (mDatePrefixRules < 0 || day < MIN_MILLIS_DAY || day > MAX_MILLIS_DAY) {
+            Calendar c = new GregorianCalendar(mTimeZone, mLocale);
+            c.setTimeInMillis(millis);
+            return applyRules(c, buf);
+        }
+
+        // every field read by a rule below is assigned first, so the
+        // per-thread array need not be cleared
+        int[] fields = scratch.mFields;
+        int millisOfDay = (int) (millis + offset - day * MILLIS_PER_DAY);
+        int hour = millisOfDay / (60 * 60 * 1000);
+        fields[Calendar.HOUR_OF_DAY] = hour;
+        fields[Calendar.HOUR] = hour % 12;
+        fields[Calendar.AM_PM] = hour < 12 ? Calendar.AM : Calendar.PM;
+        fields[Calendar.MINUTE] = millisOfDay / (60 * 1000) % 60;
+        fields[Calendar.SECOND] = millisOfDay / 1000 % 60;
+        fields[Calendar.MILLISECOND] = millisOfDay % 1000;
+        int dst = mNeedsDaylight ? transitions.getDSTOffset(millis) : 0;
+        fields[Calendar.ZONE_OFFSET] = offset - dst;
+        fields[Calendar.DST_OFFSET] = dst;
+
+        Rule[] rules = mRules;
+        int prefix = mDatePrefixRules;
+        boolean dateComputed = false;
+        if (prefix > 0) {
+            CachedText cached = mDayCache;
+            if (cached == null || cached.mKey != day) {
+                computeDateFields(day, fields);
+                dateComputed = true;
+                StringBuilder text = new StringBuilder(mMaxLengthEstimate);
+                for (int i = 0; i < prefix; i++) {
+                    rules[i].appendTo(text, fields);
+                }
+                cached = new CachedText(day, text.toString());
+                mDayCache = cached;
+            }
+            buf.append(cached.mText);
+        }
+        if (mSuffixNeedsDate && !dateComputed) {
+            computeDateFields(day, fields);
+        }
+        int len = rules.length;
+        for (int i = prefix; i < len; i++) {
+            rules[i].appendTo(buf, fields);
+        }
+        return buf;
+    }
+
+    /**
+     * <p>Computes the date fields of the specified local epoch day.</p>
+     *
+     * @param day  days since 1970-01-01 in local time
+     * @param fields  the fields to fill in
+     */
+    private static void computeDateFields(long day, int[] fields) {
+        // Days since 0000-03-01, so that the leap day is the last day of
+        // the (shifted) year; see "chrono-Compatible Low-Level Date Algorithms".
+        int z = (int) day + 719468;
+        int era = z / 146097;
+        int doe = z - era * 146097;
+        int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        int mp = (5 * doy + 2) / 153;
+        int dayOfMonth = doy - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 2 : mp - 10;
+        int year = era * 400 + yoe + (month <= Calendar.FEBRUARY ? 1 : 0);
+        boolean leap = (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+
+        fields[Calendar.ERA] = GregorianCalendar.AD;
+        fields[Calendar.YEAR] = year;
+        fields[Calendar.MONTH] = month;
+        fields[Calendar.DAY_OF_MONTH] = dayOfMonth;
+        fields[Calendar.DAY_OF_YEAR] = DAYS_BEFORE_MONTH[month] + dayOfMonth
+                + (leap && month > Calendar.FEBRUARY ? 1 : 0);
+        fields[Calendar.DAY_OF_WEEK] = (int) Math.floorMod(day + 4, 7L) + Calendar.SUNDAY;
+        fields[Calendar.DAY_OF_WEEK_IN_MONTH] = (dayOfMonth - 1) / 7 + 1;
+    }
+
     // Parsing
     //-----------------------------------------------------------------------
     /**
@@ -1049,7 +1409,15 @@ class FastDateFormat extends Format {
          * @param buffer the output buffer
          * @param calendar calendar to be appended
          */
-        void appendTo(StringBuffer buffer, Calendar calendar);
+        void appendTo(StringBuilder buffer, Calendar calendar);
+
+        /**
+         * Appends the value of the specified fields to the output buffer based on the rule implementation.
+         * 
+         * @param buffer the output buffer
+         * @param fields calendar field values, indexed by the <code>Calendar</code> field constants
+         */
+        void appendTo(StringBuilder buffer, int[] fields);
     }
 
     /**
@@ -1062,7 +1430,7 @@ class FastDateFormat extends Format {
          * @param buffer the output buffer
          * @param value the value to be appended
          */
-        void appendTo(StringBuffer buffer, int value);
+        void appendTo(StringBuilder buffer, int value);
     }
 
     /**
@@ -1091,7 +1459,14 @@ class FastDateFormat extends Format {
         /**
          * {@inheritDoc}
          */
-        public void appendTo(StringBuffer buffer, Calendar calendar) {
+        public void appendTo(StringBuilder buffer, Calendar calendar) {
+            buffer.append(mValue);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void appendTo(StringBuilder buffer, int[] fields) {
             buffer.append(mValue);
         }
     }
@@ -1122,7 +1497,14 @@ class FastDateFormat extends Format {
         /**
          * {@inheritDoc}
          */
-        public void appendTo(StringBuffer buffer, Calendar calendar) {
+        public void appendTo(StringBuilder buffer, Calendar calendar) {
+            buffer.append(mValue);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void appendTo(StringBuilder buffer, int[] fields) {
             buffer.append(mValue);
         }
     }
@@ -1163,9 +1545,16 @@ class FastDateFormat extends Format {
         /**
          * {@inheritDoc}
          */
-        public void appendTo(StringBuffer buffer, Calendar calendar) {
+        public void appendTo(StringBuilder buffer, Calendar calendar) {
             buffer.append(mValues[calendar.get(mField)]);
         }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void appendTo(StringBuilder buffer, int[] fields) {
+            buffer.append(mValues[fields[mField]]);
+        }
     }
 
     /**
@@ -1193,21 +1582,28 @@ class FastDateFormat extends Format {
         /**
          * {@inheritDoc}
          */
-        public void appendTo(StringBuffer buffer, Calendar calendar) {
+        public void appendTo(StringBuilder buffer, Calendar calendar) {
             appendTo(buffer, calendar.get(mField));
         }
 
         /**
          * {@inheritDoc}
          */
-        public final void appendTo(StringBuffer buffer, int value) {
+        public void appendTo(StringBuilder buffer, int[] fields) {
+            appendTo(buffer, fields[mField]);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public final void appendTo(StringBuilder buffer, int value) {
             if (value < 10) {
                 buffer.append((char)(value + '0'));
             } else if (value < 100) {
                 buffer.append((char)(value / 10 + '0'));
                 buffer.append((char)(value % 10 + '0'));
             } else {
-                buffer.append(Integer.toString(value));
+                buffer.append(value);
             }
         }
     }
@@ -1236,14 +1632,21 @@ class FastDateFormat extends Format {
         /**
          * {@inheritDoc}
          */
-        public void appendTo(StringBuffer buffer, Calendar calendar) {
+        public void appendTo(StringBuilder buffer, Calendar calendar) {
             appendTo(buffer, calendar.get(Calendar.MONTH) + 1);
         }
 
         /**
          * {@inheritDoc}
          */
-        public final void appendTo(StringBuffer buffer, int value) {
+        public void appendTo(StringBuilder buffer, int[] fields) {
+            appendTo(buffer, fields[Calendar.MONTH] + 1);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public final void appendTo(StringBuilder buffer, int value) {
             if (value < 10) {
                 buffer.append((char)(value + '0'));
             } else {
@@ -1285,14 +1688,21 @@ class FastDateFormat extends Format {
         /**
          * {@inheritDoc}
          */
-        public void appendTo(StringBuffer buffer, Calendar calendar) {
+        public void appendTo(StringBuilder buffer, Calendar calendar) {
             appendTo(buffer, calendar.get(mField));
         }
 
         /**
          * {@inheritDoc}
          */
-        public final void appendTo(StringBuffer buffer, int value) {
+        public void appendTo(StringBuilder buffer, int[] fields) {
+            appendTo(buffer, fields[mField]);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public final void appendTo(StringBuilder buffer, int value) {
             if (value < 100) {
                 for (int i = mSize; --i >= 2; ) {
                     buffer.append('0');
@@ -1305,12 +1715,15 @@ class FastDateFormat extends Format {
                     digits = 3;
                 } else {
                     isTrue(value > -1, "Negative values should not be possible", value);
-                    digits = Integer.toString(value).length();
+                    digits = 4;
+                    for (int rest = value / 10000; rest > 0; rest /= 10) {
+                        digits++;
+                    }
                 }
                 for (int i = mSize; --i >= digits; ) {
                     buffer.append('0');
                 }
-                buffer.append(Integer.toString(value));
+                buffer.append(value);
             }
         }
     }
@@ -1345,19 +1758,26 @@ class FastDateFormat extends Format {
         /**
          * {@inheritDoc}
          */
-        public void appendTo(StringBuffer buffer, Calendar calendar) {
+        public void appendTo(StringBuilder buffer, Calendar calendar) {
             appendTo(buffer, calendar.get(mField));
         }
 
         /**
          * {@inheritDoc}
          */
-        public final void appendTo(StringBuffer buffer, int value) {
+        public void appendTo(StringBuilder buffer, int[] fields) {
+            appendTo(buffer, fields[mField]);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public final void appendTo(StringBuilder buffer, int value) {
             if (value < 100) {
                 buffer.append((char)(value / 10 + '0'));
                 buffer.append((char)(value % 10 + '0'));
             } else {
-                buffer.append(Integer.toString(value));
+                buffer.append(value);
             }
         }
     }
@@ -1385,14 +1805,21 @@ class FastDateFormat extends Format {
         /**
          * {@inheritDoc}
          */
-        public void appendTo(StringBuffer buffer, Calendar calendar) {
+        public void appendTo(StringBuilder buffer, Calendar calendar) {
             appendTo(buffer, calendar.get(Calendar.YEAR) % 100);
         }
 
         /**
          * {@inheritDoc}
          */
-        public final void appendTo(StringBuffer buffer, int value) {
+        public void appendTo(StringBuilder buffer, int[] fields) {
+            appendTo(buffer, fields[Calendar.YEAR] % 100);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public final void appendTo(StringBuilder buffer, int value) {
             buffer.append((char)(value / 10 + '0'));
             buffer.append((char)(value % 10 + '0'));
         }
@@ -1421,14 +1848,21 @@ class FastDateFormat extends Format {
         /**
          * {@inheritDoc}
          */
-        public void appendTo(StringBuffer buffer, Calendar calendar) {
+        public void appendTo(StringBuilder buffer, Calendar calendar) {
             appendTo(buffer, calendar.get(Calendar.MONTH) + 1);
         }
 
         /**
          * {@inheritDoc}
          */
-        public final void appendTo(StringBuffer buffer, int value) {
+        public void appendTo(StringBuilder buffer, int[] fields) {
+            appendTo(buffer, fields[Calendar.MONTH] + 1);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public final void appendTo(StringBuilder buffer, int value) {
             buffer.append((char)(value / 10 + '0'));
             buffer.append((char)(value % 10 + '0'));
         }
@@ -1460,7 +1894,7 @@ class FastDateFormat extends Format {
         /**
          * {@inheritDoc}
          */
-        public void appendTo(StringBuffer buffer, Calendar calendar) {
+        public void appendTo(StringBuilder buffer, Calendar calendar) {
             int value = calendar.get(Calendar.HOUR);
             if (value == 0) {
                 value = calendar.getLeastMaximum(Calendar.HOUR) + 1;
@@ -1471,7 +1905,18 @@ class FastDateFormat extends Format {
         /**
          * {@inheritDoc}
          */
-        public void appendTo(StringBuffer buffer, int value) {
+        public void appendTo(StringBuilder buffer, int[] fields) {
+            int value = fields[Calendar.HOUR];
+            if (value == 0) {
+                value = 12;
+            }
+            mRule.appendTo(buffer, value);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void appendTo(StringBuilder buffer, int value) {
             mRule.appendTo(buffer, value);
         }
     }
@@ -1502,7 +1947,7 @@ class FastDateFormat extends Format {
         /**
          * {@inheritDoc}
          */
-        public void appendTo(StringBuffer buffer, Calendar calendar) {
+        public void appendTo(StringBuilder buffer, Calendar calendar) {
             int value = calendar.get(Calendar.HOUR_OF_DAY);
             if (value == 0) {
                 value = calendar.getMaximum(Calendar.HOUR_OF_DAY) + 1;
@@ -1513,7 +1958,18 @@ class FastDateFormat extends Format {
         /**
          * {@inheritDoc}
          */
-        public void appendTo(StringBuffer buffer, int value) {
+        public void appendTo(StringBuilder buffer, int[] fields) {
+            int value = fields[Calendar.HOUR_OF_DAY];
+            if (value == 0) {
+                value = 24;
+            }
+            mRule.appendTo(buffer, value);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void appendTo(StringBuilder buffer, int value) {
             mRule.appendTo(buffer, value);
         }
     }
@@ -1568,7 +2024,7 @@ class FastDateFormat extends Format {
         /**
          * {@inheritDoc}
          */
-        public void appendTo(StringBuffer buffer, Calendar calendar) {
+        public void appendTo(StringBuilder buffer, Calendar calendar) {
             if (mTimeZoneForced) {
                 if (mTimeZone.useDaylightTime() && calendar.get(Calendar.DST_OFFSET) != 0) {
                     buffer.append(mDaylight);
@@ -1584,6 +2040,18 @@ class FastDateFormat extends Format {
                 }
             }
         }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void appendTo(StringBuilder buffer, int[] fields) {
+            boolean daylight = mTimeZone.useDaylightTime() && fields[Calendar.DST_OFFSET] != 0;
+            if (mTimeZoneForced) {
+                buffer.append(daylight ? mDaylight : mStandard);
+            } else {
+                buffer.append(getTimeZoneDisplay(mTimeZone, daylight, mStyle, mLocale));
+            }
+        }
     }
 
     /**
@@ -1615,9 +2083,24 @@ class FastDateFormat extends Format {
         /**
          * {@inheritDoc}
          */
-        public void appendTo(StringBuffer buffer, Calendar calendar) {
-            int offset = calendar.get(Calendar.ZONE_OFFSET) + calendar.get(Calendar.DST_OFFSET);
-            
+        public void appendTo(StringBuilder buffer, Calendar calendar) {
+            appendTo(buffer, calendar.get(Calendar.ZONE_OFFSET) + calendar.get(Calendar.DST_OFFSET));
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void appendTo(StringBuilder buffer, int[] fields) {
+            appendTo(buffer, fields[Calendar.ZONE_OFFSET] + fields[Calendar.DST_OFFSET]);
+        }
+
+        /**
+         * Appends the specified offset as <code>+/-HHMM</code> or <code>+/-HH:MM</code>.
+         * 
+         * @param buffer the output buffer
+         * @param offset the total offset from UTC in milliseconds
+         */
+        private void appendTo(StringBuilder buffer, int offset) {
             if (offset < 0) {
                 buffer.append('-');
                 offset = -offset;
@@ -1639,6 +2122,51 @@ class FastDateFormat extends Format {
         }            
     }
 
+    // ----------------------------------------------------------------------
+    /**
+     * <p>Inner class holding the per-thread work areas used when
+     * formatting millis.</p>
+     */
+    private static class FormatScratch {
+        final int[] mFields = new int[Calendar.FIELD_COUNT];
+        final StringBuilder mText = new StringBuilder(64);
+        private char[] mChars = new char[64];
+
+        /**
+         * Returns a char array of at least the specified length.
+         * 
+         * @param length the required length
+         * @return the per-thread char array
+         */
+        char[] chars(int length) {
+            if (mChars.length < length) {
+                mChars = new char[Math.max(length, mChars.length * 2)];
+            }
+            return mChars;
+        }
+    }
+
+    // ----------------------------------------------------------------------
+    /**
+     * <p>Inner class holding a formatted text and the day or second it
+     * was formatted for.</p>
+     */
+    private static class CachedText {
+        final long mKey;
+        final String mText;
+
+        /**
+         * Constructs an instance of <code>CachedText</code>.
+         * 
+         * @param key the day or second of the text
+         * @param text the formatted text
+         */
+        CachedText(long key, String text) {
+            mKey = key;
+            mText = text;
+        }
+    }
+
     // ----------------------------------------------------------------------
     /**
      * <p>Inner class that acts as a compound key for time zone names.</p>
@@ -0,0 +1,895 @@
+package org.scorpio.octopus.utils;
+
+import java.text.DateFormatSymbols;
+import java.text.ParseException;
+import java.text.ParsePosition;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * 快速的，线程安全的日期解析类，与{@link FastDateFormat}互补。
+ * <p>
+ * 模式在创建时编译为规则数组，解析时不创建Calendar或SimpleDateFormat，除返回的Date外不分配对象。
+ * 实例不可变，通过getInstance获取并缓存。模式兼容{@link java.text.SimpleDateFormat}，支持的字母：
+ * G y M d H k K h m s S E D a z Z X，以及单引号括起的文本。不支持与地区相关的周字段(w W F u Y)，
+ * 调用方可先用{@link #isSupported(String)}判断，不支持时改用SimpleDateFormat。
+ * </p>
+ * <p>
+ * 解析规则与SimpleDateFormat一致：数字及文本字段前的空格和制表符被忽略，数字可以带负号；紧邻另一个数字字段的数字字段
+ * 按字母个数定宽解析(如yyyyMMdd)；恰好两位的y/yy年份解释为创建实例时之前80年至之后20年内的年份；
+ * 宽松模式下超出范围的字段值向上进位(如13月为次年1月)。时区文本可以是Z、GMT/UTC偏移、+HH、+HHMM、
+ * +HH:MM，z字段还可以是解析器所用时区的显示名称。1600年以前的日期交由GregorianCalendar计算，
+ * 以保持儒略历的处理与SimpleDateFormat相同。
+ * </p>
+ *
+ * <pre>
+ * Date date = FastDateParser.getInstance(&quot;yyyy-MM-dd HH:mm:ss&quot;).parse(&quot;2013-05-16 11:24:23&quot;);
+ * </pre>
+ * <p>
+ * #ThreadSafe#
+ * </p>
+ *
+ * @see FastDateFormat
+ */
+final class FastDateParser {
+	private static final BoundedCache<FastDateParser, FastDateParser> cInstanceCache = new BoundedCache<FastDateParser, FastDateParser>(
+			256);
+
+	private static final char LITERAL = 0;
+	private static final long FAILED = Long.MIN_VALUE;
+	private static final int NO_OFFSET = Integer.MIN_VALUE;
+	private static final int NO_VALUE = Integer.MIN_VALUE;
+	/**
+	 * 严格模式下允许的时区偏移范围，与GregorianCalendar的ZONE_OFFSET字段相同
+	 */
+	private static final int MIN_ZONE_OFFSET = -13 * 60 * 60 * 1000;
+	private static final int MAX_ZONE_OFFSET = 14 * 60 * 60 * 1000;
+	/**
+	 * 文本中出现的字段，严格模式下校验夏令时开始时不存在的时间时使用
+	 */
+	private static final int YEAR_SET = 1;
+	private static final int MONTH_SET = 2;
+	private static final int DAY_SET = 4;
+	private static final int HOUR_SET = 8;
+	private static final int MINUTE_SET = 16;
+	private static final int SECOND_SET = 32;
+	private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+	private static final long ZONE_WINDOW = 18L * 60 * 60 * 1000;
+	/**
+	 * 1600-01-01，早于此日期时使用GregorianCalendar计算
+	 */
+	private static final long MIN_MILLIS_DAY = -135140L;
+	/**
+	 * 9999-12-31
+	 */
+	private static final long MAX_MILLIS_DAY = 2932896L;
+
+	private final String pattern;
+	private final TimeZone timeZone;
+	private final Locale locale;
+	private final boolean lenient;
+
+	// 以下字段由init()设置，之后不再修改
+	private char[] kinds;
+	private int[] widths;
+	private boolean[] fixed;
+	private String[] literals;
+	private String[][] texts;
+	private String[] zoneNames;
+	private int[] zoneOffsets;
+	private int centuryStartYear;
+	private long centuryStart;
+	private ZoneTransitions transitions;
+	private boolean zoneText;
+
+	private FastDateParser(String pattern, TimeZone timeZone, Locale locale, boolean lenient) {
+		if (pattern == null) {
+			throw new IllegalArgumentException("The pattern must not be null");
+		}
+		this.pattern = pattern;
+		this.timeZone = timeZone == null ? TimeZone.getDefault() : timeZone;
+		this.locale = locale == null ? Locale.getDefault() : locale;
+		this.lenient = lenient;
+	}
+
+	/**
+	 * 使用默认时区及地区，获取宽松模式的解析器。
+	 *
+	 * @param pattern
+	 *            SimpleDateFormat兼容的格式
+	 * @throws IllegalArgumentException
+	 *             格式为null、格式错误或包含不支持的字段
+	 */
+	static FastDateParser getInstance(String pattern) {
+		return getInstance(pattern, null, null, true);
+	}
+
+	/**
+	 * 获取宽松模式的解析器。
+	 *
+	 * @param pattern
+	 *            SimpleDateFormat兼容的格式
+	 * @param timeZone
+	 *            文本中不含时区时使用的时区，null表示默认时区
+	 * @param locale
+	 *            月份、星期等名称所用的地区，null表示默认地区
+	 * @throws IllegalArgumentException
+	 *             格式为null、格式错误或包含不支持的字段
+	 */
+	static FastDateParser getInstance(String pattern, TimeZone timeZone, Locale locale) {
+		return getInstance(pattern, timeZone, locale, true);
+	}
+
+	/**
+	 * 获取解析器，相同参数返回同一个缓存的实例。
+	 *
+	 * @param pattern
+	 *            SimpleDateFormat兼容的格式
+	 * @param timeZone
+	 *            文本中不含时区时使用的时区，null表示默认时区
+	 * @param locale
+	 *            月份、星期等名称所用的地区，null表示默认地区
+	 * @param lenient
+	 *            是否宽松解析，false时超出范围的字段值(如2月30日)解析失败
+	 * @throws IllegalArgumentException
+	 *             格式为null、格式错误或包含不支持的字段
+	 */
+	static FastDateParser getInstance(String pattern, TimeZone timeZone, Locale locale, boolean lenient) {
+		FastDateParser emptyParser = new FastDateParser(pattern, timeZone, locale, lenient);
+		FastDateParser parser = cInstanceCache.get(emptyParser);
+		if (parser == null) {
+			parser = emptyParser;
+			parser.init();
+			parser = cInstanceCache.putIfAbsent(parser, parser);
+		}
+		return parser;
+	}
+
+	/**
+	 * 判断格式是否可由本类解析，且结果与SimpleDateFormat相同。
+	 * <p>
+	 * 包含周字段(w W F u Y)、L等不支持的字母时返回false；星期(E)没有日(d)配合、或年中的天(D)与月(M)/日(d)
+	 * 同时出现时，SimpleDateFormat按Calendar的字段解析顺序推算日期，本类不模拟这一行为，同样返回false。
+	 * 格式错误(如引号不成对)时返回true，由getInstance抛出异常。
+	 * </p>
+	 *
+	 * @param pattern
+	 *            SimpleDateFormat兼容的格式，不为null
+	 */
+	static boolean isSupported(String pattern) {
+		boolean dayOfWeek = false;
+		boolean dayOfMonth = false;
+		boolean dayOfYear = false;
+		boolean month = false;
+		boolean inLiteral = false;
+		for (int i = 0, length = pattern.length(); i < length; i++) {
+			char c = pattern.charAt(i);
+			if (c == '\'') {
+				inLiteral = !inLiteral;
+				continue;
+			}
+			if (inLiteral || !(c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z')) {
+				continue;
+			}
+			switch (c) {
+			case 'E':
+				dayOfWeek = true;
+				break;
+			case 'd':
+				dayOfMonth = true;
+				break;
+			case 'D':
+				dayOfYear = true;
+				break;
+			case 'M':
+				month = true;
+				break;
+			case 'G':
+			case 'y':
+			case 'H':
+			case 'k':
+			case 'K':
+			case 'h':
+			case 'm':
+			case 's':
+			case 'S':
+			case 'a':
+			case 'z':
+			case 'Z':
+			case 'X':
+				break;
+			default:
+				return false;
+			}
+		}
+		return (!dayOfWeek || dayOfMonth) && (!dayOfYear || !month && !dayOfMonth);
+	}
+
+	/**
+	 * 从头解析字符串，不要求解析到字符串末尾。
+	 *
+	 * @param source
+	 *            日期文本
+	 * @return 日期
+	 * @throws ParseException
+	 *             文本与格式不符
+	 */
+	Date parse(String source) throws ParseException {
+		ParsePosition pos = new ParsePosition(0);
+		Date date = parse(source, pos);
+		if (date == null) {
+			throw new ParseException("Unparseable date: \"" + source + "\"", pos.getErrorIndex());
+		}
+		return date;
+	}
+
+	/**
+	 * 从pos指定的位置开始解析，成功时pos的索引更新为解析结束的位置，失败时设置pos的错误索引。
+	 *
+	 * @param source
+	 *            日期文本
+	 * @param pos
+	 *            解析位置
+	 * @return 日期，文本与格式不符时返回null
+	 */
+	Date parse(String source, ParsePosition pos) {
+		long millis = parseMillis(source, pos);
+		return millis == FAILED ? null : new Date(millis);
+	}
+
+	/**
+	 * 解析整个字符串，文本与格式不符或解析后有剩余字符时返回null。不抛出异常。
+	 *
+	 * @param source
+	 *            日期文本
+	 * @return 日期或null
+	 */
+	Date parseExactly(CharSequence source) {
+		ParsePosition pos = new ParsePosition(0);
+		long millis = parseMillis(source, pos);
+		return millis == FAILED || pos.getIndex() != source.length() ? null : new Date(millis);
+	}
+
+	String getPattern() {
+		return pattern;
+	}
+
+	TimeZone getTimeZone() {
+		return timeZone;
+	}
+
+	Locale getLocale() {
+		return locale;
+	}
+
+	boolean isLenient() {
+		return lenient;
+	}
+
+	/**
+	 * 格式是否包含z或Z字段。本类只识别所用时区的名称，SimpleDateFormat还能解析其他时区的名称(如EST)，
+	 * 因此这类格式解析失败时调用方应改用SimpleDateFormat重试。
+	 */
+	boolean hasZoneText() {
+		return zoneText;
+	}
+
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof FastDateParser)) {
+			return false;
+		}
+		FastDateParser other = (FastDateParser) obj;
+		return pattern.equals(other.pattern) && timeZone.equals(other.timeZone) && locale.equals(other.locale)
+				&& lenient == other.lenient;
+	}
+
+	public int hashCode() {
+		return pattern.hashCode() + 13 * (timeZone.hashCode() + 13 * locale.hashCode()) + (lenient ? 1 : 0);
+	}
+
+	public String toString() {
+		return "FastDateParser[" + pattern + "]";
+	}
+
+	/**
+	 * 将格式编译为规则数组。
+	 */
+	private void init() {
+		transitions = ZoneTransitions.getInstance(timeZone);
+		DateFormatSymbols symbols = new DateFormatSymbols(locale);
+		List<Character> kindList = new ArrayList<Character>();
+		List<Integer> widthList = new ArrayList<Integer>();
+		List<String> literalList = new ArrayList<String>();
+		List<String[]> textList = new ArrayList<String[]>();
+
+		int length = pattern.length();
+		int i = 0;
+		while (i < length) {
+			char c = pattern.charAt(i);
+			if (c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z') {
+				int start = i;
+				while (i < length && pattern.charAt(i) == c) {
+					i++;
+				}
+				int count = i - start;
+				String[] text = null;
+				switch (c) {
+				case 'G':
+					text = symbols.getEras();
+					break;
+				case 'M':
+					if (count >= 3) {
+						text = concat(symbols.getMonths(), symbols.getShortMonths());
+					}
+					break;
+				case 'E':
+					text = concat(symbols.getWeekdays(), symbols.getShortWeekdays());
+					break;
+				case 'a':
+					text = symbols.getAmPmStrings();
+					break;
+				case 'y':
+				case 'd':
+				case 'H':
+				case 'k':
+				case 'K':
+				case 'h':
+				case 'm':
+				case 's':
+				case 'S':
+				case 'D':
+				case 'z':
+				case 'Z':
+				case 'X':
+					break;
+				default:
+					throw new IllegalArgumentException("Illegal pattern component: " + pattern.substring(start, i));
+				}
+				kindList.add(Character.valueOf(c));
+				widthList.add(Integer.valueOf(count));
+				literalList.add(null);
+				textList.add(text);
+			} else {
+				StringBuilder literal = new StringBuilder();
+				boolean inLiteral = false;
+				for (; i < length; i++) {
+					c = pattern.charAt(i);
+					if (c == '\'') {
+						if (i + 1 < length && pattern.charAt(i + 1) == '\'') {
+							// '' is treated as escaped '
+							i++;
+							literal.append(c);
+						} else {
+							inLiteral = !inLiteral;
+						}
+					} else if (!inLiteral && (c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z')) {
+						break;
+					} else {
+						literal.append(c);
+					}
+				}
+				if (inLiteral) {
+					throw new IllegalArgumentException("Unterminated quote in pattern: " + pattern);
+				}
+				if (literal.length() > 0) {
+					kindList.add(Character.valueOf(LITERAL));
+					widthList.add(Integer.valueOf(literal.length()));
+					literalList.add(literal.toString());
+					textList.add(null);
+				}
+			}
+		}
+
+		int n = kindList.size();
+		zoneText = kindList.contains(Character.valueOf('z')) || kindList.contains(Character.valueOf('Z'));
+		kinds = new char[n];
+		widths = new int[n];
+		fixed = new boolean[n];
+		literals = literalList.toArray(new String[n]);
+		texts = textList.toArray(new String[n][]);
+		for (int t = 0; t < n; t++) {
+			kinds[t] = kindList.get(t).charValue();
+			widths[t] = widthList.get(t).intValue();
+		}
+		// 紧邻下一个数字字段的数字字段定宽解析
+		for (int t = 0; t + 1 < n; t++) {
+			fixed[t] = isNumeric(kinds[t], widths[t]) && isNumeric(kinds[t + 1], widths[t + 1]);
+		}
+
+		int rawOffset = timeZone.getRawOffset();
+		int dstOffset = rawOffset + timeZone.getDSTSavings();
+		zoneNames = new String[] { FastDateFormat.getTimeZoneDisplay(timeZone, false, TimeZone.LONG, locale),
+				FastDateFormat.getTimeZoneDisplay(timeZone, true, TimeZone.LONG, locale),
+				FastDateFormat.getTimeZoneDisplay(timeZone, false, TimeZone.SHORT, locale),
+				FastDateFormat.getTimeZoneDisplay(timeZone, true, TimeZone.SHORT, locale) };
+		zoneOffsets = new int[] { rawOffset, dstOffset, rawOffset, dstOffset };
+
+		Calendar calendar = new GregorianCalendar(timeZone, locale);
+		calendar.add(Calendar.YEAR, -80);
+		centuryStartYear = calendar.get(Calendar.YEAR);
+		centuryStart = calendar.getTimeInMillis();
+	}
+
+	private static boolean isNumeric(char kind, int width) {
+		switch (kind) {
+		case 'y':
+		case 'd':
+		case 'H':
+		case 'k':
+		case 'K':
+		case 'h':
+		case 'm':
+		case 's':
+		case 'S':
+		case 'D':
+			return true;
+		case 'M':
+			return width <= 2;
+		default:
+			return false;
+		}
+	}
+
+	private static String[] concat(String[] a, String[] b) {
+		String[] result = new String[a.length + b.length];
+		System.arraycopy(a, 0, result, 0, a.length);
+		System.arraycopy(b, 0, result, a.length, b.length);
+		return result;
+	}
+
+	/**
+	 * 解析并返回毫秒数，失败时设置pos的错误索引并返回FAILED。
+	 */
+	private long parseMillis(CharSequence source, ParsePosition pos) {
+		int index = pos.getIndex();
+		int end = source.length();
+		int era = GregorianCalendar.AD;
+		int year = 1970;
+		int month = 0;
+		int day = 1;
+		int dayOfYear = NO_VALUE;
+		int dayOfWeek = -1;
+		int hourOfDay = NO_VALUE;
+		int hour = NO_VALUE;
+		int amPm = -1;
+		int minute = 0;
+		int second = 0;
+		int millisecond = 0;
+		int offset = NO_OFFSET;
+		int ambiguousYear = -1;
+		boolean monthOrDay = false;
+		int fieldsSet = 0;
+
+		char[] kinds = this.kinds;
+		for (int t = 0; t < kinds.length; t++) {
+			char kind = kinds[t];
+			if (kind == LITERAL) {
+				String literal = literals[t];
+				int n = literal.length();
+				if (end - index < n) {
+					return fail(pos, index);
+				}
+				for (int i = 0; i < n; i++) {
+					if (source.charAt(index + i) != literal.charAt(i)) {
+						return fail(pos, index);
+					}
+				}
+				index += n;
+				continue;
+			}
+
+			while (index < end && (source.charAt(index) == ' ' || source.charAt(index) == '\t')) {
+				index++;
+			}
+			int start = index;
+			int value = 0;
+			boolean negative = false;
+			String[] text = texts[t];
+			if (text != null) {
+				int best = -1;
+				int bestLength = 0;
+				for (int i = 0; i < text.length; i++) {
+					int n = text[i].length();
+					if (n > bestLength && regionMatches(source, index, text[i])) {
+						best = i;
+						bestLength = n;
+					}
+				}
+				if (best < 0) {
+					return fail(pos, start);
+				}
+				index += bestLength;
+				value = kind == 'M' || kind == 'E' ? best % (text.length / 2) : best;
+			} else if (kind == 'z' || kind == 'Z' || kind == 'X') {
+				long zone = parseZone(source, index, end, kind, widths[t]);
+				if (zone == FAILED) {
+					return fail(pos, start);
+				}
+				offset = (int) (zone >> 32);
+				index = (int) zone;
+				continue;
+			} else {
+				// 与SimpleDateFormat相同，数字前可以有负号，定宽字段的宽度包含负号
+				int limit = fixed[t] ? Math.min(end, index + widths[t]) : Math.min(end, index + 10);
+				negative = index + 1 < limit && source.charAt(index) == '-';
+				if (negative) {
+					index++;
+				}
+				int digitStart = index;
+				limit = Math.min(limit, index + 9);
+				while (index < limit) {
+					char c = source.charAt(index);
+					if (c < '0' || c > '9') {
+						break;
+					}
+					value = value * 10 + (c - '0');
+					index++;
+				}
+				if (index == digitStart) {
+					return fail(pos, start);
+				}
+				if (negative) {
+					value = -value;
+				}
+			}
+
+			switch (kind) {
+			case 'G':
+				era = value;
+				break;
+			case 'y':
+				fieldsSet |= YEAR_SET;
+				year = value;
+				if (widths[t] <= 2 && !negative && index - start == 2) {
+					ambiguousYear = value;
+				}
+				break;
+			case 'M':
+				fieldsSet |= MONTH_SET;
+				month = text == null ? value - 1 : value;
+				monthOrDay = true;
+				break;
+			case 'd':
+				fieldsSet |= DAY_SET;
+				day = value;
+				monthOrDay = true;
+				break;
+			case 'D':
+				fieldsSet |= DAY_SET;
+				dayOfYear = value;
+				break;
+			case 'E':
+				dayOfWeek = value;
+				break;
+			case 'a':
+				amPm = value;
+				break;
+			case 'H':
+				fieldsSet |= HOUR_SET;
+				hourOfDay = value;
+				break;
+			case 'k':
+				fieldsSet |= HOUR_SET;
+				if (!lenient && (value < 1 || value > 24)) {
+					return fail(pos, start);
+				}
+				hourOfDay = value == 24 ? 0 : value;
+				break;
+			case 'K':
+				fieldsSet |= HOUR_SET;
+				hour = value;
+				break;
+			case 'h':
+				fieldsSet |= HOUR_SET;
+				if (!lenient && (value < 1 || value > 12)) {
+					return fail(pos, start);
+				}
+				hour = value == 12 ? 0 : value;
+				break;
+			case 'm':
+				fieldsSet |= MINUTE_SET;
+				minute = value;
+				break;
+			case 's':
+				fieldsSet |= SECOND_SET;
+				second = value;
+				break;
+			case 'S':
+				millisecond = value;
+				break;
+			default:
+				break;
+			}
+		}
+
+		if (hourOfDay == NO_VALUE) {
+			hourOfDay = hour == NO_VALUE ? 0 : hour + (amPm == Calendar.PM ? 12 : 0);
+		}
+		if (ambiguousYear >= 0) {
+			year = centuryStartYear / 100 * 100 + ambiguousYear + (ambiguousYear < centuryStartYear % 100 ? 100 : 0);
+		}
+		if (!lenient) {
+			// 1600年以前(儒略历)及9999年以后的月份天数、年中天数由GregorianCalendar校验
+			boolean gregorian = era == GregorianCalendar.AD && year >= 1600 && year <= 9999;
+			if (year < 1 || month < 0 || month > 11 || day < 1 || hourOfDay < 0 || hourOfDay > 23
+					|| hour != NO_VALUE && (hour < 0 || hour > 11) || minute < 0 || minute > 59 || second < 0
+					|| second > 59 || millisecond < 0 || millisecond > 999
+					|| gregorian && day > daysInMonth(year, month)
+					|| dayOfYear != NO_VALUE && (dayOfYear < 1 || gregorian && dayOfYear > (isLeapYear(year) ? 366 : 365))
+					|| offset != NO_OFFSET && (offset < MIN_ZONE_OFFSET || offset > MAX_ZONE_OFFSET)) {
+				return fail(pos, pos.getIndex());
+			}
+		}
+		if (era == GregorianCalendar.BC) {
+			year = 1 - year;
+		}
+		boolean byDayOfYear = dayOfYear != NO_VALUE && !monthOrDay;
+		if (byDayOfYear) {
+			month = 0;
+			day = dayOfYear;
+		}
+
+		long millis = toMillis(year, month, day, hourOfDay, minute, second, millisecond, offset, dayOfWeek,
+				byDayOfYear, fieldsSet);
+		if (millis != FAILED && ambiguousYear == centuryStartYear % 100 && millis < centuryStart) {
+			millis = toMillis(year + 100, month, day, hourOfDay, minute, second, millisecond, offset, dayOfWeek,
+					byDayOfYear, fieldsSet);
+		}
+		if (millis == FAILED) {
+			return fail(pos, pos.getIndex());
+		}
+		pos.setIndex(index);
+		return millis;
+	}
+
+	/**
+	 * 由各字段计算毫秒数，月份从0开始，超出范围的值向上进位。byDayOfYear为true时day是年中的天数，month为0。
+	 * fieldsSet为文本中出现的字段(YEAR_SET等)，严格模式下用于夏令时开始时不存在的时间的校验。
+	 */
+	private long toMillis(int year, int month, int day, int hourOfDay, int minute, int second, int millisecond,
+			int offset, int dayOfWeek, boolean byDayOfYear, int fieldsSet) {
+		long days = daysFromCivil(year + Math.floorDiv(month, 12), Math.floorMod(month, 12)) + day - 1;
+		if (days < MIN_MILLIS_DAY || days > MAX_MILLIS_DAY) {
+			return toMillisByCalendar(year, month, day, hourOfDay, minute, second, millisecond, offset, dayOfWeek,
+					byDayOfYear);
+		}
+		if (!lenient && dayOfWeek >= 0 && Math.floorMod(days + 4, 7L) + Calendar.SUNDAY != dayOfWeek) {
+			return FAILED;
+		}
+		long local = days * MILLIS_PER_DAY + hourOfDay * 3600000L + minute * 60000L + second * 1000L + millisecond;
+		if (offset != NO_OFFSET) {
+			return local - offset;
+		}
+		// 与GregorianCalendar相同：夏令时开始时不存在的时间按之前的偏移解释，结束时重复的时间按之后的偏移解释
+		ZoneTransitions zone = transitions;
+		int before = zone.getOffset(local - ZONE_WINDOW);
+		int after = zone.getOffset(local + ZONE_WINDOW);
+		if (before == after || zone.getOffset(local - after) == after) {
+			return local - after;
+		}
+		long millis = local - before;
+		// 与非宽松的GregorianCalendar相同：只有文本中出现的字段因此改变时才解析失败，如只有日期时当天零点不存在不算错误
+		if (!lenient && isChanged(local, millis + zone.getOffset(millis), fieldsSet)) {
+			return FAILED;
+		}
+		return millis;
+	}
+
+	/**
+	 * 本地时间from调整为to后，fieldsSet中的字段是否改变
+	 */
+	private static boolean isChanged(long from, long to, int fieldsSet) {
+		long fromDay = Math.floorDiv(from, MILLIS_PER_DAY);
+		long toDay = Math.floorDiv(to, MILLIS_PER_DAY);
+		if (fromDay != toDay) {
+			int fromCivil = DateUtil.Millis.civil(fromDay);
+			int toCivil = DateUtil.Millis.civil(toDay);
+			if ((fieldsSet & DAY_SET) != 0 || (fieldsSet & MONTH_SET) != 0 && (fromCivil >> 5) != (toCivil >> 5)
+					|| (fieldsSet & YEAR_SET) != 0 && (fromCivil >> 9) != (toCivil >> 9)) {
+				return true;
+			}
+		}
+		long fromTime = Math.floorMod(from, MILLIS_PER_DAY);
+		long toTime = Math.floorMod(to, MILLIS_PER_DAY);
+		return (fieldsSet & HOUR_SET) != 0 && fromTime / 3600000 != toTime / 3600000
+				|| (fieldsSet & MINUTE_SET) != 0 && fromTime / 60000 % 60 != toTime / 60000 % 60
+				|| (fieldsSet & SECOND_SET) != 0 && fromTime / 1000 % 60 != toTime / 1000 % 60;
+	}
+
+	/**
+	 * 1600年以前(儒略历)或9999年以后的日期使用GregorianCalendar计算。
+	 */
+	private long toMillisByCalendar(int year, int month, int day, int hourOfDay, int minute, int second,
+			int millisecond, int offset, int dayOfWeek, boolean byDayOfYear) {
+		Calendar calendar = new GregorianCalendar(timeZone, locale);
+		calendar.clear();
+		calendar.setLenient(lenient);
+		if (year < 1) {
+			calendar.set(Calendar.ERA, GregorianCalendar.BC);
+			year = 1 - year;
+		}
+		if (byDayOfYear) {
+			// 不设置月份和日，否则非宽松模式下与年中的天数冲突
+			calendar.set(Calendar.YEAR, year);
+			calendar.set(Calendar.DAY_OF_YEAR, day);
+			calendar.set(Calendar.HOUR_OF_DAY, hourOfDay);
+			calendar.set(Calendar.MINUTE, minute);
+			calendar.set(Calendar.SECOND, second);
+		} else {
+			calendar.set(year, month, day, hourOfDay, minute, second);
+		}
+		calendar.set(Calendar.MILLISECOND, millisecond);
+		if (dayOfWeek >= 0) {
+			calendar.set(Calendar.DAY_OF_WEEK, dayOfWeek);
+			calendar.set(Calendar.DAY_OF_MONTH, day);
+		}
+		if (offset != NO_OFFSET) {
+			calendar.set(Calendar.ZONE_OFFSET, offset);
+			calendar.set(Calendar.DST_OFFSET, 0);
+		}
+		try {
+			return calendar.getTimeInMillis();
+		} catch (IllegalArgumentException e) {
+			return FAILED;
+		}
+	}
+
+	/**
+	 * 解析时区，返回值的高32位为偏移毫秒数，低32位为结束位置，失败时返回FAILED。
+	 * <p>
+	 * 与SimpleDateFormat相同：X按字母个数解析Z、+HH、+HHMM或+HH:MM；z及Z解析+HHMM、GMT、GMT+H:MM、
+	 * GMT+HH:MM、UTC及解析器所用时区的名称。ZZ另外可以解析FastDateFormat输出的+HH:MM。
+	 * </p>
+	 */
+	private long parseZone(CharSequence source, int index, int end, char kind, int width) {
+		if (index >= end) {
+			return FAILED;
+		}
+		char c = source.charAt(index);
+		if (kind == 'X') {
+			if (c == 'Z') {
+				return index + 1;
+			}
+			if (c != '+' && c != '-') {
+				return FAILED;
+			}
+			return parseOffset(source, index + 1, end, c == '-', 2, width >= 2, width >= 3);
+		}
+		if (c == '+' || c == '-') {
+			// ZZ与FastDateFormat一致，冒号可有可无
+			boolean colon = kind == 'Z' && width == 2 && index + 3 < end && source.charAt(index + 3) == ':';
+			return parseOffset(source, index + 1, end, c == '-', 2, true, colon);
+		}
+		if (regionMatches(source, index, "GMT")) {
+			index += 3;
+			if (index < end && (source.charAt(index) == '+' || source.charAt(index) == '-')) {
+				return parseOffset(source, index + 1, end, source.charAt(index) == '-', 1, true, true);
+			}
+			return index;
+		}
+		if (regionMatches(source, index, "UTC")) {
+			return index + 3;
+		}
+		int best = -1;
+		for (int i = 0; i < zoneNames.length; i++) {
+			if ((best < 0 || zoneNames[i].length() > zoneNames[best].length())
+					&& regionMatches(source, index, zoneNames[i])) {
+				best = i;
+			}
+		}
+		if (best < 0) {
+			return FAILED;
+		}
+		return (long) zoneOffsets[best] << 32 | (index + zoneNames[best].length());
+	}
+
+	/**
+	 * 解析符号之后的偏移。
+	 *
+	 * @param minHourDigits
+	 *            小时的最少位数，为1时可以是1位或2位，为2时必须是2位
+	 * @param hasMinutes
+	 *            是否有分钟
+	 * @param colon
+	 *            小时与分钟之间是否有冒号
+	 */
+	private static long parseOffset(CharSequence source, int index, int end, boolean negative, int minHourDigits,
+			boolean hasMinutes, boolean colon) {
+		int hours = 0;
+		int digits = 0;
+		while (digits < 2 && index < end && isDigit(source.charAt(index))) {
+			hours = hours * 10 + (source.charAt(index++) - '0');
+			digits++;
+		}
+		if (digits < minHourDigits) {
+			return FAILED;
+		}
+		int minutes = 0;
+		if (hasMinutes) {
+			if (colon) {
+				if (index >= end || source.charAt(index) != ':') {
+					return FAILED;
+				}
+				index++;
+			}
+			if (index + 1 >= end || !isDigit(source.charAt(index)) || !isDigit(source.charAt(index + 1))) {
+				return FAILED;
+			}
+			minutes = (source.charAt(index) - '0') * 10 + source.charAt(index + 1) - '0';
+			index += 2;
+		}
+		if (hours > 23 || minutes > 59) {
+			return FAILED;
+		}
+		int offset = (hours * 60 + minutes) * 60000;
+		return (long) (negative ? -offset : offset) << 32 | index;
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	/**
+	 * 忽略大小写比较source从index开始的部分是否以s开头，空串不匹配。
+	 */
+	private static boolean regionMatches(CharSequence source, int index, String s) {
+		int n = s.length();
+		if (n == 0 || source.length() - index < n) {
+			return false;
+		}
+		for (int i = 0; i < n; i++) {
+			char c1 = source.charAt(index + i);
+			char c2 = s.charAt(i);
+			if (c1 != c2 && Character.toUpperCase(c1) != Character.toUpperCase(c2)
+					&& Character.toLowerCase(c1) != Character.toLowerCase(c2)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static long fail(ParsePosition pos, int errorIndex) {
+		pos.setErrorIndex(errorIndex);
+		return FAILED;
+	}
+
+	/**
+	 * 返回公历year年month月(从0开始)1日距1970-01-01的天数。
+	 */
+	private static long daysFromCivil(int year, int month) {
+		// 以3月1日为年初，闰日位于一年的最后一天
+		long y = month < 2 ? year - 1L : year;
+		long era = Math.floorDiv(y, 400L);
+		long yoe = y - era * 400;
+		int mp = month < 2 ? month + 10 : month - 2;
+		long doy = (153 * mp + 2) / 5;
+		long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+		return era * 146097 + doe - 719468;
+	}
+
+	private static boolean isLeapYear(int year) {
+		return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+	}
+
+	private static int daysInMonth(int year, int month) {
+		switch (month) {
+		case Calendar.FEBRUARY:
+			return isLeapYear(year) ? 29 : 28;
+		case Calendar.APRIL:
+		case Calendar.JUNE:
+		case Calendar.SEPTEMBER:
+		case Calendar.NOVEMBER:
+			return 30;
+		default:
+			return 31;
+		}
+	}
+}
@@ -0,0 +1,181 @@
+package org.scorpio.octopus.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按时间生成的64位唯一ID，同一节点生成的ID严格递增。
+ * <p>
+ * ID由高到低为：41位自2000-01-01T00:00:00Z起的毫秒数、10位节点号、12位同一毫秒内的序号，最高位为0，
+ * 可以使用到2069年。不同节点使用不同的节点号时ID不会重复。
+ * </p>
+ * <p>
+ * 最近的毫秒数及序号保存在一个AtomicLong中，每次生成只需一次CAS，不加锁。同一毫秒内的序号用完时等待下一毫秒；
+ * 系统时钟回拨时继续使用上次的毫秒数并递增序号(序号用完时借用下一毫秒)，保证不重复且递增，
+ * 回拨超过允许的毫秒数时抛出IllegalStateException。{@link #nextIds(long[])}一次CAS取得一段连续的序号。
+ * </p>
+ * <p>
+ * #ThreadSafe#
+ * </p>
+ */
+public final class IdGenerator {
+	/**
+	 * 毫秒数的起点，2000-01-01T00:00:00Z
+	 */
+	public static final long EPOCH = 946684800000L;
+	public static final int TIMESTAMP_BITS = 41;
+	public static final int NODE_BITS = 10;
+	public static final int SEQUENCE_BITS = 12;
+	/**
+	 * 最大节点号
+	 */
+	public static final int MAX_NODE = (1 << NODE_BITS) - 1;
+	/**
+	 * 默认允许的时钟回拨毫秒数
+	 */
+	public static final long DEFAULT_MAX_BACKWARD_MILLIS = 5000;
+
+	private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+	private static final long MAX_TIMESTAMP = (1L << TIMESTAMP_BITS) - 1;
+
+	private final long nodeBits;
+	private final long maxBackwardMillis;
+	/**
+	 * 最近使用的毫秒数(相对EPOCH) &lt;&lt; SEQUENCE_BITS | 最近使用的序号
+	 */
+	private final AtomicLong state = new AtomicLong(-1);
+
+	/**
+	 * 允许回拨{@link #DEFAULT_MAX_BACKWARD_MILLIS}毫秒。
+	 *
+	 * @param node
+	 *            节点号，0至{@link #MAX_NODE}
+	 * @throws IllegalArgumentException
+	 *             节点号超出范围
+	 */
+	public IdGenerator(int node) {
+		this(node, DEFAULT_MAX_BACKWARD_MILLIS);
+	}
+
+	/**
+	 * @param node
+	 *            节点号，0至{@link #MAX_NODE}
+	 * @param maxBackwardMillis
+	 *            允许的时钟回拨毫秒数，回拨期间继续使用上次的毫秒数
+	 * @throws IllegalArgumentException
+	 *             节点号超出范围或maxBackwardMillis为负数
+	 */
+	public IdGenerator(int node, long maxBackwardMillis) {
+		if (node < 0 || node > MAX_NODE) {
+			throw new IllegalArgumentException("node must be between 0 and " + MAX_NODE + ": " + node);
+		}
+		if (maxBackwardMillis < 0) {
+			throw new IllegalArgumentException("maxBackwardMillis must not be negative: " + maxBackwardMillis);
+		}
+		this.nodeBits = (long) node << SEQUENCE_BITS;
+		this.maxBackwardMillis = maxBackwardMillis;
+	}
+
+	/**
+	 * 生成一个ID
+	 *
+	 * @throws IllegalStateException
+	 *             时钟回拨超过允许的毫秒数或超出可表示的时间
+	 */
+	public long nextId() {
+		while (true) {
+			long current = state.get();
+			long next = advance(current);
+			if (next >= 0 && state.compareAndSet(current, next)) {
+				return toId(next);
+			}
+		}
+	}
+
+	/**
+	 * 生成ids.length个ID，依次填入数组，数组中的ID递增。
+	 *
+	 * @throws IllegalStateException
+	 *             时钟回拨超过允许的毫秒数或超出可表示的时间
+	 */
+	public void nextIds(long[] ids) {
+		nextIds(ids, 0, ids.length);
+	}
+
+	/**
+	 * 生成len个ID，依次填入ids[off]至ids[off + len - 1]。
+	 *
+	 * @throws IllegalStateException
+	 *             时钟回拨超过允许的毫秒数或超出可表示的时间
+	 */
+	public void nextIds(long[] ids, int off, int len) {
+		if (off < 0 || len < 0 || off > ids.length - len) {
+			throw new IndexOutOfBoundsException("off: " + off + ", len: " + len + ", length: " + ids.length);
+		}
+		int end = off + len;
+		while (off < end) {
+			long current = state.get();
+			long first = advance(current);
+			if (first < 0) {
+				continue;
+			}
+			// 取得当前毫秒剩余的序号
+			int count = (int) Math.min(end - off, SEQUENCE_MASK - (first & SEQUENCE_MASK) + 1);
+			long last = first + count - 1;
+			if (state.compareAndSet(current, last)) {
+				for (long s = first; s <= last; s++) {
+					ids[off++] = toId(s);
+				}
+			}
+		}
+	}
+
+	/**
+	 * 返回ID中的时刻(自1970-01-01T00:00:00Z起的毫秒数)
+	 */
+	public static long getTimestamp(long id) {
+		return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH;
+	}
+
+	/**
+	 * 返回ID中的节点号
+	 */
+	public static int getNode(long id) {
+		return (int) (id >>> SEQUENCE_BITS) & MAX_NODE;
+	}
+
+	/**
+	 * 返回ID中的序号
+	 */
+	public static int getSequence(long id) {
+		return (int) (id & SEQUENCE_MASK);
+	}
+
+	/**
+	 * 计算下一个状态，需要等待下一毫秒时返回-1
+	 */
+	private long advance(long current) {
+		long now = System.currentTimeMillis() - EPOCH;
+		if (now < 0 || now > MAX_TIMESTAMP) {
+			throw new IllegalStateException("Clock out of range: " + (now + EPOCH));
+		}
+		long time = current >> SEQUENCE_BITS;
+		if (now > time) {
+			return now << SEQUENCE_BITS;
+		}
+		if (time - now > maxBackwardMillis) {
+			throw new IllegalStateException("Clock moved backwards by " + (time - now) + " ms");
+		}
+		if ((current & SEQUENCE_MASK) < SEQUENCE_MASK) {
+			return current + 1;
+		}
+		if (now < time) {
+			// 时钟回拨期间借用下一毫秒
+			return (time + 1) << SEQUENCE_BITS;
+		}
+		return -1;
+	}
+
+	private long toId(long state) {
+		return (state >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS) | nodeBits | state & SEQUENCE_MASK;
+	}
+}
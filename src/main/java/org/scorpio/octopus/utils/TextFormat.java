@@ -4,6 +4,7 @@ import java.io.UnsupportedEncodingException;
 import java.math.BigDecimal;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
+import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
@@ -525,8 +526,7 @@ public class TextFormat {
 			return null;
 		}
 		try {
-			SimpleDateFormat df = new SimpleDateFormat("y-M-d");
-			return df.parse(s);
+			return FastDateParser.getInstance("y-M-d").parse(s);
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
@@ -544,15 +544,24 @@ public class TextFormat {
 		if (o == null)
 			return null;
 		try {
-			SimpleDateFormat df = new SimpleDateFormat(pattern);
-			return df.parse(o.toString());
+			String s = o.toString();
+			if (!FastDateParser.isSupported(pattern)) {
+				return new SimpleDateFormat(pattern).parse(s);
+			}
+			FastDateParser parser = FastDateParser.getInstance(pattern);
+			if (parser.hasZoneText()) {
+				// 其他时区的名称只有SimpleDateFormat能识别
+				java.util.Date date = parser.parse(s, new ParsePosition(0));
+				return date != null ? date : new SimpleDateFormat(pattern).parse(s);
+			}
+			return parser.parse(s);
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
 	}
 
 	/**
-	 * 将String类型转换为Date类型，要求String格式：<B>y-m-d h:m:s</B>
+	 * 将String类型转换为Date类型，要求String格式：<B>y-m-d h:m:s</B>，格式错误时返回null
 	 */
 	public static java.util.Date parseDateTime(String s) {
 		if (s == null) {
@@ -561,44 +570,36 @@ public class TextFormat {
 		if (s.length() < 8) {
 			return null;
 		}
-		String datestr = new String(s);
-		try {
-			String stime = "";
-			int loc3 = s.indexOf(" ");
-			if (loc3 > 0) {
-				stime = s.substring(loc3 + 1);
-				s = s.substring(0, loc3);
-			}
-			// 年、月、日
-			int loc1 = 0;
-			int loc2 = s.indexOf("-");
-			int y = Integer.parseInt(s.substring(loc1, loc2));
-			loc1 = s.indexOf("-", loc2);
-			loc2 = s.indexOf("-", loc1 + 1);
-			int m = Integer.parseInt(s.substring(loc1 + 1, loc2));
-			int d = Integer.parseInt(s.substring(loc2 + 1));
-			int h = 0;
-			int min = 0;
-			int sec = 0;
-			// 时、分、秒
-			loc1 = stime.indexOf(":");
-			if (loc1 > 0) {
-				h = Integer.parseInt(stime.substring(0, loc1));
-				loc2 = stime.indexOf(":", loc1 + 1);
-				min = Integer.parseInt(stime.substring(loc1 + 1, loc2));
-				loc1 = stime.indexOf(":", loc2);
-				loc2 = stime.indexOf(".");
-				String secStr = loc2 > 0 ? stime.substring(loc1 + 1, loc2) : stime.substring(loc1 + 1);
-				sec = Integer.parseInt(secStr);
+		// 秒之后只允许以'.'开始的部分(如毫秒)，该部分被忽略
+		ParsePosition pos = new ParsePosition(0);
+		java.util.Date date = FastDateParser.getInstance("yyyy-M-d H:m:s").parse(s, pos);
+		if (date != null && (pos.getIndex() == s.length() || s.charAt(pos.getIndex()) == '.')
+				&& countWhitespace(s, pos.getIndex()) == 1) {
+			return date;
+		}
+		// 没有时间部分时，空格之后不含':'的内容被忽略
+		pos.setIndex(0);
+		pos.setErrorIndex(-1);
+		date = FastDateParser.getInstance("yyyy-M-d").parse(s, pos);
+		if (date != null && (pos.getIndex() == s.length()
+				|| s.charAt(pos.getIndex()) == ' ' && s.indexOf(':', pos.getIndex()) < 0)
+				&& countWhitespace(s, pos.getIndex()) == 0) {
+			return date;
+		}
+		return null;
+	}
+
+	/**
+	 * s中前end个字符里空白字符的个数，解析时数字前的空白会被跳过，用于拒绝原本不接受的多余空白
+	 */
+	private static int countWhitespace(String s, int end) {
+		int count = 0;
+		for (int i = 0; i < end; i++) {
+			if (Character.isWhitespace(s.charAt(i))) {
+				count++;
 			}
-			Calendar cl = java.util.Calendar.getInstance();
-			cl.set(y, m - 1, d, h, min, sec);
-			return cl.getTime();
-		} catch (Exception e) {
-			System.out.println("日期时间格式错误：" + datestr + " -- " + e.getMessage());
-			e.printStackTrace();
-			return null;
 		}
+		return count;
 	}
 
 	/**
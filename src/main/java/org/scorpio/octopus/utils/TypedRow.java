@@ -0,0 +1,794 @@
+package org.scorpio.octopus.utils;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * 列固定的一行数据，与{@link HashMapExt}有相同的取值方法，适合在内存中保存大量的行。
+ * <p>
+ * 列名及类型由{@link Schema}描述，同一结果集的所有行共用一个Schema。Long、Integer、Short、Byte、Boolean及Date
+ * 类型的列保存在long[]中(Date只保存毫秒数)，Double、Float类型的列保存在double[]中，其余类型保存在Object[]中，是否为null由位图记录。
+ * 每行只有这几个数组，不再有HashMap的Entry及包装对象；按列名查找使用Schema中开放寻址的散列表，
+ * {@link #getInt(String, int)}、{@link #getLong(String, long)}、{@link #getDouble(String, double)}读取数值列时不创建对象。
+ * </p>
+ * <p>
+ * 作为Map时只包含值不为null的列。put时按列的类型用{@link CastUtil#castValue(Object, Class)}转换，
+ * put值为null等同于remove；列名不在Schema中时抛出IllegalArgumentException。
+ * </p>
+ * <p>
+ * 非线程安全
+ * </p>
+ *
+ * <pre>
+ * TypedRow.Schema schema = new TypedRow.Schema(new String[] { "id", "price", "name" },
+ * 		new Class[] { Long.class, Double.class, String.class });
+ * TypedRow row = TypedRow.valueOf(schema, map);
+ * double price = row.getDouble("price", 0);
+ * </pre>
+ */
+public class TypedRow extends AbstractMap implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private static final long[] NO_LONGS = new long[0];
+	private static final double[] NO_DOUBLES = new double[0];
+	private static final Object[] NO_OBJECTS = new Object[0];
+
+	private final Schema schema;
+	private final long[] longs;
+	private final double[] doubles;
+	private final Object[] objects;
+	/**
+	 * 第i位为1表示第i列有值
+	 */
+	private final long[] present;
+
+	/**
+	 * 创建所有列都为null的行
+	 *
+	 * @param schema
+	 *            列的描述
+	 */
+	public TypedRow(Schema schema) {
+		this.schema = schema;
+		this.longs = schema.longCount == 0 ? NO_LONGS : new long[schema.longCount];
+		this.doubles = schema.doubleCount == 0 ? NO_DOUBLES : new double[schema.doubleCount];
+		this.objects = schema.objectCount == 0 ? NO_OBJECTS : new Object[schema.objectCount];
+		this.present = new long[(schema.names.length + 63) >>> 6];
+	}
+
+	/**
+	 * 将Map转换为TypedRow，不在Schema中的key被忽略
+	 *
+	 * @param schema
+	 *            列的描述
+	 * @param map
+	 *            需要转换的Map
+	 * @return TypedRow，map为null时返回null
+	 * @throws IllegalArgumentException
+	 *             值不能转换为列的类型
+	 */
+	public static TypedRow valueOf(Schema schema, Map map) {
+		if (map == null) {
+			return null;
+		}
+		TypedRow row = new TypedRow(schema);
+		for (Iterator iterator = map.entrySet().iterator(); iterator.hasNext();) {
+			Map.Entry entry = (Map.Entry) iterator.next();
+			int column = schema.indexOf(entry.getKey());
+			if (column >= 0) {
+				row.store(column, entry.getValue());
+			}
+		}
+		return row;
+	}
+
+	/**
+	 * 返回列的描述
+	 */
+	public Schema getSchema() {
+		return schema;
+	}
+
+	public int size() {
+		int size = 0;
+		for (int i = 0; i < present.length; i++) {
+			size += Long.bitCount(present[i]);
+		}
+		return size;
+	}
+
+	public boolean containsKey(Object key) {
+		int column = schema.indexOf(key);
+		return column >= 0 && isPresent(column);
+	}
+
+	public Object get(Object key) {
+		int column = schema.indexOf(key);
+		return column < 0 ? null : value(column);
+	}
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             key不在Schema中或value不能转换为列的类型
+	 */
+	public Object put(Object key, Object value) {
+		int column = schema.indexOf(key);
+		if (column < 0) {
+			throw new IllegalArgumentException("Unknown column: " + key);
+		}
+		Object old = value(column);
+		store(column, value);
+		return old;
+	}
+
+	public Object remove(Object key) {
+		int column = schema.indexOf(key);
+		if (column < 0) {
+			return null;
+		}
+		Object old = value(column);
+		store(column, null);
+		return old;
+	}
+
+	public void clear() {
+		for (int i = 0; i < present.length; i++) {
+			present[i] = 0;
+		}
+		for (int i = 0; i < objects.length; i++) {
+			objects[i] = null;
+		}
+	}
+
+	public Set entrySet() {
+		return new EntrySet();
+	}
+
+	/**
+	 * 返回int类型数据，不创建对象
+	 *
+	 * @param def
+	 *            值为null或不能转换时返回的数
+	 * @see CastUtil#toInt(Object, int)
+	 */
+	public int getInt(String key, int def) {
+		int column = schema.indexOf(key);
+		if (column < 0 || !isPresent(column)) {
+			return def;
+		}
+		switch (schema.kinds[column]) {
+		case Schema.LONG:
+			return (int) longs[schema.slots[column]];
+		case Schema.DOUBLE:
+			return (int) doubles[schema.slots[column]];
+		default:
+			return CastUtil.toInt(value(column), def);
+		}
+	}
+
+	public Long getLong(String key) {
+		return CastUtil.toLong(get(key));
+	}
+
+	/**
+	 * 返回long类型数据，不创建对象
+	 *
+	 * @param def
+	 *            值为null或不能转换时返回的数
+	 * @see CastUtil#toLong(Object, long)
+	 */
+	public long getLong(String key, long def) {
+		int column = schema.indexOf(key);
+		if (column < 0 || !isPresent(column)) {
+			return def;
+		}
+		switch (schema.kinds[column]) {
+		case Schema.LONG:
+			return longs[schema.slots[column]];
+		case Schema.DOUBLE:
+			return (long) doubles[schema.slots[column]];
+		default:
+			return CastUtil.toLong(value(column), def);
+		}
+	}
+
+	/**
+	 * 返回double类型数据，不创建对象
+	 *
+	 * @param def
+	 *            值为null或不能转换时返回的数
+	 * @see CastUtil#toDouble(Object, double)
+	 */
+	public double getDouble(String key, double def) {
+		int column = schema.indexOf(key);
+		if (column < 0 || !isPresent(column)) {
+			return def;
+		}
+		switch (schema.kinds[column]) {
+		case Schema.LONG:
+			return longs[schema.slots[column]];
+		case Schema.DOUBLE:
+			return doubles[schema.slots[column]];
+		default:
+			return CastUtil.toDouble(value(column), def);
+		}
+	}
+
+	/**
+	 * 返回数组
+	 */
+	public Object[] getArray(String key) {
+		Object o = get(key);
+		if (o instanceof Object[]) {
+			return (Object[]) o;
+		} else {
+			return null;
+		}
+	}
+
+	public Double getDouble(String key) {
+		return CastUtil.toDouble(get(key));
+	}
+
+	/**
+	 * 返回Double类型数据,如果出现异常则返回def
+	 *
+	 * @return Double
+	 */
+	public Double getDouble(String key, Double def) {
+		return CastUtil.toDouble(get(key), def);
+	}
+
+	/**
+	 * 返回Double数组
+	 *
+	 * @param def
+	 *            出现异常时返回的值
+	 * @see #getDouble(String, Double)
+	 */
+	public Double[] getDoubleArray(String key, Double def) {
+		Object[] array = getArray(key);
+		Double[] ret = new Double[array.length];
+		for (int i = 0; i < array.length; i++) {
+			ret[i] = CastUtil.toDouble(array[i], def);
+		}
+		return ret;
+	}
+
+	/**
+	 * @see #getDoubleArray(String, Double)
+	 */
+	public Double[] getDoubleArray(String key) {
+		return getDoubleArray(key, null);
+	}
+
+	public Integer getInteger(String key) {
+		return CastUtil.toInteger(get(key));
+	}
+
+	/**
+	 * 返回Integer类型数据。
+	 *
+	 * @param def
+	 *            出现异常时返回的数
+	 */
+	public Integer getInteger(String key, Integer def) {
+		return CastUtil.toInteger(get(key), def);
+	}
+
+	/**
+	 * 返回Integer数组
+	 *
+	 * @param def
+	 *            出现异常时返回的值
+	 */
+	public Integer[] getIntegerArray(String key, Integer def) {
+		Object[] array = getArray(key);
+		Integer[] ret = new Integer[array.length];
+		for (int i = 0; i < array.length; i++) {
+			ret[i] = CastUtil.toInteger(array[i], def);
+		}
+		return ret;
+	}
+
+	/**
+	 * 返回Integer数组
+	 *
+	 * @see #getInteger(String, Integer)
+	 */
+	public Integer[] getIntegerArray(String key) {
+		return getIntegerArray(key, null);
+	}
+
+	public Boolean getBoolean(String key) {
+		return CastUtil.toBoolean(get(key), Boolean.FALSE);
+	}
+
+	/**
+	 * 返回Boolean类型数据。
+	 *
+	 * @param def
+	 *            出现异常时返回的数
+	 */
+	public Boolean getBoolean(String key, Boolean def) {
+		return CastUtil.toBoolean(get(key), def);
+	}
+
+	/**
+	 * 返回Boolean数组
+	 *
+	 * @param def
+	 *            出现异常时返回的值
+	 */
+	public Boolean[] getBooleanArray(String key, Boolean def) {
+		Object[] array = getArray(key);
+		Boolean[] ret = new Boolean[array.length];
+		for (int i = 0; i < array.length; i++) {
+			ret[i] = CastUtil.toBoolean(array[i], def);
+		}
+		return ret;
+	}
+
+	/**
+	 * @see #getBoolean(String, Boolean)
+	 */
+	public Boolean[] getBooleanArray(String key) {
+		return getBooleanArray(key, null);
+	}
+
+	/**
+	 * @see #getDate(String, Date)
+	 */
+	public Date getDate(String key) {
+		return CastUtil.toDate(get(key));
+	}
+
+	/**
+	 * 返回Date类型数据(去除时间),如果出现异常则返回def
+	 */
+	public Date getDate(String key, Date def) {
+		return CastUtil.toDate(get(key), def);
+	}
+
+	/**
+	 * 返回Date数组
+	 *
+	 * @see #getDate(String, Date)
+	 */
+	public Date[] getDateArray(String key, Date def) {
+		Object[] array = getArray(key);
+		Date[] ret = new Date[array.length];
+		for (int i = 0; i < array.length; i++) {
+			ret[i] = CastUtil.toDate(array[i], def);
+		}
+		return ret;
+	}
+
+	/**
+	 * @see #getDateArray(String, Date)
+	 */
+	public Date[] getDateArray(String key) {
+		return getDateArray(key, null);
+	}
+
+	/**
+	 * @see #getDateTime(String, Date)
+	 */
+	public Date getDateTime(String key) {
+		return CastUtil.toDateTime(get(key));
+	}
+
+	/**
+	 * 返回Date类型数据(包含时间),如果出现异常则返回def
+	 */
+	public Date getDateTime(String key, Date def) {
+		return CastUtil.toDateTime(get(key), def);
+	}
+
+	/**
+	 * 返回Date类型数组
+	 *
+	 * @see #getDateTime(String, Date)
+	 */
+	public Date[] getDateTimeArray(String key, Date def) {
+		Object[] array = getArray(key);
+		Date[] ret = new Date[array.length];
+		for (int i = 0; i < array.length; i++) {
+			ret[i] = CastUtil.toDateTime(array[i], def);
+		}
+		return ret;
+	}
+
+	/**
+	 * @see #getDateTimeArray(String, Date)
+	 */
+	public Date[] getDateTimeArray(String key) {
+		return getDateTimeArray(key, null);
+	}
+
+	/**
+	 * 返回一个不为<code>null</code>的字符串。 如果结果值为<code>null</code>,则返回空串""
+	 */
+	public String getNotNullString(String key) {
+		return CastUtil.toNotNullString(get(key));
+	}
+
+	/**
+	 * 返回一个不为空串<code>""</code>的字符串。 如果结果值为"",则返回<code>null</code>
+	 */
+	public String getNotEmptyString(String key) {
+		return CastUtil.toNotEmptyString(get(key));
+	}
+
+	/**
+	 * 返回字符串。 如果出现异常会返回<code>null</code>
+	 *
+	 * @return String
+	 */
+	public String getString(String key) {
+		return CastUtil.toString(get(key), null);
+	}
+
+	/**
+	 * 返回字符串数组
+	 *
+	 * @see #getString(String)
+	 */
+	public String[] getStringArray(String key) {
+		Object[] array = getArray(key);
+		String[] ret = new String[array.length];
+		for (int i = 0; i < array.length; i++) {
+			ret[i] = CastUtil.toString(array[i], null);
+		}
+		return ret;
+	}
+
+	/**
+	 * 返回不为空串""的字符串数组
+	 *
+	 * @see #getNotEmptyString(String)
+	 */
+	public String[] getNotEmptyStringArray(String key) {
+		Object[] array = getArray(key);
+		String[] ret = new String[array.length];
+		for (int i = 0; i < array.length; i++) {
+			ret[i] = CastUtil.toNotEmptyString(array[i]);
+		}
+		return ret;
+	}
+
+	/**
+	 * 返回不为<code>null</code>的字符串数组
+	 *
+	 * @see #getNotNullString(String)
+	 */
+	public String[] getNotNullStringArray(String key) {
+		Object[] array = getArray(key);
+		String[] ret = new String[array.length];
+		for (int i = 0; i < array.length; i++) {
+			ret[i] = CastUtil.toNotNullString(array[i]);
+		}
+		return ret;
+	}
+
+	/**
+	 * 返回List类型数据。 如果结果值不是<code>List</code>则返回<code>null</code>
+	 */
+	public List getList(String key) {
+		Object o = get(key);
+		if (o instanceof List) {
+			return (List) o;
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * 将map的value转换为数组返回
+	 *
+	 * @param keys
+	 *            map的key,返回的value由此key来决定,按照key的顺序组成数组
+	 * @return List
+	 */
+	public List toList(Object[] keys) {
+		List list = new ArrayList(keys.length);
+		for (int i = 0; i < keys.length; i++) {
+			list.add(get(keys[i]));
+		}
+		return list;
+	}
+
+	private boolean isPresent(int column) {
+		return (present[column >>> 6] & 1L << column) != 0;
+	}
+
+	/**
+	 * 返回第column列的值，按列的类型创建包装对象
+	 */
+	private Object value(int column) {
+		if (!isPresent(column)) {
+			return null;
+		}
+		int slot = schema.slots[column];
+		Class type = schema.types[column];
+		switch (schema.kinds[column]) {
+		case Schema.LONG:
+			long l = longs[slot];
+			if (type == Long.class) {
+				return Long.valueOf(l);
+			} else if (type == Integer.class) {
+				return Integer.valueOf((int) l);
+			} else if (type == Short.class) {
+				return Short.valueOf((short) l);
+			} else {
+				return Byte.valueOf((byte) l);
+			}
+		case Schema.BOOLEAN:
+			return Boolean.valueOf(longs[slot] != 0);
+		case Schema.DATE:
+			return new Date(longs[slot]);
+		case Schema.DOUBLE:
+			double d = doubles[slot];
+			return type == Float.class ? (Object) Float.valueOf((float) d) : (Object) Double.valueOf(d);
+		default:
+			return objects[slot];
+		}
+	}
+
+	/**
+	 * 设置第column列的值，value为null时清除
+	 */
+	private void store(int column, Object value) {
+		if (value != null) {
+			Class type = schema.types[column];
+			Object converted = type == Object.class ? value : CastUtil.castValue(value, type);
+			if (converted == null) {
+				throw new IllegalArgumentException("Cannot convert " + value.getClass().getName() + " to "
+						+ type.getName() + " for column: " + schema.names[column]);
+			}
+			value = converted;
+		}
+		int slot = schema.slots[column];
+		switch (schema.kinds[column]) {
+		case Schema.LONG:
+			if (value != null) {
+				longs[slot] = ((Number) value).longValue();
+			}
+			break;
+		case Schema.BOOLEAN:
+			if (value != null) {
+				longs[slot] = ((Boolean) value).booleanValue() ? 1 : 0;
+			}
+			break;
+		case Schema.DATE:
+			if (value != null) {
+				longs[slot] = ((Date) value).getTime();
+			}
+			break;
+		case Schema.DOUBLE:
+			if (value != null) {
+				doubles[slot] = ((Number) value).doubleValue();
+			}
+			break;
+		default:
+			objects[slot] = value;
+		}
+		if (value == null) {
+			present[column >>> 6] &= ~(1L << column);
+		} else {
+			present[column >>> 6] |= 1L << column;
+		}
+	}
+
+	private final class EntrySet extends AbstractSet {
+		public int size() {
+			return TypedRow.this.size();
+		}
+
+		public Iterator iterator() {
+			return new Iterator() {
+				private int next = advance(0);
+				private int last = -1;
+
+				public boolean hasNext() {
+					return next < schema.names.length;
+				}
+
+				public Object next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					last = next;
+					next = advance(next + 1);
+					return new SimpleEntry(schema.names[last], value(last)) {
+						private static final long serialVersionUID = 1L;
+
+						public Object setValue(Object value) {
+							super.setValue(value);
+							return put(getKey(), value);
+						}
+					};
+				}
+
+				public void remove() {
+					if (last < 0) {
+						throw new IllegalStateException();
+					}
+					store(last, null);
+					last = -1;
+				}
+
+				private int advance(int column) {
+					while (column < schema.names.length && !isPresent(column)) {
+						column++;
+					}
+					return column;
+				}
+			};
+		}
+	}
+
+	/**
+	 * 一组行共用的列名及列类型，创建后不可变。#ThreadSafe#
+	 * <p>
+	 * 列名到列序号的映射是开放寻址(线性探测)的散列表，容量为2的幂且至少为列数的2倍，
+	 * 查找时使用String缓存的hashCode，不创建对象。
+	 * </p>
+	 */
+	public static final class Schema implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		static final byte LONG = 0;
+		static final byte DOUBLE = 1;
+		static final byte OBJECT = 2;
+		static final byte BOOLEAN = 3;
+		static final byte DATE = 4;
+
+		private final String[] names;
+		private final Class[] types;
+		/**
+		 * 保存的方式，BOOLEAN及DATE也保存在long[]中
+		 */
+		private final byte[] kinds;
+		/**
+		 * 列在对应数组中的位置
+		 */
+		private final int[] slots;
+		private final int longCount;
+		private final int doubleCount;
+		private final int objectCount;
+		/**
+		 * 列序号 + 1，0表示空位
+		 */
+		private final int[] table;
+
+		/**
+		 * @param names
+		 *            列名
+		 * @param types
+		 *            列的类型，可以是基本类型；为null或Object.class时按原值保存不转换
+		 * @throws IllegalArgumentException
+		 *             names与types长度不同、列名为null或重复
+		 */
+		public Schema(String[] names, Class[] types) {
+			if (names.length != types.length) {
+				throw new IllegalArgumentException("names and types must have the same length: " + names.length
+						+ ", " + types.length);
+			}
+			int n = names.length;
+			this.names = names.clone();
+			this.types = new Class[n];
+			this.kinds = new byte[n];
+			this.slots = new int[n];
+			int capacity = Integer.highestOneBit(Math.max(n, 1) * 2 - 1) << 1;
+			this.table = new int[capacity];
+			int longCount = 0;
+			int doubleCount = 0;
+			int objectCount = 0;
+			for (int i = 0; i < n; i++) {
+				if (names[i] == null) {
+					throw new IllegalArgumentException("Column name must not be null: " + i);
+				}
+				if (indexOf(names[i]) >= 0) {
+					throw new IllegalArgumentException("Duplicate column: " + names[i]);
+				}
+				int h = hash(names[i]) & (capacity - 1);
+				while (table[h] != 0) {
+					h = (h + 1) & (capacity - 1);
+				}
+				table[h] = i + 1;
+
+				Class type = wrap(types[i] == null ? Object.class : types[i]);
+				this.types[i] = type;
+				if (type == Long.class || type == Integer.class || type == Short.class || type == Byte.class) {
+					kinds[i] = LONG;
+					slots[i] = longCount++;
+				} else if (type == Boolean.class || type == Date.class) {
+					kinds[i] = type == Boolean.class ? BOOLEAN : DATE;
+					slots[i] = longCount++;
+				} else if (type == Double.class || type == Float.class) {
+					kinds[i] = DOUBLE;
+					slots[i] = doubleCount++;
+				} else {
+					kinds[i] = OBJECT;
+					slots[i] = objectCount++;
+				}
+			}
+			this.longCount = longCount;
+			this.doubleCount = doubleCount;
+			this.objectCount = objectCount;
+		}
+
+		/**
+		 * 返回列数
+		 */
+		public int getColumnCount() {
+			return names.length;
+		}
+
+		/**
+		 * 返回第column列的列名
+		 */
+		public String getName(int column) {
+			return names[column];
+		}
+
+		/**
+		 * 返回第column列的类型，基本类型按对应的包装类返回
+		 */
+		public Class getType(int column) {
+			return types[column];
+		}
+
+		/**
+		 * 返回列序号，不是列名时返回-1
+		 */
+		public int indexOf(Object name) {
+			if (!(name instanceof String)) {
+				return -1;
+			}
+			int mask = table.length - 1;
+			for (int h = hash((String) name) & mask;; h = (h + 1) & mask) {
+				int column = table[h] - 1;
+				if (column < 0) {
+					return -1;
+				}
+				if (names[column].equals(name)) {
+					return column;
+				}
+			}
+		}
+
+		private static int hash(String name) {
+			int h = name.hashCode();
+			return h ^ (h >>> 16);
+		}
+
+		private static Class wrap(Class type) {
+			if (type == Long.TYPE) {
+				return Long.class;
+			} else if (type == Integer.TYPE) {
+				return Integer.class;
+			} else if (type == Short.TYPE) {
+				return Short.class;
+			} else if (type == Byte.TYPE) {
+				return Byte.class;
+			} else if (type == Boolean.TYPE) {
+				return Boolean.class;
+			} else if (type == Double.TYPE) {
+				return Double.class;
+			} else if (type == Float.TYPE) {
+				return Float.class;
+			}
+			return type;
+		}
+	}
+}
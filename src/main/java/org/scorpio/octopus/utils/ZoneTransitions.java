@@ -0,0 +1,231 @@
+package org.scorpio.octopus.utils;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 时区偏移的变化表，由毫秒数查询时区偏移及夏令时偏移，不创建Calendar。
+ * <p>
+ * 1900年至2200年之间按约397天(2<sup>35</sup>毫秒)分段，某段第一次被查询时以6小时为步长扫描该段，
+ * 用二分法找出每次偏移变化的准确时刻，之后在该段的变化时刻中二分查找。同一时区(按equals)的实例被缓存共享；
+ * 范围之外直接调用{@link TimeZone}。结果与{@link TimeZone#getOffset(long)}相同，夏令时偏移与FastDateFormat
+ * 原来的取法相同：时区使用夏令时且该时刻处于夏令时时为{@link TimeZone#getDSTSavings()}，否则为0。
+ * 相隔不足6小时、且第二次变化恢复原偏移的两次变化不会被识别。
+ * </p>
+ * <p>
+ * 创建时复制传入的时区，之后修改传入的时区对象不影响本实例。#ThreadSafe#
+ * </p>
+ */
+final class ZoneTransitions {
+	private static final BoundedCache<TimeZone, ZoneTransitions> cache = new BoundedCache<TimeZone, ZoneTransitions>(
+			128);
+
+	/**
+	 * 1900-01-01T00:00:00Z
+	 */
+	private static final long BASE = -2208988800000L;
+	private static final int CHUNK_SHIFT = 35;
+	private static final int CHUNK_COUNT = 276;
+	private static final long STEP = 6L * 60 * 60 * 1000;
+	/**
+	 * 大于任何时区偏移
+	 */
+	private static final long ZONE_WINDOW = 18L * 60 * 60 * 1000;
+
+	private final TimeZone zone;
+	private final boolean useDaylight;
+	private final int dstSavings;
+	private final AtomicReferenceArray<Chunk> chunks = new AtomicReferenceArray<Chunk>(CHUNK_COUNT);
+
+	private ZoneTransitions(TimeZone zone) {
+		this.zone = zone;
+		this.useDaylight = zone.useDaylightTime();
+		this.dstSavings = zone.getDSTSavings();
+	}
+
+	/**
+	 * 返回时区对应的变化表，相同时区返回同一个缓存的实例。
+	 *
+	 * @param zone
+	 *            时区
+	 */
+	static ZoneTransitions getInstance(TimeZone zone) {
+		ZoneTransitions transitions = cache.get(zone);
+		if (transitions == null) {
+			TimeZone copy = (TimeZone) zone.clone();
+			transitions = cache.putIfAbsent(copy, new ZoneTransitions(copy));
+		}
+		return transitions;
+	}
+
+	/**
+	 * 返回该时刻相对UTC的总偏移(含夏令时)，单位毫秒。
+	 *
+	 * @see TimeZone#getOffset(long)
+	 */
+	int getOffset(long millis) {
+		Chunk chunk = chunk(millis);
+		if (chunk == null) {
+			return zone.getOffset(millis);
+		}
+		return chunk.offsets[chunk.indexOf(millis)];
+	}
+
+	/**
+	 * 返回该时刻的夏令时偏移，不处于夏令时时返回0，单位毫秒。
+	 */
+	int getDSTOffset(long millis) {
+		if (!useDaylight) {
+			return 0;
+		}
+		Chunk chunk = chunk(millis);
+		if (chunk == null) {
+			return dstOffset(millis);
+		}
+		return chunk.dstOffsets[chunk.indexOf(millis)];
+	}
+
+	/**
+	 * 把本地时间(以UTC表示的本地日期时间的毫秒数)转换为时刻，与GregorianCalendar相同：
+	 * 夏令时开始时不存在的时间按之前的偏移解释，结束时重复的时间按之后的偏移解释。
+	 */
+	long toUtc(long local) {
+		int before = getOffset(local - ZONE_WINDOW);
+		int after = getOffset(local + ZONE_WINDOW);
+		if (before == after || getOffset(local - after) == after) {
+			return local - after;
+		}
+		return local - before;
+	}
+
+	/**
+	 * 返回包含该时刻、偏移不变的区间的开始，该时刻不在变化表范围内时返回{@link Long#MAX_VALUE}。
+	 * 区间不跨越分段，所以不一定是偏移变化的时刻。
+	 */
+	long segmentStart(long millis) {
+		Chunk chunk = chunk(millis);
+		if (chunk == null) {
+			return Long.MAX_VALUE;
+		}
+		return chunk.starts[chunk.indexOf(millis)];
+	}
+
+	/**
+	 * 返回包含该时刻、偏移不变的区间的结束(不含)，该时刻不在变化表范围内时返回{@link Long#MIN_VALUE}。
+	 */
+	long segmentEnd(long millis) {
+		Chunk chunk = chunk(millis);
+		if (chunk == null) {
+			return Long.MIN_VALUE;
+		}
+		int index = chunk.indexOf(millis) + 1;
+		if (index < chunk.starts.length) {
+			return chunk.starts[index];
+		}
+		long relative = millis - BASE;
+		return BASE + ((relative >>> CHUNK_SHIFT) + 1 << CHUNK_SHIFT);
+	}
+
+	private Chunk chunk(long millis) {
+		long relative = millis - BASE;
+		if (relative < 0 || relative >= (long) CHUNK_COUNT << CHUNK_SHIFT) {
+			return null;
+		}
+		int index = (int) (relative >>> CHUNK_SHIFT);
+		Chunk chunk = chunks.get(index);
+		if (chunk == null) {
+			// 并发时可能重复计算，结果相同
+			chunk = build(BASE + ((long) index << CHUNK_SHIFT), BASE + ((long) (index + 1) << CHUNK_SHIFT));
+			chunks.set(index, chunk);
+		}
+		return chunk;
+	}
+
+	private int dstOffset(long millis) {
+		return useDaylight && zone.inDaylightTime(new Date(millis)) ? dstSavings : 0;
+	}
+
+	/**
+	 * 扫描[start, end)中的偏移变化
+	 */
+	private Chunk build(long start, long end) {
+		long[] starts = new long[4];
+		int[] offsets = new int[4];
+		int[] dstOffsets = new int[4];
+		int count = 0;
+
+		long from = start;
+		int offset = zone.getOffset(from);
+		int dst = dstOffset(from);
+		while (true) {
+			if (count == starts.length) {
+				starts = Arrays.copyOf(starts, count * 2);
+				offsets = Arrays.copyOf(offsets, count * 2);
+				dstOffsets = Arrays.copyOf(dstOffsets, count * 2);
+			}
+			starts[count] = from;
+			offsets[count] = offset;
+			dstOffsets[count] = dst;
+			count++;
+
+			// 按步长找到偏移不同的时刻hi，再在(lo, hi]中二分查找变化的时刻
+			long lo = from;
+			long hi = lo;
+			boolean changed = false;
+			while (!changed && lo < end - 1) {
+				hi = Math.min(lo + STEP, end - 1);
+				changed = zone.getOffset(hi) != offset || dstOffset(hi) != dst;
+				if (!changed) {
+					lo = hi;
+				}
+			}
+			if (!changed) {
+				break;
+			}
+			while (hi - lo > 1) {
+				long mid = lo + ((hi - lo) >>> 1);
+				if (zone.getOffset(mid) == offset && dstOffset(mid) == dst) {
+					lo = mid;
+				} else {
+					hi = mid;
+				}
+			}
+			from = hi;
+			offset = zone.getOffset(from);
+			dst = dstOffset(from);
+		}
+		return new Chunk(Arrays.copyOf(starts, count), Arrays.copyOf(offsets, count),
+				Arrays.copyOf(dstOffsets, count));
+	}
+
+	/**
+	 * 一段时间内的偏移变化，starts[i]起的偏移为offsets[i]，夏令时偏移为dstOffsets[i]
+	 */
+	private static final class Chunk {
+		final long[] starts;
+		final int[] offsets;
+		final int[] dstOffsets;
+
+		Chunk(long[] starts, int[] offsets, int[] dstOffsets) {
+			this.starts = starts;
+			this.offsets = offsets;
+			this.dstOffsets = dstOffsets;
+		}
+
+		int indexOf(long millis) {
+			int lo = 0;
+			int hi = starts.length - 1;
+			while (lo < hi) {
+				int mid = (lo + hi + 1) >>> 1;
+				if (starts[mid] <= millis) {
+					lo = mid;
+				} else {
+					hi = mid - 1;
+				}
+			}
+			return lo;
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package org.scorpio.octopus.utils.compress;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * 压缩算法接口。
+ * <p>
+ * 内置实现有{@link GzipCodec}、{@link DeflateCodec}(可配置压缩级别及策略)以及纯Java实现的
+ * {@link Lz4Codec}，可按调用场景在压缩率与CPU开销之间取舍。实现类必须是线程安全的。
+ * </p>
+ *
+ * @see org.scorpio.octopus.utils.Base64#compress(CompressionCodec, byte[])
+ */
+public interface CompressionCodec {
+
+	/**
+	 * 返回算法名称
+	 */
+	public String getName();
+
+	/**
+	 * 压缩字节数组中指定范围的数据。
+	 *
+	 * @param b
+	 *            待压缩的数据
+	 * @param off
+	 *            起始位置
+	 * @param len
+	 *            长度
+	 * @return 压缩后的数据
+	 */
+	public byte[] compress(byte[] b, int off, int len) throws IOException;
+
+	/**
+	 * 解压字节数组中指定范围的数据。
+	 *
+	 * @param b
+	 *            经过压缩的数据
+	 * @param off
+	 *            起始位置
+	 * @param len
+	 *            长度
+	 * @return 解压后的数据
+	 * @throws IOException
+	 *             数据损坏或格式不正确
+	 */
+	public byte[] decompress(byte[] b, int off, int len) throws IOException;
+
+	/**
+	 * 创建压缩输出流，写入的数据压缩后写入out。关闭返回的流时同时关闭out。
+	 */
+	public OutputStream createOutputStream(OutputStream out) throws IOException;
+
+	/**
+	 * 创建解压输入流，从in读取压缩数据并返回解压后的数据。关闭返回的流时同时关闭in。
+	 */
+	public InputStream createInputStream(InputStream in) throws IOException;
+}
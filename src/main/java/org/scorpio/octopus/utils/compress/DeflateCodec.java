@@ -0,0 +1,125 @@
+package org.scorpio.octopus.utils.compress;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 原始Deflate格式(RFC 1951，无GZIP/ZLIB头尾)压缩，压缩级别及策略可配置。
+ * <p>
+ * 相比GZIP省去了18字节的头尾及CRC32计算，适合较短的数据。Deflater/Inflater从{@link ZlibPool}借用，
+ * 流在关闭时归还。
+ * </p>
+ */
+public class DeflateCodec implements CompressionCodec {
+	/**
+	 * 默认压缩级别及默认策略
+	 */
+	public static final DeflateCodec DEFAULT = new DeflateCodec(Deflater.DEFAULT_COMPRESSION,
+			Deflater.DEFAULT_STRATEGY);
+
+	/**
+	 * 最快压缩级别，适合对CPU敏感的场景
+	 */
+	public static final DeflateCodec FASTEST = new DeflateCodec(Deflater.BEST_SPEED, Deflater.DEFAULT_STRATEGY);
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final int level;
+	private final int strategy;
+	private final ZlibPool pool;
+
+	/**
+	 * @param level
+	 *            压缩级别，-1(默认)或0~9
+	 * @param strategy
+	 *            压缩策略，{@link Deflater#DEFAULT_STRATEGY}、{@link Deflater#FILTERED}或
+	 *            {@link Deflater#HUFFMAN_ONLY}
+	 */
+	public DeflateCodec(int level, int strategy) {
+		this(level, strategy, ZlibPool.getDefault());
+	}
+
+	/**
+	 * @param level
+	 *            压缩级别，-1(默认)或0~9
+	 * @param strategy
+	 *            压缩策略
+	 * @param pool
+	 *            Deflater/Inflater及缓冲区池
+	 */
+	public DeflateCodec(int level, int strategy, ZlibPool pool) {
+		if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION) {
+			throw new IllegalArgumentException("Invalid compression level: " + level);
+		}
+		if (strategy != Deflater.DEFAULT_STRATEGY && strategy != Deflater.FILTERED
+				&& strategy != Deflater.HUFFMAN_ONLY) {
+			throw new IllegalArgumentException("Invalid compression strategy: " + strategy);
+		}
+		this.level = level;
+		this.strategy = strategy;
+		this.pool = pool;
+	}
+
+	public String getName() {
+		return "deflate";
+	}
+
+	public int getLevel() {
+		return level;
+	}
+
+	public int getStrategy() {
+		return strategy;
+	}
+
+	public byte[] compress(byte[] b, int off, int len) throws IOException {
+		return pool.deflate(b, off, len, level, strategy, 0, 0);
+	}
+
+	public byte[] decompress(byte[] b, int off, int len) throws IOException {
+		return pool.inflate(b, off, len, null);
+	}
+
+	public OutputStream createOutputStream(OutputStream out) throws IOException {
+		final Deflater deflater = pool.borrowDeflater(level, strategy);
+		return new DeflaterOutputStream(out, deflater, BUFFER_SIZE) {
+			private boolean closed;
+
+			public void close() throws IOException {
+				if (closed) {
+					return;
+				}
+				closed = true;
+				try {
+					super.close();
+				} finally {
+					pool.returnDeflater(deflater);
+				}
+			}
+		};
+	}
+
+	public InputStream createInputStream(InputStream in) throws IOException {
+		final Inflater inflater = pool.borrowInflater();
+		return new InflaterInputStream(in, inflater, BUFFER_SIZE) {
+			private boolean closed;
+
+			public void close() throws IOException {
+				if (closed) {
+					return;
+				}
+				closed = true;
+				try {
+					super.close();
+				} finally {
+					pool.returnInflater(inflater);
+				}
+			}
+		};
+	}
+}
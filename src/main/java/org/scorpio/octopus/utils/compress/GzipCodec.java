@@ -0,0 +1,363 @@
+package org.scorpio.octopus.utils.compress;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * GZIP格式压缩，与{@link java.util.zip.GZIPOutputStream}输出兼容。
+ * <p>
+ * 字节数组的压缩/解压及流式接口均使用{@link ZlibPool}中的Deflater/Inflater，自行读写GZIP头尾，
+ * 避免每次调用创建本地zlib状态。流在关闭时归还Deflater/Inflater。
+ * </p>
+ */
+public class GzipCodec implements CompressionCodec {
+	/**
+	 * 共享实例
+	 */
+	public static final GzipCodec INSTANCE = new GzipCodec();
+
+	private static final int BUFFER_SIZE = 8192;
+	/**
+	 * 无文件名、无时间戳的GZIP头，OS字节为0，与Java 8的GZIPOutputStream相同(JDK 16起写0xff)
+	 */
+	private static final byte[] HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+	private static final int FHCRC = 2;
+	private static final int FEXTRA = 4;
+	private static final int FNAME = 8;
+	private static final int FCOMMENT = 16;
+
+	private final ZlibPool pool;
+
+	/**
+	 * 使用{@link ZlibPool#getDefault()}的GZIP压缩
+	 */
+	public GzipCodec() {
+		this(ZlibPool.getDefault());
+	}
+
+	/**
+	 * @param pool
+	 *            Deflater/Inflater及缓冲区池
+	 */
+	public GzipCodec(ZlibPool pool) {
+		this.pool = pool;
+	}
+
+	public String getName() {
+		return "gzip";
+	}
+
+	public byte[] compress(byte[] b, int off, int len) throws IOException {
+		byte[] out = pool.deflate(b, off, len, Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY,
+				HEADER.length, 8);
+		System.arraycopy(HEADER, 0, out, 0, HEADER.length);
+		CRC32 crc = new CRC32();
+		crc.update(b, off, len);
+		writeIntLE(out, out.length - 8, (int) crc.getValue());
+		writeIntLE(out, out.length - 4, len);
+		return out;
+	}
+
+	/**
+	 * 解压GZIP数据，支持多个成员首尾相连的数据，最后一个成员之后的非GZIP数据被忽略。
+	 */
+	public byte[] decompress(byte[] b, int off, int len) throws IOException {
+		int end = off + len;
+		int pos = off;
+		byte[] result = null;
+		int[] consumed = new int[1];
+		do {
+			pos = skipHeader(b, pos, end);
+			byte[] member = pool.inflate(b, pos, end - pos, consumed);
+			pos += consumed[0];
+			if (end - pos < 8) {
+				throw new EOFException("Unexpected end of GZIP data");
+			}
+			CRC32 crc = new CRC32();
+			crc.update(member, 0, member.length);
+			if (readIntLE(b, pos) != (int) crc.getValue() || readIntLE(b, pos + 4) != member.length) {
+				throw new ZipException("Corrupt GZIP trailer");
+			}
+			pos += 8;
+			if (result == null) {
+				result = member;
+			} else {
+				byte[] joined = Arrays.copyOf(result, result.length + member.length);
+				System.arraycopy(member, 0, joined, result.length, member.length);
+				result = joined;
+			}
+		} while (end - pos >= 2 && (b[pos] & 0xff) == 0x1f && (b[pos + 1] & 0xff) == 0x8b);
+		return result;
+	}
+
+	public OutputStream createOutputStream(OutputStream out) throws IOException {
+		Deflater deflater = pool.borrowDeflater(Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY);
+		try {
+			return new PooledGzipOutputStream(out, deflater);
+		} catch (IOException e) {
+			pool.returnDeflater(deflater);
+			throw e;
+		}
+	}
+
+	public InputStream createInputStream(InputStream in) throws IOException {
+		Inflater inflater = pool.borrowInflater();
+		try {
+			return new PooledGzipInputStream(in, inflater);
+		} catch (IOException e) {
+			pool.returnInflater(inflater);
+			throw e;
+		}
+	}
+
+	/**
+	 * 校验并跳过GZIP成员头。
+	 *
+	 * @return 压缩数据的起始位置
+	 */
+	private static int skipHeader(byte[] b, int pos, int end) throws IOException {
+		if (end - pos < 10 || (b[pos] & 0xff) != 0x1f || (b[pos + 1] & 0xff) != 0x8b) {
+			throw new ZipException("Not in GZIP format");
+		}
+		if (b[pos + 2] != Deflater.DEFLATED) {
+			throw new ZipException("Unsupported compression method");
+		}
+		int flags = b[pos + 3] & 0xff;
+		pos += 10;
+		if ((flags & FEXTRA) != 0) {
+			if (end - pos < 2) {
+				throw new EOFException("Unexpected end of GZIP header");
+			}
+			pos += 2 + ((b[pos] & 0xff) | (b[pos + 1] & 0xff) << 8);
+		}
+		if ((flags & FNAME) != 0) {
+			while (pos < end && b[pos++] != 0) {
+			}
+		}
+		if ((flags & FCOMMENT) != 0) {
+			while (pos < end && b[pos++] != 0) {
+			}
+		}
+		if ((flags & FHCRC) != 0) {
+			pos += 2;
+		}
+		if (pos > end) {
+			throw new EOFException("Unexpected end of GZIP header");
+		}
+		return pos;
+	}
+
+	private static int readIntLE(byte[] b, int i) {
+		return (b[i] & 0xff) | (b[i + 1] & 0xff) << 8 | (b[i + 2] & 0xff) << 16 | (b[i + 3] & 0xff) << 24;
+	}
+
+	private static void writeIntLE(byte[] b, int i, int v) {
+		b[i] = (byte) v;
+		b[i + 1] = (byte) (v >>> 8);
+		b[i + 2] = (byte) (v >>> 16);
+		b[i + 3] = (byte) (v >>> 24);
+	}
+
+	/**
+	 * 使用池中Deflater的GZIP输出流，输出与{@link java.util.zip.GZIPOutputStream}相同。
+	 */
+	private final class PooledGzipOutputStream extends DeflaterOutputStream {
+		private final CRC32 crc = new CRC32();
+		private boolean closed;
+
+		PooledGzipOutputStream(OutputStream out, Deflater deflater) throws IOException {
+			super(out, deflater, BUFFER_SIZE);
+			out.write(HEADER);
+		}
+
+		public synchronized void write(byte[] b, int off, int len) throws IOException {
+			super.write(b, off, len);
+			crc.update(b, off, len);
+		}
+
+		public void finish() throws IOException {
+			if (def.finished()) {
+				return;
+			}
+			def.finish();
+			while (!def.finished()) {
+				deflate();
+			}
+			byte[] trailer = new byte[8];
+			writeIntLE(trailer, 0, (int) crc.getValue());
+			writeIntLE(trailer, 4, (int) def.getBytesRead());
+			out.write(trailer);
+		}
+
+		public void close() throws IOException {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			try {
+				super.close();
+			} finally {
+				pool.returnDeflater(def);
+			}
+		}
+	}
+
+	/**
+	 * 使用池中Inflater的GZIP输入流，与{@link java.util.zip.GZIPInputStream}一样支持多个成员首尾相连的数据。
+	 */
+	private final class PooledGzipInputStream extends InflaterInputStream {
+		private final CRC32 crc = new CRC32();
+		private boolean eos;
+		private boolean closed;
+
+		PooledGzipInputStream(InputStream in, Inflater inflater) throws IOException {
+			super(in, inflater, BUFFER_SIZE);
+			readHeader(in);
+		}
+
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (closed) {
+				throw new IOException("Stream closed");
+			}
+			if (eos) {
+				return -1;
+			}
+			int n = super.read(b, off, len);
+			if (n == -1) {
+				if (readTrailer()) {
+					eos = true;
+				} else {
+					return read(b, off, len);
+				}
+			} else {
+				crc.update(b, off, n);
+			}
+			return n;
+		}
+
+		public void close() throws IOException {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			eos = true;
+			try {
+				super.close();
+			} finally {
+				pool.returnInflater(inf);
+			}
+		}
+
+		/**
+		 * 读取成员头，返回头的字节数。
+		 */
+		private int readHeader(InputStream source) throws IOException {
+			CheckedInputStream in = new CheckedInputStream(source, crc);
+			crc.reset();
+			if (readUShort(in) != 0x8b1f) {
+				throw new ZipException("Not in GZIP format");
+			}
+			if (readUByte(in) != Deflater.DEFLATED) {
+				throw new ZipException("Unsupported compression method");
+			}
+			int flags = readUByte(in);
+			skipBytes(in, 6);
+			int n = 10;
+			if ((flags & FEXTRA) != 0) {
+				int m = readUShort(in);
+				skipBytes(in, m);
+				n += m + 2;
+			}
+			if ((flags & FNAME) != 0) {
+				do {
+					n++;
+				} while (readUByte(in) != 0);
+			}
+			if ((flags & FCOMMENT) != 0) {
+				do {
+					n++;
+				} while (readUByte(in) != 0);
+			}
+			if ((flags & FHCRC) != 0) {
+				int v = (int) crc.getValue() & 0xffff;
+				if (readUShort(in) != v) {
+					throw new ZipException("Corrupt GZIP header");
+				}
+				n += 2;
+			}
+			crc.reset();
+			return n;
+		}
+
+		/**
+		 * 校验成员尾，存在下一个成员时读取其头并重置Inflater。
+		 *
+		 * @return 是否已到数据末尾
+		 */
+		private boolean readTrailer() throws IOException {
+			InputStream in = this.in;
+			int n = inf.getRemaining();
+			if (n > 0) {
+				in = new SequenceInputStream(new ByteArrayInputStream(buf, len - n, n), new FilterInputStream(in) {
+					public void close() throws IOException {
+					}
+				});
+			}
+			if ((readUInt(in) != crc.getValue()) || (readUInt(in) != (inf.getBytesWritten() & 0xffffffffL))) {
+				throw new ZipException("Corrupt GZIP trailer");
+			}
+			if (this.in.available() > 0 || n > 26) {
+				int m = 8;
+				try {
+					m += readHeader(in);
+				} catch (IOException e) {
+					return true;
+				}
+				inf.reset();
+				if (n > m) {
+					inf.setInput(buf, len - n + m, n - m);
+				}
+				return false;
+			}
+			return true;
+		}
+	}
+
+	private static long readUInt(InputStream in) throws IOException {
+		long s = readUShort(in);
+		return ((long) readUShort(in) << 16) | s;
+	}
+
+	private static int readUShort(InputStream in) throws IOException {
+		int b = readUByte(in);
+		return (readUByte(in) << 8) | b;
+	}
+
+	private static int readUByte(InputStream in) throws IOException {
+		int b = in.read();
+		if (b == -1) {
+			throw new EOFException("Unexpected end of GZIP data");
+		}
+		return b;
+	}
+
+	private static void skipBytes(InputStream in, int n) throws IOException {
+		while (n > 0) {
+			readUByte(in);
+			n--;
+		}
+	}
+}
@@ -0,0 +1,465 @@
+package org.scorpio.octopus.utils.compress;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * 纯Java实现的LZ4风格快速压缩。
+ * <p>
+ * 压缩块采用LZ4块格式(token、字面量、2字节偏移、匹配长度)，使用单次哈希查找的贪婪匹配，
+ * 压缩率低于Deflate但速度快得多，没有本地资源且格式头开销很小，适合短生命周期的缓存数据。
+ * </p>
+ * <p>
+ * 数据由若干块组成，每块为4字节原始长度、4字节压缩长度(均为大端，压缩长度最高位为1表示未压缩)及块数据，
+ * 以原始长度为0的块结束。块内数据最大64KB。{@link #compress(byte[], int, int)}与压缩流输出的格式相同，
+ * 两者的结果可以互相解压。
+ * </p>
+ */
+public class Lz4Codec implements CompressionCodec {
+	/**
+	 * 共享实例
+	 */
+	public static final Lz4Codec INSTANCE = new Lz4Codec();
+
+	private static final int MIN_MATCH = 4;
+	private static final int LAST_LITERALS = 5;
+	private static final int MF_LIMIT = 12;
+	private static final int MAX_DISTANCE = 65535;
+	private static final int HASH_LOG = 12;
+	private static final int BLOCK_SIZE = 64 * 1024;
+	private static final int RAW_BLOCK_FLAG = 0x80000000;
+
+	public String getName() {
+		return "lz4";
+	}
+
+	public byte[] compress(byte[] b, int off, int len) throws IOException {
+		checkRange(b.length, off, len);
+		int blocks = (len + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		// 每块为块头加不超过maxCompressedLength(块长度)的数据
+		byte[] dst = new byte[blocks * (8 + maxCompressedLength(0)) + len + len / 255 + 8];
+		int[] table = new int[1 << HASH_LOG];
+		int op = 0;
+		for (int end = off + len; off < end; off += BLOCK_SIZE) {
+			int rawLength = Math.min(BLOCK_SIZE, end - off);
+			op = writeBlock(b, off, rawLength, dst, op, table);
+		}
+		// 未压缩块之后可能残留尝试压缩时写入的数据，结束块需清零
+		Arrays.fill(dst, op, op + 8, (byte) 0);
+		return Arrays.copyOf(dst, op + 8);
+	}
+
+	public byte[] decompress(byte[] b, int off, int len) throws IOException {
+		checkRange(b.length, off, len);
+		// 先校验各块头并计算总长度，再分配结果数组
+		int end = off + len;
+		long total = 0;
+		int ip = off;
+		while (true) {
+			if (end - ip < 8) {
+				throw new IOException("Malformed LZ4 data");
+			}
+			int rawLength = readInt(b, ip);
+			if (rawLength == 0) {
+				break;
+			}
+			int n = checkBlockHeader(rawLength, readInt(b, ip + 4));
+			if (n > end - ip - 8) {
+				throw new IOException("Malformed LZ4 data");
+			}
+			total += rawLength;
+			ip += 8 + n;
+		}
+		if (total > Integer.MAX_VALUE - 8) {
+			throw new IOException("LZ4 data too large: " + total);
+		}
+		byte[] dst = new byte[(int) total];
+		int op = 0;
+		for (ip = off; op < dst.length;) {
+			int rawLength = readInt(b, ip);
+			int compressedLength = readInt(b, ip + 4);
+			ip += 8;
+			if ((compressedLength & RAW_BLOCK_FLAG) != 0) {
+				System.arraycopy(b, ip, dst, op, rawLength);
+				ip += rawLength;
+			} else {
+				decompressBlock(b, ip, compressedLength, dst, op, rawLength);
+				ip += compressedLength;
+			}
+			op += rawLength;
+		}
+		return dst;
+	}
+
+	public OutputStream createOutputStream(OutputStream out) throws IOException {
+		return new BlockOutputStream(out);
+	}
+
+	public InputStream createInputStream(InputStream in) throws IOException {
+		return new BlockInputStream(in);
+	}
+
+	/**
+	 * 返回len字节数据压缩后的最大长度
+	 */
+	static int maxCompressedLength(int len) {
+		return len + len / 255 + 16;
+	}
+
+	/**
+	 * 压缩一个块。table为长度4096的哈希表，内容无需初始化，可在多次调用间复用。
+	 *
+	 * @return 写入dst的字节数
+	 */
+	static int compressBlock(byte[] src, int off, int len, byte[] dst, int dOff, int[] table) {
+		int end = off + len;
+		int anchor = off;
+		int op = dOff;
+		if (len >= MF_LIMIT + 1) {
+			int mfLimit = end - MF_LIMIT;
+			int matchLimit = end - LAST_LITERALS;
+			// 表中存放的是相对off的位置+1，0表示空
+			Arrays.fill(table, 0);
+			int ip = off + 1;
+			while (ip < mfLimit) {
+				int seq = readIntLE(src, ip);
+				int h = (seq * -1640531535) >>> (32 - HASH_LOG);
+				int ref = table[h] - 1 + off;
+				table[h] = ip - off + 1;
+				if (ref < off || ip - ref > MAX_DISTANCE || readIntLE(src, ref) != seq) {
+					ip += 1 + ((ip - anchor) >>> 6);
+					continue;
+				}
+				while (ip > anchor && ref > off && src[ip - 1] == src[ref - 1]) {
+					ip--;
+					ref--;
+				}
+				int matchLen = MIN_MATCH;
+				while (ip + matchLen < matchLimit && src[ip + matchLen] == src[ref + matchLen]) {
+					matchLen++;
+				}
+				op = writeSequence(src, anchor, ip - anchor, ip - ref, matchLen, dst, op);
+				ip += matchLen;
+				anchor = ip;
+			}
+		}
+		int literals = end - anchor;
+		int litToken = Math.min(literals, 15);
+		dst[op++] = (byte) (litToken << 4);
+		op = writeLength(literals - 15, litToken == 15, dst, op);
+		System.arraycopy(src, anchor, dst, op, literals);
+		return op + literals - dOff;
+	}
+
+	private static int writeSequence(byte[] src, int anchor, int literals, int offset, int matchLen, byte[] dst,
+			int op) {
+		int litToken = Math.min(literals, 15);
+		int matchToken = Math.min(matchLen - MIN_MATCH, 15);
+		dst[op++] = (byte) (litToken << 4 | matchToken);
+		op = writeLength(literals - 15, litToken == 15, dst, op);
+		System.arraycopy(src, anchor, dst, op, literals);
+		op += literals;
+		dst[op++] = (byte) offset;
+		dst[op++] = (byte) (offset >>> 8);
+		return writeLength(matchLen - MIN_MATCH - 15, matchToken == 15, dst, op);
+	}
+
+	private static int writeLength(int rest, boolean extended, byte[] dst, int op) {
+		if (!extended) {
+			return op;
+		}
+		while (rest >= 255) {
+			dst[op++] = (byte) 255;
+			rest -= 255;
+		}
+		dst[op++] = (byte) rest;
+		return op;
+	}
+
+	/**
+	 * 解压一个块，解压结果必须恰好为rawLength字节。
+	 */
+	static void decompressBlock(byte[] src, int off, int len, byte[] dst, int dOff, int rawLength)
+			throws IOException {
+		int ip = off;
+		int srcEnd = off + len;
+		int op = dOff;
+		int dstEnd = dOff + rawLength;
+		try {
+			while (true) {
+				int token = src[ip++] & 0xff;
+				int literals = token >>> 4;
+				if (literals == 15) {
+					int b;
+					do {
+						b = src[ip++] & 0xff;
+						literals += b;
+					} while (b == 255);
+				}
+				if (literals > srcEnd - ip || literals > dstEnd - op) {
+					throw new IOException("Malformed LZ4 data");
+				}
+				System.arraycopy(src, ip, dst, op, literals);
+				ip += literals;
+				op += literals;
+				if (ip == srcEnd) {
+					break;
+				}
+				int offset = (src[ip++] & 0xff) | (src[ip++] & 0xff) << 8;
+				int matchLen = token & 0x0f;
+				if (matchLen == 15) {
+					int b;
+					do {
+						b = src[ip++] & 0xff;
+						matchLen += b;
+					} while (b == 255);
+				}
+				matchLen += MIN_MATCH;
+				int ref = op - offset;
+				if (offset == 0 || ref < dOff || matchLen > dstEnd - op) {
+					throw new IOException("Malformed LZ4 data");
+				}
+				if (offset >= matchLen) {
+					System.arraycopy(dst, ref, dst, op, matchLen);
+					op += matchLen;
+				} else {
+					for (int end = op + matchLen; op < end;) {
+						dst[op++] = dst[ref++];
+					}
+				}
+			}
+		} catch (ArrayIndexOutOfBoundsException e) {
+			throw new IOException("Malformed LZ4 data");
+		}
+		if (op != dstEnd) {
+			throw new IOException("Malformed LZ4 data");
+		}
+	}
+
+	/**
+	 * 压缩一块数据并连同块头写入dst，压缩后不变小时按未压缩块写入。
+	 *
+	 * @return 写入后dst中的位置
+	 */
+	private static int writeBlock(byte[] src, int off, int rawLength, byte[] dst, int op, int[] table) {
+		writeInt(dst, op, rawLength);
+		int n = compressBlock(src, off, rawLength, dst, op + 8, table);
+		if (n < rawLength) {
+			writeInt(dst, op + 4, n);
+			return op + 8 + n;
+		}
+		writeInt(dst, op + 4, rawLength | RAW_BLOCK_FLAG);
+		System.arraycopy(src, off, dst, op + 8, rawLength);
+		return op + 8 + rawLength;
+	}
+
+	/**
+	 * 校验非结束块的块头
+	 *
+	 * @return 块数据的字节数
+	 */
+	private static int checkBlockHeader(int rawLength, int compressedLength) throws IOException {
+		if (rawLength < 0 || rawLength > BLOCK_SIZE) {
+			throw new IOException("Malformed LZ4 data");
+		}
+		if ((compressedLength & RAW_BLOCK_FLAG) != 0) {
+			if ((compressedLength & ~RAW_BLOCK_FLAG) != rawLength) {
+				throw new IOException("Malformed LZ4 data");
+			}
+			return rawLength;
+		}
+		if (compressedLength <= 0 || compressedLength > maxCompressedLength(BLOCK_SIZE)) {
+			throw new IOException("Malformed LZ4 data");
+		}
+		return compressedLength;
+	}
+
+	private static int readIntLE(byte[] b, int i) {
+		return (b[i] & 0xff) | (b[i + 1] & 0xff) << 8 | (b[i + 2] & 0xff) << 16 | (b[i + 3] & 0xff) << 24;
+	}
+
+	private static int readInt(byte[] b, int i) {
+		return (b[i] & 0xff) << 24 | (b[i + 1] & 0xff) << 16 | (b[i + 2] & 0xff) << 8 | (b[i + 3] & 0xff);
+	}
+
+	private static void writeInt(byte[] b, int i, int v) {
+		b[i] = (byte) (v >>> 24);
+		b[i + 1] = (byte) (v >>> 16);
+		b[i + 2] = (byte) (v >>> 8);
+		b[i + 3] = (byte) v;
+	}
+
+	private static void checkRange(int length, int off, int len) {
+		if (off < 0 || len < 0 || off > length - len) {
+			throw new IndexOutOfBoundsException("off=" + off + ", len=" + len + ", length=" + length);
+		}
+	}
+
+	/**
+	 * 分块压缩输出流
+	 */
+	private static final class BlockOutputStream extends FilterOutputStream {
+		private final byte[] block = new byte[BLOCK_SIZE];
+		private int blockLen;
+		private final byte[] compressed = new byte[8 + maxCompressedLength(BLOCK_SIZE)];
+		private final int[] table = new int[1 << HASH_LOG];
+		private boolean closed;
+
+		BlockOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		public void write(int b) throws IOException {
+			if (blockLen == block.length) {
+				writeBlock();
+			}
+			block[blockLen++] = (byte) b;
+		}
+
+		public void write(byte[] b, int off, int len) throws IOException {
+			checkRange(b.length, off, len);
+			while (len > 0) {
+				if (blockLen == block.length) {
+					writeBlock();
+				}
+				int n = Math.min(len, block.length - blockLen);
+				System.arraycopy(b, off, block, blockLen, n);
+				blockLen += n;
+				off += n;
+				len -= n;
+			}
+		}
+
+		/**
+		 * 输出当前不完整的块，块越小压缩率越低，应避免频繁调用。
+		 */
+		public void flush() throws IOException {
+			writeBlock();
+			out.flush();
+		}
+
+		public void close() throws IOException {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			try {
+				writeBlock();
+				byte[] end = new byte[8];
+				out.write(end);
+				out.flush();
+			} finally {
+				out.close();
+			}
+		}
+
+		private void writeBlock() throws IOException {
+			if (blockLen == 0) {
+				return;
+			}
+			out.write(compressed, 0, Lz4Codec.writeBlock(block, 0, blockLen, compressed, 0, table));
+			blockLen = 0;
+		}
+	}
+
+	/**
+	 * 分块解压输入流
+	 */
+	private static final class BlockInputStream extends FilterInputStream {
+		private final byte[] header = new byte[8];
+		private final byte[] compressed = new byte[maxCompressedLength(BLOCK_SIZE)];
+		private final byte[] block = new byte[BLOCK_SIZE];
+		private int pos;
+		private int limit;
+		private boolean eof;
+
+		BlockInputStream(InputStream in) {
+			super(in);
+		}
+
+		public int read() throws IOException {
+			if (pos == limit && !fill()) {
+				return -1;
+			}
+			return block[pos++] & 0xff;
+		}
+
+		public int read(byte[] b, int off, int len) throws IOException {
+			checkRange(b.length, off, len);
+			if (len == 0) {
+				return 0;
+			}
+			if (pos == limit && !fill()) {
+				return -1;
+			}
+			int n = Math.min(len, limit - pos);
+			System.arraycopy(block, pos, b, off, n);
+			pos += n;
+			return n;
+		}
+
+		public long skip(long n) throws IOException {
+			long skipped = 0;
+			while (skipped < n && (pos < limit || fill())) {
+				int step = (int) Math.min(n - skipped, limit - pos);
+				pos += step;
+				skipped += step;
+			}
+			return skipped;
+		}
+
+		public int available() throws IOException {
+			return limit - pos;
+		}
+
+		public boolean markSupported() {
+			return false;
+		}
+
+		public synchronized void mark(int readlimit) {
+		}
+
+		public synchronized void reset() throws IOException {
+			throw new IOException("mark/reset not supported");
+		}
+
+		private boolean fill() throws IOException {
+			pos = limit = 0;
+			if (eof) {
+				return false;
+			}
+			readFully(header, 8);
+			int rawLength = readInt(header, 0);
+			int compressedLength = readInt(header, 4);
+			if (rawLength == 0) {
+				eof = true;
+				return false;
+			}
+			int n = checkBlockHeader(rawLength, compressedLength);
+			if ((compressedLength & RAW_BLOCK_FLAG) != 0) {
+				readFully(block, rawLength);
+			} else {
+				readFully(compressed, n);
+				decompressBlock(compressed, 0, compressedLength, block, 0, rawLength);
+			}
+			limit = rawLength;
+			return true;
+		}
+
+		private void readFully(byte[] b, int len) throws IOException {
+			int n = 0;
+			while (n < len) {
+				int count = in.read(b, n, len - n);
+				if (count < 0) {
+					throw new EOFException("Unexpected end of LZ4 stream");
+				}
+				n += count;
+			}
+		}
+	}
+}
@@ -0,0 +1,240 @@
+package org.scorpio.octopus.utils.compress;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * 有界、线程安全的{@link Deflater}/{@link Inflater}及输出缓冲区池。
+ * <p>
+ * 每个Deflater/Inflater都持有一份堆外的zlib状态，频繁创建会造成本地内存抖动及终结器压力。
+ * 池中的实例在归还时重置，池满时归还的实例直接释放(end)。池中的实例均为nowrap(原始Deflate)模式，
+ * GZIP头尾由{@link GzipCodec}自行处理。借出的实例必须归还，且归还后不得再使用。
+ * </p>
+ *
+ * <pre>
+ * Deflater deflater = ZlibPool.getDefault().borrowDeflater(Deflater.BEST_SPEED, Deflater.DEFAULT_STRATEGY);
+ * try {
+ * 	...
+ * } finally {
+ * 	ZlibPool.getDefault().returnDeflater(deflater);
+ * }
+ * </pre>
+ */
+public final class ZlibPool {
+	/**
+	 * 池中输出缓冲区的大小
+	 */
+	public static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final ZlibPool DEFAULT = new ZlibPool(Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+
+	private final BlockingQueue<Deflater> deflaters;
+	private final BlockingQueue<Inflater> inflaters;
+	private final BlockingQueue<byte[]> buffers;
+	private final AtomicLong deflaterHits = new AtomicLong();
+	private final AtomicLong deflaterMisses = new AtomicLong();
+	private final AtomicLong inflaterHits = new AtomicLong();
+	private final AtomicLong inflaterMisses = new AtomicLong();
+	private final AtomicLong bufferHits = new AtomicLong();
+	private final AtomicLong bufferMisses = new AtomicLong();
+
+	/**
+	 * @param capacity
+	 *            每类资源最多缓存的实例数
+	 */
+	public ZlibPool(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity must be positive: " + capacity);
+		}
+		deflaters = new ArrayBlockingQueue<Deflater>(capacity);
+		inflaters = new ArrayBlockingQueue<Inflater>(capacity);
+		buffers = new ArrayBlockingQueue<byte[]>(capacity);
+	}
+
+	/**
+	 * 返回内置codec共用的池
+	 */
+	public static ZlibPool getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * 借出一个nowrap模式的Deflater，并设置为指定的压缩级别及策略。
+	 */
+	public Deflater borrowDeflater(int level, int strategy) {
+		Deflater deflater = deflaters.poll();
+		if (deflater == null) {
+			deflaterMisses.incrementAndGet();
+			deflater = new Deflater(level, true);
+		} else {
+			deflaterHits.incrementAndGet();
+			deflater.setLevel(level);
+		}
+		deflater.setStrategy(strategy);
+		return deflater;
+	}
+
+	/**
+	 * 归还Deflater，池满时直接释放。
+	 */
+	public void returnDeflater(Deflater deflater) {
+		deflater.reset();
+		if (!deflaters.offer(deflater)) {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * 借出一个nowrap模式的Inflater。
+	 */
+	public Inflater borrowInflater() {
+		Inflater inflater = inflaters.poll();
+		if (inflater == null) {
+			inflaterMisses.incrementAndGet();
+			return new Inflater(true);
+		}
+		inflaterHits.incrementAndGet();
+		return inflater;
+	}
+
+	/**
+	 * 归还Inflater，池满时直接释放。
+	 */
+	public void returnInflater(Inflater inflater) {
+		inflater.reset();
+		if (!inflaters.offer(inflater)) {
+			inflater.end();
+		}
+	}
+
+	/**
+	 * 借出一个长度为{@link #BUFFER_SIZE}的缓冲区，内容不确定。
+	 */
+	public byte[] borrowBuffer() {
+		byte[] buffer = buffers.poll();
+		if (buffer == null) {
+			bufferMisses.incrementAndGet();
+			return new byte[BUFFER_SIZE];
+		}
+		bufferHits.incrementAndGet();
+		return buffer;
+	}
+
+	/**
+	 * 归还缓冲区，长度不是{@link #BUFFER_SIZE}的数组(如扩容后的数组)被忽略。
+	 */
+	public void returnBuffer(byte[] buffer) {
+		if (buffer.length == BUFFER_SIZE) {
+			buffers.offer(buffer);
+		}
+	}
+
+	/**
+	 * 释放池中缓存的全部实例。
+	 */
+	public void clear() {
+		Deflater deflater;
+		while ((deflater = deflaters.poll()) != null) {
+			deflater.end();
+		}
+		Inflater inflater;
+		while ((inflater = inflaters.poll()) != null) {
+			inflater.end();
+		}
+		buffers.clear();
+	}
+
+	public long getDeflaterHits() {
+		return deflaterHits.get();
+	}
+
+	public long getDeflaterMisses() {
+		return deflaterMisses.get();
+	}
+
+	public long getInflaterHits() {
+		return inflaterHits.get();
+	}
+
+	public long getInflaterMisses() {
+		return inflaterMisses.get();
+	}
+
+	public long getBufferHits() {
+		return bufferHits.get();
+	}
+
+	public long getBufferMisses() {
+		return bufferMisses.get();
+	}
+
+	public String toString() {
+		return "ZlibPool[deflater " + deflaterHits + "/" + deflaterMisses + ", inflater " + inflaterHits + "/"
+				+ inflaterMisses + ", buffer " + bufferHits + "/" + bufferMisses + " (hits/misses)]";
+	}
+
+	/**
+	 * 使用池中的Deflater压缩，结果写在header个字节之后，trailer个字节留给调用方。
+	 */
+	byte[] deflate(byte[] b, int off, int len, int level, int strategy, int header, int trailer) {
+		Deflater deflater = borrowDeflater(level, strategy);
+		byte[] buffer = borrowBuffer();
+		byte[] out = buffer;
+		try {
+			deflater.setInput(b, off, len);
+			deflater.finish();
+			int n = header;
+			while (!deflater.finished()) {
+				if (n == out.length) {
+					out = Arrays.copyOf(out, out.length * 2);
+				}
+				n += deflater.deflate(out, n, out.length - n);
+			}
+			return Arrays.copyOf(out, n + trailer);
+		} finally {
+			returnDeflater(deflater);
+			returnBuffer(buffer);
+		}
+	}
+
+	/**
+	 * 使用池中的Inflater解压原始Deflate数据。
+	 * 
+	 * @param consumed
+	 *            不为null时，consumed[0]返回实际消耗的输入字节数
+	 */
+	byte[] inflate(byte[] b, int off, int len, int[] consumed) throws ZipException {
+		Inflater inflater = borrowInflater();
+		byte[] buffer = borrowBuffer();
+		byte[] out = buffer;
+		try {
+			inflater.setInput(b, off, len);
+			int n = 0;
+			while (!inflater.finished()) {
+				if (n == out.length) {
+					out = Arrays.copyOf(out, out.length * 2);
+				}
+				int count = inflater.inflate(out, n, out.length - n);
+				if (count == 0 && !inflater.finished() && (inflater.needsInput() || inflater.needsDictionary())) {
+					throw new ZipException("Unexpected end of deflate data");
+				}
+				n += count;
+			}
+			if (consumed != null) {
+				consumed[0] = len - inflater.getRemaining();
+			}
+			return Arrays.copyOf(out, n);
+		} catch (DataFormatException e) {
+			throw new ZipException(e.getMessage());
+		} finally {
+			returnInflater(inflater);
+			returnBuffer(buffer);
+		}
+	}
+}